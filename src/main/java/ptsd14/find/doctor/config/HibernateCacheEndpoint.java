@@ -0,0 +1,69 @@
+package ptsd14.find.doctor.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator view of the second-level and query cache: hits, misses, puts and
+ * hit ratio per region. Exposed at /actuator/hibernatecache.
+ */
+@Component
+@Endpoint(id = "hibernatecache")
+@RequiredArgsConstructor
+public class HibernateCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : HibernateConfig.ENTITY_REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+            if (regionStats != null) {
+                regions.put(region, describe(regionStats.getHitCount(), regionStats.getMissCount(),
+                    regionStats.getPutCount(), regionStats.getElementCountInMemory()));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("secondLevel", describe(statistics.getSecondLevelCacheHitCount(),
+            statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount(), -1));
+        result.put("query", describe(statistics.getQueryCacheHitCount(),
+            statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), -1));
+        result.put("regions", regions);
+        return result;
+    }
+
+    // Drops every cached entity and query result, e.g. after editing reference data directly in MySQL
+    @DeleteOperation
+    public void evictAll() {
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+
+    private static Map<String, Object> describe(long hits, long misses, long puts, long size) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("hits", hits);
+        values.put("misses", misses);
+        values.put("puts", puts);
+        values.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        if (size >= 0) {
+            values.put("size", size);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,105 @@
+package ptsd14.find.doctor.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Second-level and query cache for the small reference tables (specializations,
+ * hospitals, appointment types, roles). Every region is a bounded on-heap
+ * Ehcache; entities use READ_WRITE so writes through the services keep the
+ * cache consistent and bump the query cache timestamps.
+ */
+@Configuration
+public class HibernateConfig {
+
+    public static final List<String> ENTITY_REGIONS = List.of(
+        "specialization", "hospital", "appointmentType", "userRole", "userRole.permissions");
+
+    static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${app.cache.reference.max-entries:1000}")
+    private long referenceMaxEntries;
+
+    @Value("${app.cache.query.max-entries:500}")
+    private long queryMaxEntries;
+
+    @Value("${app.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Value("${app.hibernate.statistics:true}")
+    private boolean statisticsEnabled;
+
+    @Value("${app.hibernate.batch-size:50}")
+    private int batchSize;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        // A manager of our own rather than the JVM-wide default, so a second
+        // application context (e.g. another test configuration) can create the same regions.
+        // Passing the Ehcache configuration directly keeps the URI a plain name, not an XML location
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching
+            .getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+            URI.create("urn:find-doctor:hibernate:" + UUID.randomUUID()),
+            new DefaultConfiguration(getClass().getClassLoader()));
+
+        for (String region : ENTITY_REGIONS) {
+            createCache(cacheManager, region, referenceMaxEntries, true);
+        }
+        createCache(cacheManager, QUERY_RESULTS_REGION, queryMaxEntries, true);
+        // Timestamps must never expire before the query results they guard
+        createCache(cacheManager, UPDATE_TIMESTAMPS_REGION, referenceMaxEntries, false);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statisticsEnabled);
+        };
+    }
+
+    // Group inserts and updates into JDBC batches; needs application-assigned ids (see TimeOrderedId)
+    @Bean
+    public HibernatePropertiesCustomizer hibernateBatchCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.put(AvailableSettings.ORDER_INSERTS, true);
+            properties.put(AvailableSettings.ORDER_UPDATES, true);
+            properties.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+
+    private void createCache(CacheManager cacheManager, String name, long maxEntries, boolean expiring) {
+        CacheConfigurationBuilder<Object, Object> config = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries));
+        if (expiring) {
+            config = config.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofMinutes(ttlMinutes)));
+        }
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(config));
+    }
+}
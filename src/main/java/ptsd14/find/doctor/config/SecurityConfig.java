@@ -1,5 +1,6 @@
 package ptsd14.find.doctor.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -38,21 +39,26 @@ public class SecurityConfig {
             }))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Async re-dispatches of already authorized requests (SSE streams)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() 
                 .requestMatchers("/api/auth/login", "/api/auth/register").permitAll()
                 .requestMatchers("/api/webhook").permitAll()
                 .requestMatchers("/uploads/**").permitAll()
-                .requestMatchers("/api/payments/unpaid-appointments/**").permitAll()
                 .requestMatchers("/api/payments/create-payment-intent/**").permitAll()
-                .requestMatchers("/api/appointment-types/public/**", "/api/doctors/**", "/api/specializations/**", "/api/feedbacks/**").permitAll()
+                .requestMatchers("/api/appointment-types/public/**", "/api/doctors/**", "/api/specializations/**", "/api/feedbacks/**", "/api/suggest").permitAll()
                 .requestMatchers("/api/payments/pay-cash/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 .requestMatchers("/api/appointments/doctor").hasRole("DOCTOR")
                 .requestMatchers(HttpMethod.PATCH, "/api/appointments/*/confirm").hasRole("DOCTOR")
                 .requestMatchers(HttpMethod.PATCH, "/api/appointments/*/cancel").hasAnyRole("DOCTOR", "PATIENT")
                 .requestMatchers(HttpMethod.PATCH, "/api/appointments/*/complete").hasRole("DOCTOR")
+                .requestMatchers(HttpMethod.PATCH, "/api/appointments/status", "/api/appointments/complete-day").hasRole("DOCTOR")
                 .requestMatchers("/api/appointments/doctor", "/api/doctor/dashboard").hasRole("DOCTOR")
                 .requestMatchers("/api/appointments/patient").hasRole("PATIENT")
+                .requestMatchers("/api/payments/unpaid-appointments").hasAnyRole("PATIENT", "ADMIN")
                 .requestMatchers("/api/patients/**","/api/appointments/**", "/api/appointment-types/**").hasAnyRole("PATIENT", "ADMIN")
                 .requestMatchers("/api/hospitals/**","/api/users/**", "/api/payments/**","/api/dashboards/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
@@ -1,19 +1,31 @@
 package ptsd14.find.doctor.config;
 
 
-import com.stripe.Stripe;
-import jakarta.annotation.PostConstruct;
+import com.stripe.StripeClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class StripeConfig {
 
-    @Value("${stripe.secret.key}")
-    private String secretKey;
-
-    @PostConstruct
-    public void init() {
-        Stripe.apiKey = secretKey;
+    /**
+     * One shared client for the whole application instead of the global
+     * Stripe.apiKey. Connections are kept alive and reused by the underlying
+     * HTTP client, and every call is bounded by explicit timeouts.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+    public StripeClient stripeClient(@Value("${stripe.secret.key}") String secretKey,
+                                     @Value("${payment.gateway.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                     @Value("${payment.gateway.read-timeout-ms:10000}") int readTimeoutMs,
+                                     @Value("${payment.gateway.max-network-retries:2}") int maxNetworkRetries) {
+        return StripeClient.builder()
+                .setApiKey(secretKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .build();
     }
 }
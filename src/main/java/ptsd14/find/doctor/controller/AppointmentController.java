@@ -1,19 +1,43 @@
 package ptsd14.find.doctor.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.dto.BulkStatusRequest;
+import ptsd14.find.doctor.dto.BulkStatusResultDto;
+import ptsd14.find.doctor.dto.ImportReportDto;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.filter.AppointmentFilter;
 import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.projection.ListFields;
+import ptsd14.find.doctor.security.AuthenticatedUser;
+import ptsd14.find.doctor.service.AppointmentArchiveService;
+import ptsd14.find.doctor.service.AppointmentHistoryService;
+import ptsd14.find.doctor.service.AppointmentImportService;
 import ptsd14.find.doctor.service.AppointmentService;
-import ptsd14.find.doctor.service.UserService;
+import ptsd14.find.doctor.service.ExportService;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/appointments")
@@ -22,25 +46,88 @@ import java.time.LocalDateTime;
 public class AppointmentController {
 
     private final AppointmentService appointmentService;
-    private final UserService userService;
+    private final ExportService exportService;
+    private final AppointmentImportService appointmentImportService;
+    private final AppointmentArchiveService appointmentArchiveService;
+    private final AppointmentHistoryService appointmentHistoryService;
 
     /**
      * ADMIN: List all appointments (with optional search).
+     * Passing {@code after} (empty for the first page) switches to cursor mode,
+     * which returns a slice plus the cursor of the next page and skips the count.
+     * {@code withTotal=false} keeps page numbers but also skips the count.
+     * {@code fields} (comma-separated AppointmentDto property names) returns
+     * only those properties and joins only the tables they come from.
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Page<AppointmentDto>> getAllAppointments(
+    public ResponseEntity<?> getAllAppointments(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) String search
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(required = false) String fields
     ) {
+        if (after != null) {
+            return ResponseEntity.ok(appointmentService.getAll(after, size, search));
+        }
         var pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
+        if (fields != null) {
+            return sparse(AppointmentFilter.builder().search(search).build(), fields, pageable, withTotal);
+        }
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(appointmentService.getSlice(pageable, search)));
+        }
         Page<AppointmentDto> appointmentsPage = appointmentService.getAll(pageable, search);
         return ResponseEntity.ok(appointmentsPage);
     }
 
+    /**
+     * ADMIN: Stream appointments as CSV, optionally filtered by appointment
+     * date range (inclusive) and status.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportAppointments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) AppointmentStatus status,
+            HttpServletResponse response
+    ) throws IOException {
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"appointments.csv\"");
+        exportService.writeAppointmentsCsv(response.getWriter(),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                status);
+    }
+
+    /**
+     * ADMIN: Bulk import appointments from a CSV request body with the header
+     * doctorId,patientId,appointmentTypeId,dateTime,note[,status]. The body is
+     * streamed; the response lists the rows that were rejected.
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportReportDto> importAppointments(HttpServletRequest request) throws IOException {
+        Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+        return ResponseEntity.ok(appointmentImportService.importCsv(reader));
+    }
+
+    /**
+     * ADMIN: Move finished appointments past the archive horizon to the archive tables now
+     * instead of waiting for the nightly job.
+     */
+    @PostMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> archive() {
+        return ResponseEntity.ok(Map.of("archived", appointmentArchiveService.archive()));
+    }
+
      /**
-     * PATIENT: List appointments history of who had booked appointment.
+     * PATIENT: List appointments history of who had booked appointment,
+     * including archived ones, newest first.
      */
 
     @GetMapping("/my/history")
@@ -50,9 +137,8 @@ public class AppointmentController {
             @RequestParam int size,
             Authentication authentication
     ) {
-        String email = authentication.getName();
-        Long userId = userService.findByEmail(email).getId();
-        Page<AppointmentDto> appointments = appointmentService.getAppointmentsForPatient(
+        Long userId = AuthenticatedUser.userId(authentication);
+        Page<AppointmentDto> appointments = appointmentHistoryService.getPatientHistory(
                 userId, PageRequest.of(page, size));
         return ResponseEntity.ok(appointments);
     }
@@ -92,7 +178,8 @@ public class AppointmentController {
     }
 
     /**
-     * ADMIN: Update an appointment.
+     * ADMIN: Update an appointment. Passing the {@code version} last read
+     * rejects the edit with 409 if someone changed the appointment since.
      */
     @PutMapping(value = "/{id}")
     @PreAuthorize("hasRole('ADMIN')")
@@ -102,7 +189,8 @@ public class AppointmentController {
             @RequestParam Long patientId,
             @RequestParam Long appointmentTypeId,
             @RequestParam LocalDateTime dateTime,
-            @RequestParam String note
+            @RequestParam String note,
+            @RequestParam(required = false) Long version
     ) {
         AppointmentDto dto = new AppointmentDto();
         dto.setDoctorId(doctorId);
@@ -110,6 +198,7 @@ public class AppointmentController {
         dto.setAppointmentTypeId(appointmentTypeId);
         dto.setDateTime(dateTime);
         dto.setNote(note);
+        dto.setVersion(version);
 
         AppointmentDto updated = appointmentService.update(id, dto);
         return ResponseEntity.ok(updated);
@@ -155,37 +244,92 @@ public class AppointmentController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * DOCTOR: Move several of the logged-in doctor's appointments to one
+     * status at once. The response reports the outcome for every id.
+     */
+    @PatchMapping("/status")
+    @PreAuthorize("hasRole('DOCTOR')")
+    public ResponseEntity<BulkStatusResultDto> updateStatuses(
+            @Valid @RequestBody BulkStatusRequest request,
+            Authentication authentication
+    ) {
+        Long userId = AuthenticatedUser.userId(authentication);
+        return ResponseEntity.ok(appointmentService.updateStatusForDoctor(userId, request.getIds(), request.getStatus()));
+    }
+
+    /**
+     * DOCTOR: Mark every confirmed appointment of the logged-in doctor on the given day as completed.
+     */
+    @PatchMapping("/complete-day")
+    @PreAuthorize("hasRole('DOCTOR')")
+    public ResponseEntity<BulkStatusResultDto> completeDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            Authentication authentication
+    ) {
+        Long userId = AuthenticatedUser.userId(authentication);
+        return ResponseEntity.ok(appointmentService.completeConfirmedForDoctor(userId, date));
+    }
+
     /**
      * DOCTOR: List appointments for the logged-in doctor.
+     * {@code withTotal=false} returns a slice without the total; {@code fields}
+     * works as on the admin list.
      */
     @GetMapping("/doctor")
     @PreAuthorize("hasRole('DOCTOR')")
-    public ResponseEntity<Page<AppointmentDto>> getDoctorAppointments(
+    public ResponseEntity<?> getDoctorAppointments(
             @RequestParam int page,
             @RequestParam int size,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(required = false) String fields,
             Authentication authentication
     ) {
-        String email = authentication.getName();
-        Long userId = userService.findByEmail(email).getId();
+        Long userId = AuthenticatedUser.userId(authentication);
+        if (fields != null) {
+            return sparse(AppointmentFilter.builder().doctorUserId(userId).build(), fields,
+                    PageRequest.of(page, size), withTotal);
+        }
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(appointmentService.getAppointmentSliceForDoctor(
+                    userId, PageRequest.of(page, size))));
+        }
         Page<AppointmentDto> appointments = appointmentService.getAppointmentsForDoctor(
                 userId, PageRequest.of(page, size));
         return ResponseEntity.ok(appointments);
     }
     /**
      * PATIENT: List appointments for the logged-in patient.
+     * {@code withTotal=false} returns a slice without the total; {@code fields}
+     * works as on the admin list, e.g. {@code fields=doctorName,dateTime}.
      */
     @GetMapping("/my")
     @PreAuthorize("hasRole('PATIENT')")
-    public ResponseEntity<Page<AppointmentDto>> getPatientAppointments(
+    public ResponseEntity<?> getPatientAppointments(
             @RequestParam int page,
             @RequestParam int size,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(required = false) String fields,
             Authentication authentication
     ) {
-        String email = authentication.getName();
-        Long userId = userService.findByEmail(email).getId();
+        Long userId = AuthenticatedUser.userId(authentication);
+        if (fields != null) {
+            return sparse(AppointmentFilter.builder().patientUserId(userId).build(), fields,
+                    PageRequest.of(page, size), withTotal);
+        }
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(appointmentService.getAppointmentSliceForPatient(
+                    userId, PageRequest.of(page, size))));
+        }
         Page<AppointmentDto> appointments = appointmentService.getAppointmentsForPatient(
                 userId, PageRequest.of(page, size));
         return ResponseEntity.ok(appointments);
-    }    
+    }
 
+    // ?fields= rows: a page, or with withTotal=false a slice
+    private ResponseEntity<?> sparse(AppointmentFilter filter, String fields, Pageable pageable, boolean withTotal) {
+        Slice<Map<String, Object>> rows = appointmentService.getFields(
+                filter, ListFields.APPOINTMENTS.select(fields), pageable, withTotal);
+        return ResponseEntity.ok(withTotal ? rows : SliceDto.of(rows));
+    }
 }
@@ -20,6 +20,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import org.springframework.security.core.AuthenticationException;
 
+import io.jsonwebtoken.Claims;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import ptsd14.find.doctor.dto.LoginRequest;
@@ -123,7 +124,7 @@ public class AuthController {
         User user = userRepository.findByEmail(request.getEmail())
             .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        String token = jwtUtil.generateAccessToken(user.getEmail(), user.getRole().getName());
+        String token = jwtUtil.generateAccessToken(user);
 
         String dashboardUrl;
         switch (user.getRole().getName().toUpperCase()) {
@@ -209,11 +210,8 @@ public class AuthController {
 
         UserDto updatedUser = userService.updateProfile(oldEmail, request);
 
-        // Generate new token using role name (as string)
-        String newToken = jwtUtil.generateAccessToken(
-            updatedUser.getEmail(),
-            updatedUser.getRole() != null ? updatedUser.getRole() : "USER"
-        );
+        // Email or password changes revoke older tokens, so hand out one with the new version
+        String newToken = jwtUtil.generateAccessToken(userService.findByEmail(updatedUser.getEmail()));
 
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Profile updated");
@@ -226,22 +224,22 @@ public class AuthController {
     @PostMapping("/refresh")
     public ResponseEntity<?> refreshAccessToken(@RequestBody Map<String, String> request) {
         String refreshToken = request.get("refreshToken");
-        System.out.println("Refresh token received: " + refreshToken);
-
-        if (refreshToken == null || !jwtUtil.validateToken(refreshToken)) {
-            System.out.println("Invalid or expired refresh token");
+        Claims claims = refreshToken != null ? jwtUtil.parseRefreshToken(refreshToken) : null;
+        if (claims == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid or expired refresh token"));
         }
 
-        String email = jwtUtil.extractUsername(refreshToken);
-        System.out.println("Email extracted from refresh token: " + email);
-
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findByEmail(claims.getSubject())
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        String newAccessToken = jwtUtil.generateAccessToken(user.getEmail(), user.getRole().getName());
-        System.out.println("Generated new access token: " + newAccessToken);
+        // Forced logout and role changes bump the token version, which also retires refresh tokens
+        Long userId = claims.get(JwtUtil.CLAIM_USER_ID, Long.class);
+        Long tokenVersion = claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Long.class);
+        if (!user.getId().equals(userId) || tokenVersion == null || tokenVersion != user.getTokenVersion()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Refresh token has been revoked"));
+        }
 
+        String newAccessToken = jwtUtil.generateAccessToken(user);
         return ResponseEntity.ok(Map.of("accessToken", newAccessToken));
     }
 
@@ -1,14 +1,20 @@
 package ptsd14.find.doctor.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ptsd14.find.doctor.dto.DashboardStatsDto;
 import ptsd14.find.doctor.service.DashboardService;
+import ptsd14.find.doctor.service.DashboardStreamService;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +25,7 @@ import java.util.Map;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final DashboardStreamService dashboardStreamService;
 
     @GetMapping("/counts")
 @PreAuthorize("hasRole('ADMIN')")
@@ -32,10 +39,18 @@ public ResponseEntity<Map<String, Long>> getCounts() {
 
     return ResponseEntity.ok()
             .header("Cache-Control", "private, max-age=60") // cache for 60 seconds
+            .header(HttpHeaders.AGE, String.valueOf(snapshotAgeSeconds(stats)))
             .body(counts);
 }
 
 
+    /** ADMIN: Live dashboard feed, a snapshot event followed by deltas as they happen */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter stream() {
+        return dashboardStreamService.subscribe();
+    }
+
     @GetMapping("/revenue")
     @PreAuthorize("hasRole('ADMIN')")
     public List<Map<String, Object>> getRevenueData() {
@@ -46,7 +61,9 @@ public ResponseEntity<Map<String, Long>> getCounts() {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<DashboardStatsDto> getStats() {
         DashboardStatsDto stats = dashboardService.getDashboardStats();
-        return ResponseEntity.ok(stats);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(snapshotAgeSeconds(stats)))
+                .body(stats);
     }
 
     @GetMapping("/appointments/upcoming")
@@ -68,4 +85,9 @@ public ResponseEntity<Map<String, Long>> getCounts() {
     public List<Map<String, Object>> getRecentActivities() {
         return dashboardService.getRecentActivities();
     }
+
+    // Stats come from an in-memory snapshot; Age tells the client how old it is
+    private long snapshotAgeSeconds(DashboardStatsDto stats) {
+        return Duration.between(stats.getGeneratedAt(), LocalDateTime.now()).toSeconds();
+    }
 }
@@ -2,16 +2,24 @@ package ptsd14.find.doctor.controller;
 
 import lombok.RequiredArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import ptsd14.find.doctor.dto.AvailabilityDto;
 import ptsd14.find.doctor.dto.DoctorDto;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.filter.DoctorFilter;
+import ptsd14.find.doctor.projection.ListFields;
 import ptsd14.find.doctor.service.DoctorService;
 
 @RestController
@@ -22,18 +30,40 @@ public class DoctorController {
 
     private final DoctorService doctorService;
 
+    /**
+     * Doctor list. {@code fields} (comma-separated DoctorDto property names)
+     * returns only those properties, selecting only their columns.
+     */
     @GetMapping
-    public ResponseEntity<Page<DoctorDto>> getAllDoctors(
+    public ResponseEntity<?> getAllDoctors(
         @RequestParam(required = false, defaultValue = "0") Integer page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String search,
-        @RequestParam(required = false) String status
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) Long hospitalId,
+        @RequestParam(required = false) Long specializationId,
+        @RequestParam(defaultValue = "true") boolean withTotal,
+        @RequestParam(required = false) String fields
     ) {
         int pageNumber = (page != null && page >= 0) ? page : 0;
 
         var pageable = PageRequest.of(pageNumber, size, Sort.by(Sort.Direction.DESC, "id"));
-
-        Page<DoctorDto> doctorsPage = doctorService.getAll(pageable, search, status);
+        var filter = DoctorFilter.builder()
+                .search(search)
+                .status(status)
+                .hospitalId(hospitalId)
+                .specializationId(specializationId)
+                .build();
+
+        if (fields != null) {
+            Slice<Map<String, Object>> rows = doctorService.getFields(
+                    filter, ListFields.DOCTORS.select(fields), pageable, withTotal);
+            return ResponseEntity.ok(withTotal ? rows : SliceDto.of(rows));
+        }
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(doctorService.getSlice(filter, pageable)));
+        }
+        Page<DoctorDto> doctorsPage = doctorService.getAll(filter, pageable);
 
         return ResponseEntity.ok(doctorsPage);
     }
@@ -46,6 +76,17 @@ public class DoctorController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<AvailabilityDto> getAvailability(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        LocalDateTime start = from != null ? from : LocalDateTime.now();
+        LocalDateTime end = to != null ? to : start.plusDays(7);
+        return ResponseEntity.ok(doctorService.getAvailability(id, start, end));
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<DoctorDto> create(@RequestBody DoctorDto dto) {
@@ -73,5 +114,13 @@ public class DoctorController {
         return ResponseEntity.ok(topDoctors);
     }
 
+    /** ADMIN: Recompute every doctor's rating aggregate from the feedbacks table */
+    @PostMapping("/ratings/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuildRatings() {
+        doctorService.rebuildRatings();
+        return ResponseEntity.noContent().build();
+    }
+
 
 }
@@ -2,15 +2,20 @@ package ptsd14.find.doctor.controller;
 
 import lombok.RequiredArgsConstructor;
 
+import java.time.LocalDateTime;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import ptsd14.find.doctor.dto.FeedbackDto;
+import ptsd14.find.doctor.dto.SliceDto;
 import ptsd14.find.doctor.dto.FeedbackDto.FeedbackSummaryDto;
+import ptsd14.find.doctor.filter.FeedbackFilter;
 import ptsd14.find.doctor.service.DoctorService;
 import ptsd14.find.doctor.service.FeedbackService;
 
@@ -23,22 +28,57 @@ public class FeedbackController {
     private final FeedbackService feedbackService;
     private final DoctorService doctorService;
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     @GetMapping
     // @PreAuthorize("hasAnyRole('ADMIN', 'PATIENT')")
-    public ResponseEntity<Page<FeedbackDto>> getAll(
+    public ResponseEntity<?> getAll(
         @RequestParam(required = false, defaultValue = "0") Integer page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String search,
-        @RequestParam(required = false) Integer rating
+        @RequestParam(required = false) Integer rating,
+        @RequestParam(required = false) Long doctorId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(defaultValue = "true") boolean withTotal
     ) {
         int pageNumber = (page != null && page >= 0) ? page : 0;
 
         var pageable = PageRequest.of(pageNumber, size, Sort.by(Sort.Direction.DESC, "id"));
-        Page<FeedbackDto> feedbacksPage = feedbackService.getAll(pageable, search, rating);
+        var filter = FeedbackFilter.builder()
+                .search(search)
+                .rating(rating)
+                .doctorId(doctorId)
+                .from(from)
+                .to(to)
+                .build();
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(feedbackService.getSlice(filter, pageable)));
+        }
+        Page<FeedbackDto> feedbacksPage = feedbackService.getAll(filter, pageable);
 
         return ResponseEntity.ok(feedbacksPage);
     }
 
+    /**
+     * Full-text search over comments ranked by relevance, optionally
+     * narrowed to one rating and one doctor.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Page<FeedbackDto>> search(
+        @RequestParam String q,
+        @RequestParam(required = false) Integer rating,
+        @RequestParam(required = false) Long doctorId,
+        @RequestParam(defaultValue = "0") int page,
+        @RequestParam(defaultValue = "10") int size
+    ) {
+        if (q.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        var pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+        return ResponseEntity.ok(feedbackService.search(q, rating, doctorId, pageable));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<FeedbackDto> getById(@PathVariable Long id) {
@@ -12,6 +12,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import ptsd14.find.doctor.dto.PatientDto;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.filter.PatientFilter;
 import ptsd14.find.doctor.service.PatientService;
 
 @RestController
@@ -24,17 +26,23 @@ public class PatientController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Page<PatientDto>> getAllPatients(
+    public ResponseEntity<?> getAllPatients(
         @RequestParam(required = false, defaultValue = "0") Integer page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String search,
-        @RequestParam(required = false) String status
+        @RequestParam(required = false) String status,
+        @RequestParam(defaultValue = "true") boolean withTotal
     ) {
         int pageNumber = (page != null && page >= 0) ? page : 0;
 
         var pageable = PageRequest.of(pageNumber, size, Sort.by(Sort.Direction.DESC, "id"));
 
-        Page<PatientDto> patientsPage = patientService.getAll(pageable, search, status);
+        var filter = PatientFilter.builder().search(search).status(status).build();
+
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(patientService.getSlice(filter, pageable)));
+        }
+        Page<PatientDto> patientsPage = patientService.getAll(filter, pageable);
 
         return ResponseEntity.ok(patientsPage);
     }
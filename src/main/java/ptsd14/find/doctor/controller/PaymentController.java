@@ -1,24 +1,36 @@
 package ptsd14.find.doctor.controller;
 
 import com.stripe.model.PaymentIntent;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import ptsd14.find.doctor.dto.AppointmentDto;
 import ptsd14.find.doctor.dto.PaymentDto;
 import ptsd14.find.doctor.dto.PaymentRequest;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.filter.PaymentFilter;
+import ptsd14.find.doctor.projection.ListFields;
+import ptsd14.find.doctor.security.AuthenticatedUser;
+import ptsd14.find.doctor.service.ExportService;
 import ptsd14.find.doctor.service.PaymentService;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -26,22 +38,62 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PaymentController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final PaymentService paymentService;
+    private final ExportService exportService;
 
-    // Get all payments
+    // Get all payments; ?fields= limits the response and the query to those PaymentDto properties
     @GetMapping
-    public ResponseEntity<Page<PaymentDto>> getAllPayments(
+    public ResponseEntity<?> getAllPayments(
         @RequestParam(required = false, defaultValue = "0") Integer page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String search,
-        @RequestParam(required = false) String status
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) Long doctorId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(defaultValue = "true") boolean withTotal,
+        @RequestParam(required = false) String fields
     ) {
         int pageNumber = (page != null && page >= 0) ? page : 0;
         Pageable pageable = PageRequest.of(pageNumber, size, Sort.by(Sort.Direction.DESC, "id"));
-        Page<PaymentDto> paymentsPage = paymentService.getAll(pageable, search, status);
+        var filter = PaymentFilter.builder()
+                .search(search)
+                .status(status)
+                .doctorId(doctorId)
+                .from(from)
+                .to(to)
+                .build();
+        if (fields != null) {
+            Slice<Map<String, Object>> rows = paymentService.getFields(
+                    filter, ListFields.PAYMENTS.select(fields), pageable, withTotal);
+            return ResponseEntity.ok(withTotal ? rows : SliceDto.of(rows));
+        }
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(paymentService.getSlice(filter, pageable)));
+        }
+        Page<PaymentDto> paymentsPage = paymentService.getAll(filter, pageable);
         return ResponseEntity.ok(paymentsPage);
     }
 
+    /** ADMIN: Stream payments as CSV, optionally filtered by paid date range (inclusive) and status */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportPayments(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        @RequestParam(required = false) String status,
+        HttpServletResponse response
+    ) throws IOException {
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.csv\"");
+        exportService.writePaymentsCsv(response.getWriter(),
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                status != null && !status.isBlank() ? status.trim().toUpperCase() : null);
+    }
+
     // Get payment by ID
     @GetMapping("/{id}")
     public ResponseEntity<PaymentDto> getPaymentById(@PathVariable Long id) {
@@ -53,27 +105,44 @@ public class PaymentController {
     @PostMapping("/create-payment-intent")
     public ResponseEntity<?> createPaymentIntent(
             @Valid @RequestBody PaymentRequest request) {
-        try {
-            PaymentIntent paymentIntent = paymentService.createPaymentIntent(
-                    request.getAppointmentId(),
-                    request.getAmountInCents(),
-                    request.getCurrency()
-            );
-
-            // Return client_secret only
-            Map<String, String> response = new HashMap<>();
-            response.put("clientSecret", paymentIntent.getClientSecret());
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("Failed to create payment intent: " + e.getMessage());
-        }
+        // Provider errors surface as PaymentProcessingException (400) or PaymentGatewayUnavailableException (503)
+        PaymentIntent paymentIntent = paymentService.createPaymentIntent(
+                request.getAppointmentId(),
+                request.getAmountInCents(),
+                request.getCurrency()
+        );
+
+        // Return client_secret only
+        Map<String, String> response = new HashMap<>();
+        response.put("clientSecret", paymentIntent.getClientSecret());
+        return ResponseEntity.ok(response);
     }
 
+    /** ADMIN: Unpaid appointments, filterable by doctor, patient and date range (inclusive). PATIENT: only their own */
     @GetMapping("/unpaid-appointments")
-    public ResponseEntity<List<AppointmentDto>> getUnpaidAppointments() {
-        List<AppointmentDto> appointments = paymentService.getUnpaidAppointments();
+    @PreAuthorize("hasAnyRole('ADMIN', 'PATIENT')")
+    public ResponseEntity<Page<AppointmentDto>> getUnpaidAppointments(
+        @RequestParam(required = false, defaultValue = "0") Integer page,
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) Long doctorId,
+        @RequestParam(required = false) Long patientId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+        Authentication authentication
+    ) {
+        int pageNumber = (page != null && page >= 0) ? page : 0;
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.ASC, "dateTime", "id"));
+
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+        Long patientUserId = admin ? null : AuthenticatedUser.userId(authentication);
+
+        Page<AppointmentDto> appointments = paymentService.getUnpaidAppointments(
+                doctorId, patientId, patientUserId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                pageable);
         return ResponseEntity.ok(appointments);
     }
     @PostMapping("/{id}/refund")
@@ -2,7 +2,6 @@ package ptsd14.find.doctor.controller;
 
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
-import com.stripe.model.EventDataObjectDeserializer;
 import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
 import jakarta.annotation.PostConstruct;
@@ -10,21 +9,18 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
 
-import ptsd14.find.doctor.model.Payment;
-import ptsd14.find.doctor.model.Appointment;
-import ptsd14.find.doctor.repository.PaymentRepository;
-import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.model.WebhookEvent;
+import ptsd14.find.doctor.service.WebhookInboxService;
+import ptsd14.find.doctor.service.WebhookProcessor;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -35,8 +31,8 @@ public class StripeWebhookController {
     @Value("${stripe.webhook.secret}")
     private String endpointSecret;
 
-    private final PaymentRepository paymentRepository;
-    private final AppointmentRepository appointmentRepository;
+    private final WebhookInboxService webhookInboxService;
+    private final WebhookProcessor webhookProcessor;
 
     @PostConstruct
     public void init() {
@@ -67,63 +63,40 @@ public class StripeWebhookController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Webhook error");
         }
 
-            log.info("Received Stripe event: type={}, id={}", event.getType(), event.getId());
-
-        if ("payment_intent.succeeded".equals(event.getType())) {
-            EventDataObjectDeserializer dataObjectDeserializer = event.getDataObjectDeserializer();
-
-            Optional<PaymentIntent> paymentIntentOptional = dataObjectDeserializer.getObject()
-                    .map(obj -> (PaymentIntent) obj);
-
-            if (paymentIntentOptional.isEmpty()) {
-                log.error("Could not deserialize PaymentIntent from event data");
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to deserialize payment intent");
-            }
-
-            PaymentIntent paymentIntent = paymentIntentOptional.get();
-
-            log.info("PaymentIntent succeeded: id={}, amount={}, currency={}",
-                    paymentIntent.getId(), paymentIntent.getAmount(), paymentIntent.getCurrency());
-
-            // Extract appointmentId from metadata
-            String appointmentIdStr = paymentIntent.getMetadata().get("appointmentId");
-            if (appointmentIdStr == null || appointmentIdStr.isEmpty()) {
-                log.warn("No appointmentId metadata found in PaymentIntent {}", paymentIntent.getId());
-                return ResponseEntity.ok("");
-            }
-
-            Long appointmentId;
-            try {
-                appointmentId = Long.parseLong(appointmentIdStr);
-            } catch (NumberFormatException ex) {
-                log.error("Invalid appointmentId in metadata: {}", appointmentIdStr);
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid appointmentId metadata");
-            }
-
-            Appointment appointment = appointmentRepository.findById(appointmentId).orElse(null);
-
-            if (appointment == null) {
-                log.warn("Appointment not found for ID: {}", appointmentId);
-                return ResponseEntity.ok(""); 
-            }
-
-            // Save payment record
-            Payment payment = new Payment();
-            payment.setAmount(BigDecimal.valueOf(paymentIntent.getAmount()).movePointLeft(2));
-            payment.setStripePaymentIntentId(paymentIntent.getId()); 
-            payment.setPaymentStatus("PAID");
-            payment.setPaymentMethod(paymentIntent.getPaymentMethod() != null ? paymentIntent.getPaymentMethod() : "unknown");
-            payment.setPaidAt(LocalDateTime.now());
-            payment.setAppointment(appointment);
-
-            paymentRepository.save(payment);
+        log.info("Received Stripe event: type={}, id={}", event.getType(), event.getId());
 
+        // Acknowledge fast: store the verified event and let the worker pool apply it
+        if (webhookInboxService.isKnown(event.getId())) {
+            log.info("Duplicate Stripe event {}, already recorded", event.getId());
+            return ResponseEntity.ok("");
+        }
 
-            log.info("Payment saved for appointmentId {}", appointmentId);
-        } else {
-            log.info("Unhandled event type: {}", event.getType());
+        WebhookEvent recorded;
+        try {
+            recorded = webhookInboxService.record(event.getId(), event.getType(), partitionKey(event), payload);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Duplicate Stripe event {}, recorded concurrently", event.getId());
+            return ResponseEntity.ok("");
         }
 
+        webhookProcessor.submit(recorded.getId(), recorded.getPartitionKey());
+
         return ResponseEntity.ok("");
     }
+
+    // Events are partitioned by appointment so the same appointment is never handled concurrently
+    private Long partitionKey(Event event) {
+        return event.getDataObjectDeserializer().getObject()
+                .filter(PaymentIntent.class::isInstance)
+                .map(obj -> ((PaymentIntent) obj).getMetadata())
+                .map(metadata -> metadata.get("appointmentId"))
+                .map(value -> {
+                    try {
+                        return Long.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                })
+                .orElse(null);
+    }
 }
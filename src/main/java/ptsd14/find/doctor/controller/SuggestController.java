@@ -0,0 +1,34 @@
+package ptsd14.find.doctor.controller;
+
+import java.util.List;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import ptsd14.find.doctor.dto.SuggestionDto;
+import ptsd14.find.doctor.index.TypeaheadIndex;
+
+@RestController
+@RequestMapping("/api/suggest")
+@RequiredArgsConstructor
+public class SuggestController {
+
+    private final TypeaheadIndex typeaheadIndex;
+
+    /**
+     * Search-box completions across doctor, hospital and specialization
+     * names, most popular first. Answered from memory on every keystroke.
+     */
+    @GetMapping
+    public ResponseEntity<List<SuggestionDto>> suggest(
+        @RequestParam String prefix,
+        @RequestParam(defaultValue = "8") int limit
+    ) {
+        int capped = Math.min(Math.max(limit, 1), TypeaheadIndex.MAX_LIMIT);
+        return ResponseEntity.ok(typeaheadIndex.suggest(prefix, capped));
+    }
+}
@@ -9,8 +9,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ptsd14.find.doctor.dto.CreateUserRequest;
+import ptsd14.find.doctor.dto.SliceDto;
 import ptsd14.find.doctor.dto.UpdateUserRequest;
 import ptsd14.find.doctor.dto.UserDto;
+import ptsd14.find.doctor.filter.UserFilter;
 import ptsd14.find.doctor.service.UserService;
 
 @RestController
@@ -22,17 +24,23 @@ public class UserController {
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Page<UserDto>> getAllUsers(
+    public ResponseEntity<?> getAllUsers(
         @RequestParam(required = false, defaultValue = "0") Integer page,
         @RequestParam(defaultValue = "10") int size,
         @RequestParam(required = false) String search,
-        @RequestParam(required = false) String role
+        @RequestParam(required = false) String role,
+        @RequestParam(defaultValue = "true") boolean withTotal
     ) {
         int pageNumber = (page != null && page >= 0) ? page : 0;
 
         var pageable = PageRequest.of(pageNumber, size, Sort.by(Sort.Direction.DESC, "id"));
 
-        Page<UserDto> usersPage = userService.getAll(pageable, search, role);
+        var filter = UserFilter.builder().search(search).role(role).build();
+
+        if (!withTotal) {
+            return ResponseEntity.ok(SliceDto.of(userService.getSlice(filter, pageable)));
+        }
+        Page<UserDto> usersPage = userService.getAll(filter, pageable);
 
         return ResponseEntity.ok(usersPage);
     }
@@ -59,6 +67,14 @@ public class UserController {
         return ResponseEntity.ok(updated);
     }
 
+    /** ADMIN: Force logout, every access token issued so far for this user stops working */
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> revokeTokens(@PathVariable Long id) {
+        userService.revokeTokens(id);
+        return ResponseEntity.noContent().build();
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<?> delete(@PathVariable Long id) {
@@ -4,8 +4,11 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import ptsd14.find.doctor.model.AppointmentStatus;
 
 @Data
+@NoArgsConstructor
 public class AppointmentDto {
 
     private Long id;
@@ -25,4 +28,35 @@ public class AppointmentDto {
     private boolean feedbackGiven;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
+    // True for rows read from the archive tier
+    private boolean archived;
+
+    // Used by the JPQL constructor projections in AppointmentRepository
+    public AppointmentDto(Long id,
+                          Long doctorId, String doctorFirstname, String doctorLastname,
+                          Long patientId, String patientFirstname, String patientLastname,
+                          Long appointmentTypeId, String appointmentTypeName,
+                          String doctorHospitalName, String doctorHospitalPhone,
+                          LocalDateTime dateTime, String note, AppointmentStatus status,
+                          BigDecimal amount, String paymentStatus,
+                          LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        this.id = id;
+        this.doctorId = doctorId;
+        this.doctorName = doctorFirstname + " " + doctorLastname;
+        this.patientId = patientId;
+        this.patientName = patientFirstname + " " + patientLastname;
+        this.appointmentTypeId = appointmentTypeId;
+        this.appointmentTypeName = appointmentTypeName;
+        this.doctorHospitalName = doctorHospitalName;
+        this.doctorHospitalPhone = doctorHospitalPhone;
+        this.dateTime = dateTime;
+        this.note = note;
+        this.status = status != null ? status.name() : null;
+        this.amount = amount;
+        this.paymentStatus = paymentStatus;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.version = version;
+    }
 }
@@ -0,0 +1,24 @@
+package ptsd14.find.doctor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class AvailabilityDto {
+    private Long doctorId;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<TimeRange> busy = new ArrayList<>();
+    private List<TimeRange> free = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class TimeRange {
+        private LocalDateTime start;
+        private LocalDateTime end;
+    }
+}
@@ -0,0 +1,18 @@
+package ptsd14.find.doctor.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import ptsd14.find.doctor.model.AppointmentStatus;
+
+import java.util.List;
+
+@Data
+public class BulkStatusRequest {
+
+    @NotEmpty(message = "At least one appointment ID is required")
+    private List<Long> ids;
+
+    @NotNull(message = "Target status is required")
+    private AppointmentStatus status;
+}
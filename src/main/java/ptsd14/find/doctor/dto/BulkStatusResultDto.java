@@ -0,0 +1,32 @@
+package ptsd14.find.doctor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ptsd14.find.doctor.model.AppointmentStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkStatusResultDto {
+
+    private AppointmentStatus target;
+    private int updated;
+    private List<Outcome> outcomes = new ArrayList<>();
+
+    public enum Result {
+        UPDATED,
+        NOT_FOUND,
+        NOT_OWNED,
+        INVALID_TRANSITION
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Outcome {
+        private Long id;
+        private Result result;
+        // Status after the operation; null when the appointment is missing or not visible to the caller
+        private AppointmentStatus status;
+    }
+}
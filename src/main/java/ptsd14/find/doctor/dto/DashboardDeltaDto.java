@@ -0,0 +1,27 @@
+package ptsd14.find.doctor.dto;
+
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class DashboardDeltaDto {
+
+    public enum Type {
+        APPOINTMENT_CREATED,
+        APPOINTMENT_UPDATED,
+        APPOINTMENT_STATUS_CHANGED,
+        APPOINTMENT_DELETED,
+        PAYMENT_RECEIVED,
+        PAYMENT_UPDATED
+    }
+
+    private Type type;
+    private Long appointmentId;
+    private String status;
+    private LocalDateTime dateTime;
+    private DashboardStatsDto.AppointmentSummary appointment;
+    private Long paymentId;
+    private BigDecimal amount;
+    private LocalDateTime occurredAt = LocalDateTime.now();
+}
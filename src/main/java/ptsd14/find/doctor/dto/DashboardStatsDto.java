@@ -16,6 +16,7 @@ public class DashboardStatsDto {
     private BigDecimal totalRevenue;
     private List<DailyRevenue> revenueLast30Days = new ArrayList<>();
     private List<AppointmentSummary> upcomingAppointments = new ArrayList<>();
+    private LocalDateTime generatedAt;
 
     @Data
     public static class DailyRevenue {
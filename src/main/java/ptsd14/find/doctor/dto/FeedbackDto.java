@@ -12,6 +12,8 @@ public class FeedbackDto {
     private Long appointmentId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // BM25 relevance, only set by /api/feedbacks/search
+    private Double score;
 
     @Data
     @AllArgsConstructor
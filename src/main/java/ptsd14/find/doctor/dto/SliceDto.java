@@ -0,0 +1,25 @@
+package ptsd14.find.doctor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SliceDto<T> {
+    private List<T> content;
+    private int size;
+    // Page number for ?withTotal=false lists; null when paging by cursor
+    private Integer number;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public static <T> SliceDto<T> of(Slice<T> slice) {
+        return new SliceDto<>(slice.getContent(), slice.getSize(), slice.getNumber(), slice.hasNext(), null);
+    }
+}
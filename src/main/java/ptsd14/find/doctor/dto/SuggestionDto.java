@@ -0,0 +1,15 @@
+package ptsd14.find.doctor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDto {
+    // DOCTOR, HOSPITAL or SPECIALIZATION
+    private String type;
+    private Long id;
+    private String name;
+}
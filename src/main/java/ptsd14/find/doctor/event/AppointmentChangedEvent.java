@@ -0,0 +1,46 @@
+package ptsd14.find.doctor.event;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.AppointmentStatus;
+
+/**
+ * Published by the appointment write paths. Carries a snapshot of the fields
+ * listeners need so they don't have to go back to the database after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentChangedEvent {
+
+    public enum Action {
+        CREATED,
+        UPDATED,
+        STATUS_CHANGED,
+        DELETED
+    }
+
+    private final Action action;
+    private final Long appointmentId;
+    private final Long doctorId;
+    private final LocalDateTime dateTime;
+    private final Integer durationMinutes;
+    private final AppointmentStatus status;
+
+    public static AppointmentChangedEvent of(Action action, Appointment appointment) {
+        return new AppointmentChangedEvent(
+            action,
+            appointment.getId(),
+            appointment.getDoctor() != null ? appointment.getDoctor().getId() : null,
+            appointment.getDateTime(),
+            appointment.getAppointmentType() != null ? appointment.getAppointmentType().getDuration() : null,
+            appointment.getStatus()
+        );
+    }
+
+    public static AppointmentChangedEvent deleted(Long appointmentId) {
+        return new AppointmentChangedEvent(Action.DELETED, appointmentId, null, null, null, null);
+    }
+}
@@ -0,0 +1,13 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after an archive run moved finished appointments to the cold tier.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentsArchivedEvent {
+    private final int count;
+}
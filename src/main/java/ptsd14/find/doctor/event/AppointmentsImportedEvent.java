@@ -0,0 +1,14 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published once per committed import chunk instead of one
+ * AppointmentChangedEvent per historical row.
+ */
+@Getter
+@AllArgsConstructor
+public class AppointmentsImportedEvent {
+    private final int count;
+}
@@ -0,0 +1,21 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a doctor, patient, hospital or specialization is created,
+ * updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class DirectoryChangedEvent {
+
+    public enum Kind {
+        DOCTOR, PATIENT, HOSPITAL, SPECIALIZATION
+    }
+
+    private final Kind kind;
+    private final Long id;
+    private final boolean deleted;
+}
@@ -0,0 +1,14 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a doctor's rating aggregate changes. A null doctorId means
+ * every aggregate was rebuilt.
+ */
+@Getter
+@AllArgsConstructor
+public class DoctorRatingChangedEvent {
+    private final Long doctorId;
+}
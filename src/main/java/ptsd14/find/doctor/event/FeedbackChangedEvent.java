@@ -0,0 +1,14 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a feedback is created, edited or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class FeedbackChangedEvent {
+    private final Long feedbackId;
+    private final boolean deleted;
+}
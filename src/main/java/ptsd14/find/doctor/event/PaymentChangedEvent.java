@@ -0,0 +1,29 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import ptsd14.find.doctor.model.Payment;
+
+import java.math.BigDecimal;
+
+/**
+ * Published when a payment is recorded or its status changes.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentChangedEvent {
+
+    private final Long paymentId;
+    private final Long appointmentId;
+    private final BigDecimal amount;
+    private final String status;
+
+    public static PaymentChangedEvent of(Payment payment) {
+        return new PaymentChangedEvent(
+            payment.getId(),
+            payment.getAppointment() != null ? payment.getAppointment().getId() : null,
+            payment.getAmount(),
+            payment.getPaymentStatus());
+    }
+}
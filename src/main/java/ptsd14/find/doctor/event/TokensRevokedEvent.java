@@ -0,0 +1,14 @@
+package ptsd14.find.doctor.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a user's token version was bumped. A null userId means
+ * versions changed for many users at once, e.g. after a role update.
+ */
+@Getter
+@AllArgsConstructor
+public class TokensRevokedEvent {
+    private final Long userId;
+}
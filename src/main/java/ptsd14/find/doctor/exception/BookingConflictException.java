@@ -0,0 +1,7 @@
+package ptsd14.find.doctor.exception;
+
+public class BookingConflictException extends RuntimeException {
+    public BookingConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ptsd14.find.doctor.exception;
+
+public class InvalidStatusTransitionException extends RuntimeException {
+    public InvalidStatusTransitionException(String message) {
+        super(message);
+    }
+}
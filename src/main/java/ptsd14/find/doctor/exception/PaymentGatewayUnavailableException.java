@@ -0,0 +1,7 @@
+package ptsd14.find.doctor.exception;
+
+public class PaymentGatewayUnavailableException extends RuntimeException {
+    public PaymentGatewayUnavailableException(String message) {
+        super(message);
+    }
+}
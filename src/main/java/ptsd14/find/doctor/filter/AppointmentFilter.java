@@ -0,0 +1,62 @@
+package ptsd14.find.doctor.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.Doctor;
+
+/**
+ * Optional criteria for the appointment lists: the admin's doctor name
+ * search, or the appointments of one doctor or patient account.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class AppointmentFilter {
+
+    private final String search;
+    private final Long doctorUserId;
+    private final Long patientUserId;
+
+    public boolean hasSearch() {
+        return Filters.hasText(search);
+    }
+
+    /**
+     * doctorMatches are the doctor ids the name index resolved the search
+     * to, or null to match doctor names with LIKE.
+     */
+    public Specification<Appointment> toSpecification(long[] doctorMatches) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            Join<Appointment, Doctor> doctor = null;
+            if (hasSearch()) {
+                if (doctorMatches != null) {
+                    predicates.add(Filters.idIn(cb, root.get("doctor").get("id"), doctorMatches));
+                } else {
+                    doctor = root.join("doctor");
+                    predicates.add(cb.or(Filters.containsIgnoreCase(cb, doctor.get("firstname"), search),
+                            Filters.containsIgnoreCase(cb, doctor.get("lastname"), search)));
+                }
+            }
+            if (doctorUserId != null) {
+                if (doctor == null) {
+                    doctor = root.join("doctor");
+                }
+                predicates.add(cb.equal(doctor.get("user").get("id"), doctorUserId));
+            }
+            if (patientUserId != null) {
+                predicates.add(cb.equal(root.join("patient").get("user").get("id"), patientUserId));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package ptsd14.find.doctor.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.Doctor;
+
+/**
+ * Optional criteria for the doctor list. Each set field adds one predicate
+ * to a single query, so any combination needs no repository method of its own.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class DoctorFilter {
+
+    private final String search;
+    private final String status;
+    private final Long hospitalId;
+    private final Long specializationId;
+
+    public boolean hasSearch() {
+        return Filters.hasText(search);
+    }
+
+    public boolean isSearchOnly() {
+        return hasSearch() && !Filters.hasText(status) && hospitalId == null && specializationId == null;
+    }
+
+    /**
+     * nameMatches are the ids the name index resolved the search to, or
+     * null to match first and last names with LIKE.
+     */
+    public Specification<Doctor> toSpecification(long[] nameMatches) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (hasSearch()) {
+                predicates.add(nameMatches != null
+                        ? Filters.idIn(cb, root.get("id"), nameMatches)
+                        : cb.or(Filters.containsIgnoreCase(cb, root.get("firstname"), search),
+                                Filters.containsIgnoreCase(cb, root.get("lastname"), search)));
+            }
+            // Plain equality keeps the status index usable; MySQL's default collation already ignores case
+            if (Filters.hasText(status)) {
+                predicates.add(cb.equal(root.get("status"), status.trim()));
+            }
+            if (hospitalId != null) {
+                predicates.add(cb.equal(root.get("hospital").get("id"), hospitalId));
+            }
+            if (specializationId != null) {
+                predicates.add(cb.equal(root.get("specialization").get("id"), specializationId));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
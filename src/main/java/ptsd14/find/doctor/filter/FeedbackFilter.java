@@ -0,0 +1,75 @@
+package ptsd14.find.doctor.filter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.ArchivedFeedback;
+import ptsd14.find.doctor.model.Feedback;
+
+/**
+ * Optional criteria for the feedback list, combined into one query. Ratings
+ * outside 1-5 are ignored; the date range applies to createdAt, from
+ * inclusive and to exclusive. The same criteria select archived feedback.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class FeedbackFilter {
+
+    private final String search;
+    private final Integer rating;
+    private final Long doctorId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public Specification<Feedback> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (Filters.hasText(search)) {
+                predicates.add(Filters.containsIgnoreCase(cb, root.get("comment"), search));
+            }
+            if (rating != null && rating >= 1 && rating <= 5) {
+                predicates.add(cb.equal(root.get("rating"), rating));
+            }
+            if (doctorId != null) {
+                predicates.add(cb.equal(root.get("appointment").get("doctor").get("id"), doctorId));
+            }
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), to));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+
+    public Specification<ArchivedFeedback> toArchivedSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (Filters.hasText(search)) {
+                predicates.add(Filters.containsIgnoreCase(cb, root.get("comment"), search));
+            }
+            if (rating != null && rating >= 1 && rating <= 5) {
+                predicates.add(cb.equal(root.get("rating"), rating));
+            }
+            if (doctorId != null) {
+                predicates.add(cb.equal(root.get("doctorId"), doctorId));
+            }
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), to));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
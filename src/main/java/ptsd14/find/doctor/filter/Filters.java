@@ -0,0 +1,42 @@
+package ptsd14.find.doctor.filter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+/**
+ * Predicate helpers shared by the filter classes.
+ */
+final class Filters {
+
+    private Filters() {
+    }
+
+    static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    static Predicate containsIgnoreCase(CriteriaBuilder cb, Expression<String> path, String term) {
+        String escaped = term.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return cb.like(cb.lower(path), "%" + escaped + "%", '\\');
+    }
+
+    // Ids resolved by an in-memory index; an empty set matches nothing instead of rendering "IN ()"
+    static Predicate idIn(CriteriaBuilder cb, Expression<Long> path, long[] ids) {
+        if (ids.length == 0) {
+            return cb.disjunction();
+        }
+        return path.in(Arrays.stream(ids).boxed().toList());
+    }
+
+    static Predicate and(CriteriaBuilder cb, List<Predicate> predicates) {
+        return cb.and(predicates.toArray(Predicate[]::new));
+    }
+}
@@ -0,0 +1,52 @@
+package ptsd14.find.doctor.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.Patient;
+
+/**
+ * Optional criteria for the patient list, combined into one query.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class PatientFilter {
+
+    private final String search;
+    private final String status;
+
+    public boolean hasSearch() {
+        return Filters.hasText(search);
+    }
+
+    public boolean isSearchOnly() {
+        return hasSearch() && !Filters.hasText(status);
+    }
+
+    /**
+     * nameMatches are the ids the name index resolved the search to, or
+     * null to match first and last names with LIKE.
+     */
+    public Specification<Patient> toSpecification(long[] nameMatches) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (hasSearch()) {
+                predicates.add(nameMatches != null
+                        ? Filters.idIn(cb, root.get("id"), nameMatches)
+                        : cb.or(Filters.containsIgnoreCase(cb, root.get("firstname"), search),
+                                Filters.containsIgnoreCase(cb, root.get("lastname"), search)));
+            }
+            if (Filters.hasText(status)) {
+                predicates.add(cb.equal(root.get("status"), status.trim()));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
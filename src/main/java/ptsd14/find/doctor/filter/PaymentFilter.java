@@ -0,0 +1,70 @@
+package ptsd14.find.doctor.filter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.Payment;
+
+/**
+ * Optional criteria for the payment list, combined into one query. The
+ * search matches patient or doctor names; the date range applies to paidAt,
+ * from inclusive and to exclusive.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class PaymentFilter {
+
+    private final String search;
+    private final String status;
+    private final Long doctorId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    public boolean hasSearch() {
+        return Filters.hasText(search);
+    }
+
+    /**
+     * patientMatches and doctorMatches are the ids the name index resolved
+     * the search to, or null to match names with LIKE.
+     */
+    public Specification<Payment> toSpecification(long[] patientMatches, long[] doctorMatches) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            Join<Payment, Appointment> appointment = root.join("appointment");
+            if (hasSearch()) {
+                if (patientMatches != null && doctorMatches != null) {
+                    predicates.add(cb.or(Filters.idIn(cb, appointment.get("patient").get("id"), patientMatches),
+                            Filters.idIn(cb, appointment.get("doctor").get("id"), doctorMatches)));
+                } else {
+                    predicates.add(cb.or(
+                            Filters.containsIgnoreCase(cb, appointment.join("patient").get("firstname"), search),
+                            Filters.containsIgnoreCase(cb, appointment.join("doctor").get("firstname"), search)));
+                }
+            }
+            if (Filters.hasText(status)) {
+                predicates.add(cb.equal(root.get("paymentStatus"), status.trim()));
+            }
+            if (doctorId != null) {
+                predicates.add(cb.equal(appointment.get("doctor").get("id"), doctorId));
+            }
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("paidAt"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("paidAt"), to));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package ptsd14.find.doctor.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import jakarta.persistence.criteria.Predicate;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ptsd14.find.doctor.model.User;
+
+/**
+ * Optional criteria for the user list, combined into one query. The role
+ * is matched by name through the join, so an unknown role yields an empty page.
+ */
+@Getter
+@Builder
+@EqualsAndHashCode
+public class UserFilter {
+
+    private final String search;
+    private final String role;
+
+    public Specification<User> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (Filters.hasText(search)) {
+                predicates.add(Filters.containsIgnoreCase(cb, root.get("email"), search));
+            }
+            if (Filters.hasText(role)) {
+                predicates.add(cb.equal(root.get("role").get("name"), role.trim()));
+            }
+            return Filters.and(cb, predicates);
+        };
+    }
+}
@@ -0,0 +1,250 @@
+package ptsd14.find.doctor.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory per-doctor index of booked time ranges. Bookings are kept in a
+ * sorted set ordered by start time, so conflict checks and availability reads
+ * are range lookups that never go to MySQL.
+ * <p>
+ * Each node only hears about its own bookings and cancellations, so the index
+ * is advisory: a conflict it reports is confirmed against the database with
+ * {@link #hasConfirmedConflict} before a booking is turned away.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DoctorAvailabilityIndex {
+
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+
+    private final AppointmentRepository appointmentRepository;
+
+    private final Map<Long, DoctorSchedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Long, Long> doctorByAppointment = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        List<Object[]> rows = appointmentRepository.findBookedSlotsFrom(from, AppointmentStatus.CANCELED);
+        for (Object[] row : rows) {
+            book((Long) row[0], (Long) row[1], (LocalDateTime) row[2], (Integer) row[3]);
+        }
+        log.info("Availability index loaded with {} bookings for {} doctors", rows.size(), schedules.size());
+    }
+
+    public boolean hasConflict(Long doctorId, LocalDateTime start, LocalDateTime end, Long excludeAppointmentId) {
+        DoctorSchedule schedule = schedules.get(doctorId);
+        return schedule != null && schedule.hasConflict(start, end, excludeAppointmentId);
+    }
+
+    /**
+     * Like {@link #hasConflict}, but a conflict seen in memory is re-read from
+     * the database first. A slot freed on another node would otherwise stay
+     * blocked here, so the doctor's schedule is reloaded and answered from that.
+     */
+    public boolean hasConfirmedConflict(Long doctorId, LocalDateTime start, LocalDateTime end, Long excludeAppointmentId) {
+        if (!hasConflict(doctorId, start, end, excludeAppointmentId)) {
+            return false;
+        }
+        DoctorSchedule schedule = reloadDoctor(doctorId);
+        return schedule.hasConflict(start, end, excludeAppointmentId);
+    }
+
+    public List<Booking> getBookings(Long doctorId, LocalDateTime from, LocalDateTime to) {
+        DoctorSchedule schedule = schedules.get(doctorId);
+        return schedule != null ? schedule.overlapping(from, to) : List.of();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.getAppointmentId() == null) {
+            return;
+        }
+        // Confirming or completing does not move the slot
+        if (event.getAction() == AppointmentChangedEvent.Action.STATUS_CHANGED
+                && event.getStatus() != AppointmentStatus.CANCELED) {
+            return;
+        }
+        release(event.getAppointmentId());
+
+        if (event.getAction() != AppointmentChangedEvent.Action.DELETED
+                && event.getStatus() != AppointmentStatus.CANCELED
+                && event.getDoctorId() != null
+                && event.getDateTime() != null) {
+            book(event.getAppointmentId(), event.getDoctorId(), event.getDateTime(), event.getDurationMinutes());
+        }
+    }
+
+    // Drop bookings that have already ended so the sets only hold upcoming slots
+    @Scheduled(cron = "0 0 * * * *")
+    public void evictPast() {
+        LocalDateTime now = LocalDateTime.now();
+        schedules.values().forEach(schedule ->
+            schedule.removeEndedBefore(now).forEach(doctorByAppointment::remove));
+    }
+
+    // Replaces one doctor's bookings with what the database holds now. A booking event
+    // landing between the read and the swap may be lost; that only weakens the early
+    // check, the overlap query under the doctor lock still sees it
+    private DoctorSchedule reloadDoctor(Long doctorId) {
+        DoctorSchedule fresh = new DoctorSchedule();
+        for (Object[] row : appointmentRepository.findDoctorBookedSlotsFrom(
+                doctorId, LocalDateTime.now().minusDays(1), AppointmentStatus.CANCELED)) {
+            int minutes = row[2] != null && (Integer) row[2] > 0 ? (Integer) row[2] : DEFAULT_DURATION_MINUTES;
+            LocalDateTime start = (LocalDateTime) row[1];
+            fresh.add(new Booking((Long) row[0], start, start.plusMinutes(minutes)), minutes);
+        }
+        DoctorSchedule previous = schedules.put(doctorId, fresh);
+        if (previous != null) {
+            previous.appointmentIds().forEach(id -> doctorByAppointment.remove(id, doctorId));
+        }
+        fresh.appointmentIds().forEach(id -> doctorByAppointment.put(id, doctorId));
+        log.debug("Reloaded {} bookings for doctor {}", fresh.appointmentIds().size(), doctorId);
+        return fresh;
+    }
+
+    private void book(Long appointmentId, Long doctorId, LocalDateTime start, Integer durationMinutes) {
+        int minutes = durationMinutes != null && durationMinutes > 0 ? durationMinutes : DEFAULT_DURATION_MINUTES;
+        Booking booking = new Booking(appointmentId, start, start.plusMinutes(minutes));
+        schedules.computeIfAbsent(doctorId, id -> new DoctorSchedule()).add(booking, minutes);
+        doctorByAppointment.put(appointmentId, doctorId);
+    }
+
+    private void release(Long appointmentId) {
+        Long doctorId = doctorByAppointment.remove(appointmentId);
+        if (doctorId != null) {
+            DoctorSchedule schedule = schedules.get(doctorId);
+            if (schedule != null) {
+                schedule.remove(appointmentId);
+            }
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Booking {
+        private final Long appointmentId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+    }
+
+    private static final Comparator<Booking> BY_START = Comparator
+        .comparing(Booking::getStart)
+        .thenComparing(Booking::getAppointmentId);
+
+    private static class DoctorSchedule {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final NavigableSet<Booking> bookings = new TreeSet<>(BY_START);
+        private final Map<Long, Booking> byAppointment = new ConcurrentHashMap<>();
+        // Longest booking seen, so a range scan starting this far back catches every overlap
+        private int maxDurationMinutes = DEFAULT_DURATION_MINUTES;
+
+        void add(Booking booking, int minutes) {
+            lock.writeLock().lock();
+            try {
+                bookings.add(booking);
+                byAppointment.put(booking.getAppointmentId(), booking);
+                maxDurationMinutes = Math.max(maxDurationMinutes, minutes);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long appointmentId) {
+            lock.writeLock().lock();
+            try {
+                Booking booking = byAppointment.remove(appointmentId);
+                if (booking != null) {
+                    bookings.remove(booking);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Long> appointmentIds() {
+            return new ArrayList<>(byAppointment.keySet());
+        }
+
+        List<Long> removeEndedBefore(LocalDateTime time) {
+            List<Long> removed = new ArrayList<>();
+            lock.writeLock().lock();
+            try {
+                NavigableSet<Booking> head = bookings.headSet(probe(time), false);
+                for (Booking booking : head) {
+                    if (booking.getEnd().isBefore(time)) {
+                        removed.add(booking.getAppointmentId());
+                    }
+                }
+                removed.forEach(id -> bookings.remove(byAppointment.remove(id)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return removed;
+        }
+
+        boolean hasConflict(LocalDateTime start, LocalDateTime end, Long excludeAppointmentId) {
+            lock.readLock().lock();
+            try {
+                for (Booking booking : candidates(start, end)) {
+                    if (booking.getEnd().isAfter(start)
+                            && !booking.getAppointmentId().equals(excludeAppointmentId)) {
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        List<Booking> overlapping(LocalDateTime from, LocalDateTime to) {
+            lock.readLock().lock();
+            try {
+                List<Booking> result = new ArrayList<>();
+                for (Booking booking : candidates(from, to)) {
+                    if (booking.getEnd().isAfter(from)) {
+                        result.add(booking);
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Bookings starting in [start - maxDuration, end); only these can overlap [start, end)
+        private NavigableSet<Booking> candidates(LocalDateTime start, LocalDateTime end) {
+            return bookings.subSet(probe(start.minusMinutes(maxDurationMinutes)), true, probe(end), false);
+        }
+
+        private static Booking probe(LocalDateTime time) {
+            return new Booking(Long.MIN_VALUE, time, time);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ptsd14.find.doctor.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.dto.DoctorDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.event.DoctorRatingChangedEvent;
+import ptsd14.find.doctor.mapper.DoctorMapper;
+import ptsd14.find.doctor.model.Doctor;
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+import ptsd14.find.doctor.repository.DoctorRatingAggregateRepository;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+import ptsd14.find.doctor.service.DoctorRatingService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory ranking of doctors by average rating, fed from the rating
+ * aggregates. The top-rated list is a cached snapshot rebuilt only after a
+ * rating or doctor change, so reads never touch the feedbacks table.
+ * <p>
+ * Changes to the entries and ranking, invalidations and snapshot publishing
+ * all happen under one lock. Each change bumps a generation, and a snapshot
+ * is only published if no change happened while it was being built.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DoctorRatingIndex {
+
+    public static final int MAX_TOP = 50;
+
+    private static final Comparator<RatingEntry> BY_RANK = Comparator
+        .comparingDouble(RatingEntry::getAverage).reversed()
+        .thenComparing(Comparator.comparingLong(RatingEntry::getCount).reversed())
+        .thenComparing(RatingEntry::getDoctorId);
+
+    private final DoctorRatingAggregateRepository aggregateRepository;
+    private final FeedbackRepository feedbackRepository;
+    private final DoctorRatingService ratingService;
+    private final DoctorRepository doctorRepository;
+    private final DoctorMapper doctorMapper;
+
+    private final Map<Long, RatingEntry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<RatingEntry> ranking = new ConcurrentSkipListSet<>(BY_RANK);
+    private final Object lock = new Object();
+    // null means a rating or doctor changed and the list must be rebuilt on next read
+    private volatile List<DoctorDto> topSnapshot;
+    // Guarded by lock
+    private long generation;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (aggregateRepository.count() == 0 && feedbackRepository.count() > 0) {
+            // First start with aggregates: backfill from existing feedbacks
+            ratingService.rebuildAll();
+        }
+        reloadAll();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRatingChanged(DoctorRatingChangedEvent event) {
+        if (event.getDoctorId() == null) {
+            reloadAll();
+            return;
+        }
+        synchronized (lock) {
+            // Read under the lock so the last change applied is the latest committed one
+            Optional<DoctorRatingAggregate> aggregate = aggregateRepository.findById(event.getDoctorId());
+            if (aggregate.isPresent()) {
+                put(aggregate.get());
+            } else {
+                remove(event.getDoctorId());
+            }
+            invalidate();
+        }
+    }
+
+    // Doctor names, hospitals or specializations in the cached list may be stale
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DirectoryChangedEvent event) {
+        if (event.getKind() != DirectoryChangedEvent.Kind.PATIENT) {
+            synchronized (lock) {
+                invalidate();
+            }
+        }
+    }
+
+    public List<DoctorDto> getTopRated(int limit) {
+        List<DoctorDto> snapshot = topSnapshot;
+        if (snapshot == null) {
+            snapshot = rebuildSnapshot();
+        }
+        return snapshot.subList(0, Math.min(Math.max(limit, 0), snapshot.size()));
+    }
+
+    public Optional<RatingEntry> get(Long doctorId) {
+        return Optional.ofNullable(entries.get(doctorId));
+    }
+
+    public List<Long> getRatedDoctorIds() {
+        return entries.values().stream()
+            .filter(entry -> entry.getCount() > 0)
+            .map(RatingEntry::getDoctorId)
+            .toList();
+    }
+
+    public long getTotalCount() {
+        return entries.values().stream().mapToLong(RatingEntry::getCount).sum();
+    }
+
+    public double getOverallAverage() {
+        long count = getTotalCount();
+        long sum = entries.values().stream().mapToLong(RatingEntry::getSum).sum();
+        return count > 0 ? (double) sum / count : 0.0;
+    }
+
+    private void reloadAll() {
+        List<DoctorRatingAggregate> aggregates = aggregateRepository.findAll();
+        synchronized (lock) {
+            entries.clear();
+            ranking.clear();
+            aggregates.forEach(this::put);
+            invalidate();
+        }
+        log.info("Rating index loaded for {} doctors", entries.size());
+    }
+
+    // Callers hold the lock
+    private void invalidate() {
+        generation++;
+        topSnapshot = null;
+    }
+
+    // Callers hold the lock, so one doctor never has two entries in the ranking
+    private void put(DoctorRatingAggregate aggregate) {
+        RatingEntry entry = new RatingEntry(aggregate.getDoctorId(), aggregate.getRatingCount(),
+            aggregate.getRatingSum(), aggregate.getAverage());
+        RatingEntry previous = entries.put(entry.getDoctorId(), entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(entry);
+    }
+
+    private void remove(Long doctorId) {
+        RatingEntry previous = entries.remove(doctorId);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+    }
+
+    private synchronized List<DoctorDto> rebuildSnapshot() {
+        long builtFrom;
+        List<RatingEntry> top = new ArrayList<>(MAX_TOP);
+        synchronized (lock) {
+            if (topSnapshot != null) {
+                return topSnapshot;
+            }
+            builtFrom = generation;
+            for (RatingEntry entry : ranking) {
+                if (top.size() == MAX_TOP) {
+                    break;
+                }
+                if (entry.getCount() > 0) {
+                    top.add(entry);
+                }
+            }
+        }
+
+        Map<Long, Doctor> doctors = doctorRepository.findByIdIn(top.stream().map(RatingEntry::getDoctorId).toList())
+            .stream()
+            .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+
+        List<DoctorDto> snapshot = new ArrayList<>(top.size());
+        for (RatingEntry entry : top) {
+            Doctor doctor = doctors.get(entry.getDoctorId());
+            if (doctor == null) {
+                continue;
+            }
+            DoctorDto dto = doctorMapper.toDto(doctor);
+            dto.setTotalFeedbacks((int) entry.getCount());
+            dto.setAverageRating(entry.getAverage());
+            snapshot.add(dto);
+        }
+        List<DoctorDto> result = List.copyOf(snapshot);
+        synchronized (lock) {
+            // A change while we loaded the doctors invalidated this list; serve it once, cache nothing
+            if (generation == builtFrom) {
+                topSnapshot = result;
+            }
+        }
+        return result;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RatingEntry {
+        private final Long doctorId;
+        private final long count;
+        private final long sum;
+        private final double average;
+    }
+}
@@ -0,0 +1,422 @@
+package ptsd14.find.doctor.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.event.FeedbackChangedEvent;
+import ptsd14.find.doctor.repository.ArchivedFeedbackRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over feedback comments with BM25 ranking.
+ * Comments are lower-cased, stripped of accents and split on anything that
+ * is not a letter or digit; there is no stemming. Each feedback gets a dense
+ * ordinal so scoring accumulates into a flat array, and rating and doctor
+ * filters are array lookups. Updates retire the old ordinal and append a new
+ * one; when too many ordinals are dead, the index is rebuilt from the tables
+ * on a background thread.
+ * Archived feedback keeps its id, so it stays indexed when it moves to the
+ * archive table.
+ * <p>
+ * Feedback written through other nodes is picked up by a periodic reconcile
+ * that re-reads rows created or updated since its last run. When the index
+ * and the two tables disagree on the number of comments, something was
+ * deleted elsewhere and the index is rebuilt.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FeedbackSearchIndex {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    private static final int LOAD_CHUNK = 10_000;
+    private static final int MIN_DEAD_FOR_REBUILD = 10_000;
+    // Timestamps are set before commit, so a row can show up later than it claims
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(5);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "so", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "were", "will", "with");
+
+    private final FeedbackRepository feedbackRepository;
+    private final ArchivedFeedbackRepository archivedFeedbackRepository;
+
+    private volatile Segment current = new Segment();
+    private volatile boolean ready;
+    // Non-null while rebuild() loads a replacement; live changes are applied to both
+    private Segment building;
+    private Set<Long> removedWhileBuilding;
+    // Feedback created or updated at or after this is re-read by the next reconcile
+    private volatile LocalDateTime watermark;
+    // Rebuilds run here, never on the thread that committed the change or on the scheduler
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feedback-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        watermark = LocalDateTime.now().minus(WATERMARK_OVERLAP);
+        rebuild();
+        ready = true;
+    }
+
+    /**
+     * Applies feedback committed through other nodes since the last run.
+     */
+    @Scheduled(fixedDelayString = "${app.search.feedback-reconcile-ms:60000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime next = LocalDateTime.now().minus(WATERMARK_OVERLAP);
+        List<Object[]> rows = feedbackRepository.findSearchRowsChangedSince(watermark);
+        int live;
+        synchronized (this) {
+            for (Object[] row : rows) {
+                apply(current, (Long) row[0], List.<Object[]>of(row));
+                if (building != null) {
+                    apply(building, (Long) row[0], List.<Object[]>of(row));
+                }
+            }
+            live = current.live;
+        }
+        watermark = next;
+
+        // Deletes leave no timestamp behind; a count that no longer matches means one happened elsewhere
+        long stored = feedbackRepository.count() + archivedFeedbackRepository.count();
+        if (live != stored) {
+            log.info("Feedback search index holds {} comments but the tables have {}, rebuilding", live, stored);
+            rebuildInBackground();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        List<Object[]> rows = event.isDeleted() ? List.of() : feedbackRepository.findSearchRow(event.getFeedbackId());
+        boolean compact;
+        synchronized (this) {
+            apply(current, event.getFeedbackId(), rows);
+            if (building != null) {
+                apply(building, event.getFeedbackId(), rows);
+                if (rows.isEmpty()) {
+                    removedWhileBuilding.add(event.getFeedbackId());
+                }
+            }
+            compact = building == null && current.dead > Math.max(current.live, MIN_DEAD_FOR_REBUILD);
+        }
+        if (compact) {
+            rebuildInBackground();
+        }
+    }
+
+    private void rebuildInBackground() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private static void apply(Segment segment, Long id, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            segment.remove(id);
+        } else {
+            Object[] row = rows.get(0);
+            segment.put(id, (Long) row[1], (Integer) row[2], (String) row[3]);
+        }
+    }
+
+    /**
+     * Reloads every comment of both tiers into a fresh segment and swaps it
+     * in. Changes that arrive meanwhile go to both segments and win over
+     * loaded rows.
+     */
+    public void rebuild() {
+        Segment next = new Segment();
+        synchronized (this) {
+            if (building != null) {
+                return;
+            }
+            building = next;
+            removedWhileBuilding = new HashSet<>();
+        }
+        long start = System.currentTimeMillis();
+        try {
+            load(next, feedbackRepository::findSearchRowsAfter);
+            load(next, archivedFeedbackRepository::findSearchRowsAfter);
+
+            synchronized (this) {
+                current = next;
+            }
+            log.info("Feedback search index built for {} comments in {} ms", next.live, System.currentTimeMillis() - start);
+        } finally {
+            synchronized (this) {
+                building = null;
+                removedWhileBuilding = null;
+            }
+        }
+    }
+
+    private void load(Segment next, BiFunction<Long, Pageable, List<Object[]>> chunks) {
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = chunks.apply(afterId, PageRequest.of(0, LOAD_CHUNK));
+            synchronized (this) {
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    if (!next.contains(id) && !removedWhileBuilding.contains(id)) {
+                        next.put(id, (Long) row[1], (Integer) row[2], (String) row[3]);
+                    }
+                }
+            }
+            if (!rows.isEmpty()) {
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } while (rows.size() == LOAD_CHUNK);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Ranks comments against the query and returns the requested window of
+     * hits, best first, with the total number of matching comments.
+     */
+    public Hits search(String query, Integer rating, Long doctorId, int offset, int limit) {
+        List<String> terms = new ArrayList<>(termFrequencies(query).keySet());
+        if (terms.isEmpty()) {
+            return new Hits(0, List.of(), List.of());
+        }
+        return current.search(terms, rating, doctorId, offset, limit);
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        for (String token : NON_WORD.split(normalize(text))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Hits {
+        private final long total;
+        private final List<Long> ids;
+        private final List<Float> scores;
+    }
+
+    /**
+     * One generation of the index. Ordinals are only ever appended; removed
+     * ones are flagged dead and skipped while scoring.
+     */
+    static final class Segment {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Integer> ordinalById = new HashMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private long[] ids = new long[1024];
+        private long[] doctorIds = new long[1024];
+        private byte[] ratings = new byte[1024];
+        private int[] lengths = new int[1024];
+        private boolean[] deadFlags = new boolean[1024];
+        private int size;
+        private long totalLength;
+        private int live;
+        private int dead;
+
+        boolean contains(Long id) {
+            lock.readLock().lock();
+            try {
+                return ordinalById.containsKey(id);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(Long id, Long doctorId, Integer rating, String comment) {
+            Map<String, Integer> frequencies = termFrequencies(comment);
+            lock.writeLock().lock();
+            try {
+                retire(id);
+                if (size == ids.length) {
+                    int capacity = size + (size >> 1);
+                    ids = Arrays.copyOf(ids, capacity);
+                    doctorIds = Arrays.copyOf(doctorIds, capacity);
+                    ratings = Arrays.copyOf(ratings, capacity);
+                    lengths = Arrays.copyOf(lengths, capacity);
+                    deadFlags = Arrays.copyOf(deadFlags, capacity);
+                }
+                int ordinal = size++;
+                int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+                ids[ordinal] = id;
+                doctorIds[ordinal] = doctorId != null ? doctorId : -1;
+                ratings[ordinal] = rating != null ? rating.byteValue() : 0;
+                lengths[ordinal] = length;
+                ordinalById.put(id, ordinal);
+                totalLength += length;
+                live++;
+                frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, tf));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                retire(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void retire(Long id) {
+            Integer ordinal = ordinalById.remove(id);
+            if (ordinal != null) {
+                deadFlags[ordinal] = true;
+                totalLength -= lengths[ordinal];
+                live--;
+                dead++;
+            }
+        }
+
+        Hits search(List<String> terms, Integer rating, Long doctorId, int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                if (live == 0) {
+                    return new Hits(0, List.of(), List.of());
+                }
+                float averageLength = Math.max(1f, (float) totalLength / live);
+                float[] scores = new float[size];
+                int[] touched = new int[Math.min(size, 1024)];
+                int touchedCount = 0;
+
+                for (String term : terms) {
+                    Postings list = postings.get(term);
+                    if (list == null) {
+                        continue;
+                    }
+                    // Document frequency includes dead ordinals; close enough between rebuilds
+                    double idf = Math.log(1 + (live - list.size + 0.5) / (list.size + 0.5));
+                    for (int i = 0; i < list.size; i++) {
+                        int ordinal = list.ordinals[i];
+                        if (deadFlags[ordinal]
+                                || (rating != null && ratings[ordinal] != rating)
+                                || (doctorId != null && doctorIds[ordinal] != doctorId)) {
+                            continue;
+                        }
+                        float tf = list.frequencies[i];
+                        float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                        if (scores[ordinal] == 0f) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = ordinal;
+                        }
+                        scores[ordinal] += (float) (idf * tf * (K1 + 1) / (tf + norm));
+                    }
+                }
+
+                int wanted = offset + limit;
+                PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, Math.min(wanted, touchedCount)),
+                        (a, b) -> scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Long.compare(ids[a], ids[b]));
+                for (int i = 0; i < touchedCount; i++) {
+                    top.offer(touched[i]);
+                    if (top.size() > wanted) {
+                        top.poll();
+                    }
+                }
+                List<Integer> ranked = new ArrayList<>(top);
+                ranked.sort((a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : Long.compare(ids[b], ids[a]));
+
+                List<Long> pageIds = new ArrayList<>();
+                List<Float> pageScores = new ArrayList<>();
+                for (int i = offset; i < ranked.size(); i++) {
+                    pageIds.add(ids[ranked.get(i)]);
+                    pageScores.add(scores[ranked.get(i)]);
+                }
+                return new Hits(touchedCount, pageIds, pageScores);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Ordinals containing a term with its frequency. Ordinals only grow, so
+     * postings stay sorted by plain appends.
+     */
+    static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                int capacity = size + (size >> 1) + 1;
+                ordinals = Arrays.copyOf(ordinals, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package ptsd14.find.doctor.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.PatientRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory trigram index over doctor and patient first and last names, so
+ * "name contains" searches resolve to id sets without scanning the tables.
+ * A query's trigrams are intersected starting from the rarest, and the few
+ * survivors are checked against the stored names; callers then fetch the
+ * matching rows with one IN query. Queries shorter than a trigram return
+ * null and callers fall back to the LIKE queries.
+ * <p>
+ * Local changes arrive as events. Changes made through other nodes are picked
+ * up by a periodic reconcile: rows created or updated since the last run are
+ * re-read, and when a table's row count no longer matches the index, ids
+ * that are gone from the table are swept out.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NameTrigramIndex {
+
+    public static final int GRAM = 3;
+    // Above this many matches an IN list costs more than the LIKE scan it replaces
+    public static final int MAX_IN_IDS = 10_000;
+    private static final int LOAD_CHUNK = 10_000;
+    // Timestamps are set before commit, so a row can show up later than it claims
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(5);
+
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+
+    private final Trigrams doctors = new Trigrams();
+    private final Trigrams patients = new Trigrams();
+    private volatile boolean ready;
+    // Rows created or updated at or after this are re-read by the next reconcile
+    private volatile LocalDateTime watermark;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        watermark = LocalDateTime.now().minus(WATERMARK_OVERLAP);
+        int doctorCount = load(doctors, doctorRepository::findNameRowsAfter);
+        int patientCount = load(patients, patientRepository::findNameRowsAfter);
+        ready = true;
+        log.info("Name index loaded for {} doctors and {} patients in {} ms",
+                doctorCount, patientCount, System.currentTimeMillis() - start);
+    }
+
+    private static int load(Trigrams trigrams, BiFunction<Long, Pageable, List<Object[]>> chunkAfter) {
+        int count = 0;
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = chunkAfter.apply(afterId, PageRequest.of(0, LOAD_CHUNK));
+            for (Object[] row : rows) {
+                trigrams.put((Long) row[0], (String) row[1], (String) row[2]);
+                afterId = (Long) row[0];
+            }
+            count += rows.size();
+        } while (rows.size() == LOAD_CHUNK);
+        return count;
+    }
+
+    /**
+     * Applies changes committed through other nodes since the last run.
+     */
+    @Scheduled(fixedDelayString = "${app.search.name-reconcile-ms:60000}")
+    public void reconcile() {
+        if (!ready) {
+            return;
+        }
+        LocalDateTime since = watermark;
+        LocalDateTime next = LocalDateTime.now().minus(WATERMARK_OVERLAP);
+        int changed = reconcile(doctors, doctorRepository.findNameRowsChangedSince(since),
+                doctorRepository::count, doctorRepository::findNameRowsAfter);
+        changed += reconcile(patients, patientRepository.findNameRowsChangedSince(since),
+                patientRepository::count, patientRepository::findNameRowsAfter);
+        watermark = next;
+        if (changed > 0) {
+            log.info("Name index reconciled {} rows changed elsewhere", changed);
+        }
+    }
+
+    private static int reconcile(Trigrams trigrams, List<Object[]> changedRows, LongSupplier count,
+                                 BiFunction<Long, Pageable, List<Object[]>> chunkAfter) {
+        for (Object[] row : changedRows) {
+            trigrams.put((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        if (trigrams.size() == count.getAsLong()) {
+            return changedRows.size();
+        }
+
+        // Deletes leave no timestamp behind, so compare the ids against the table
+        Set<Long> present = new HashSet<>();
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = chunkAfter.apply(afterId, PageRequest.of(0, LOAD_CHUNK));
+            for (Object[] row : rows) {
+                trigrams.put((Long) row[0], (String) row[1], (String) row[2]);
+                present.add((Long) row[0]);
+                afterId = (Long) row[0];
+            }
+        } while (rows.size() == LOAD_CHUNK);
+        // Ids above the last one read may have been inserted after the sweep passed them
+        return changedRows.size() + trigrams.retainOnly(present, afterId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DirectoryChangedEvent event) {
+        switch (event.getKind()) {
+            case DOCTOR -> refresh(doctors, event, doctorRepository::findNameRow);
+            case PATIENT -> refresh(patients, event, patientRepository::findNameRow);
+            default -> { }
+        }
+    }
+
+    private static void refresh(Trigrams trigrams, DirectoryChangedEvent event, Function<Long, List<Object[]>> lookup) {
+        List<Object[]> rows = event.isDeleted() ? List.of() : lookup.apply(event.getId());
+        if (rows.isEmpty()) {
+            trigrams.remove(event.getId());
+        } else {
+            Object[] row = rows.get(0);
+            trigrams.put((Long) row[0], (String) row[1], (String) row[2]);
+        }
+    }
+
+    /**
+     * Ids of doctors whose first or last name contains the query, ascending,
+     * or null when the index cannot answer it.
+     */
+    public long[] searchDoctors(String query) {
+        return ready ? doctors.search(query) : null;
+    }
+
+    /**
+     * Ids of patients whose first or last name contains the query, ascending,
+     * or null when the index cannot answer it.
+     */
+    public long[] searchPatients(String query) {
+        return ready ? patients.search(query) : null;
+    }
+
+    /**
+     * Cuts the requested page out of ascending match ids when the page is
+     * ordered by id alone (or not at all). Returns null for other orderings,
+     * which the database has to sort.
+     */
+    public static List<Long> idPage(long[] ids, Pageable pageable) {
+        Sort sort = pageable.getSort();
+        boolean descending = false;
+        if (sort.isSorted()) {
+            List<Sort.Order> orders = sort.toList();
+            if (orders.size() != 1 || !orders.get(0).getProperty().equals("id")) {
+                return null;
+            }
+            descending = orders.get(0).isDescending();
+        }
+        int from = (int) Math.min(pageable.getOffset(), ids.length);
+        int to = Math.min(from + pageable.getPageSize(), ids.length);
+        List<Long> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(descending ? ids[ids.length - 1 - i] : ids[i]);
+        }
+        return page;
+    }
+
+    public static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * One inverted index: trigram to sorted id postings, plus the normalized
+     * names used to verify candidates.
+     */
+    static final class Trigrams {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, String[]> names = new HashMap<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+
+        void put(Long id, String firstname, String lastname) {
+            String[] normalized = { normalize(firstname), normalize(lastname) };
+            lock.writeLock().lock();
+            try {
+                String[] previous = names.put(id, normalized);
+                if (previous != null) {
+                    unindex(id, previous);
+                }
+                for (String name : normalized) {
+                    for (String gram : trigrams(name)) {
+                        postings.computeIfAbsent(gram, g -> new Postings()).add(id);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                String[] previous = names.remove(id);
+                if (previous != null) {
+                    unindex(id, previous);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // Removes indexed ids up to maxId that are not in present; returns how many
+        int retainOnly(Set<Long> present, long maxId) {
+            lock.writeLock().lock();
+            try {
+                List<Long> gone = names.keySet().stream()
+                        .filter(id -> id <= maxId && !present.contains(id))
+                        .toList();
+                for (Long id : gone) {
+                    unindex(id, names.remove(id));
+                }
+                return gone.size();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return names.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void unindex(Long id, String[] previous) {
+            for (String name : previous) {
+                for (String gram : trigrams(name)) {
+                    Postings list = postings.get(gram);
+                    if (list != null && list.remove(id) && list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+
+        long[] search(String query) {
+            String normalized = normalize(query);
+            if (normalized.length() < GRAM) {
+                return null;
+            }
+            lock.readLock().lock();
+            try {
+                List<Postings> lists = new ArrayList<>();
+                for (String gram : trigrams(normalized)) {
+                    Postings list = postings.get(gram);
+                    if (list == null) {
+                        return new long[0];
+                    }
+                    lists.add(list);
+                }
+                lists.sort(Comparator.comparingInt(list -> list.size));
+
+                Postings rarest = lists.get(0);
+                long[] matches = new long[rarest.size];
+                int count = 0;
+                candidates:
+                for (int i = 0; i < rarest.size; i++) {
+                    long id = rarest.ids[i];
+                    for (int j = 1; j < lists.size(); j++) {
+                        if (!lists.get(j).contains(id)) {
+                            continue candidates;
+                        }
+                    }
+                    // Trigrams can match across the two names or out of order, so confirm the substring
+                    String[] name = names.get(id);
+                    if (name[0].contains(normalized) || name[1].contains(normalized)) {
+                        matches[count++] = id;
+                    }
+                }
+                return Arrays.copyOf(matches, count);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Sorted primitive id list. Ids arrive mostly in ascending order, so
+     * appends are the common case.
+     */
+    static final class Postings {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == 0 || ids[size - 1] < id) {
+                grow();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            grow();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package ptsd14.find.doctor.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.dto.SuggestionDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.event.DirectoryChangedEvent.Kind;
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+import ptsd14.find.doctor.repository.DoctorRatingAggregateRepository;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.HospitalRepository;
+import ptsd14.find.doctor.repository.SpecializationRepos;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory typeahead over doctor, hospital and specialization names. Each
+ * name is stored under keys starting at its first few words in one sorted
+ * array, so a prefix is a contiguous range found by binary search, and a
+ * sparse table over the entry weights yields the heaviest keys of that range
+ * without scanning it. Doctors weigh their feedback count, hospitals and
+ * specializations their number of doctors. Weights are recomputed by the
+ * periodic reload.
+ * <p>
+ * Directory changes do not rebuild that array. They go into a small overlay
+ * with its own snapshot, which shadows the changed names in the base and is
+ * merged in at query time. When the overlay grows past its limit, a
+ * background reload folds it into a new base.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TypeaheadIndex {
+
+    public static final int MAX_LIMIT = 20;
+    private static final int LOAD_CHUNK = 10_000;
+    // "hun" should find "Nita Hun", but a long name need not be findable from every word
+    private static final int MAX_WORD_STARTS = 4;
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final DoctorRepository doctorRepository;
+    private final HospitalRepository hospitalRepository;
+    private final SpecializationRepos specializationRepository;
+    private final DoctorRatingAggregateRepository ratingRepository;
+
+    // Source for new snapshots; readers only ever see the published view
+    private final Map<Kind, Map<Long, Entry>> entries = new EnumMap<>(Kind.class);
+    // Non-null while reload() reads the tables; these ids keep their live entry over the loaded one
+    private Map<Kind, Set<Long>> changedWhileLoading;
+    private volatile View view = View.of(Snapshot.of(List.of()), Map.of());
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "typeahead-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.suggest.max-pending-changes:1000}")
+    private int maxPendingChanges = 1000;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    /**
+     * Reloads all names and recomputes their weights.
+     */
+    @Scheduled(cron = "${app.suggest.reload-cron:0 15 * * * *}")
+    public void reload() {
+        synchronized (this) {
+            if (changedWhileLoading != null) {
+                return;
+            }
+            changedWhileLoading = new EnumMap<>(Kind.class);
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Map<Long, Long> feedbackCounts = ratingRepository.findAll().stream()
+                    .collect(Collectors.toMap(DoctorRatingAggregate::getDoctorId, DoctorRatingAggregate::getRatingCount));
+            Map<Long, Long> doctorsPerHospital = new HashMap<>();
+            Map<Long, Long> doctorsPerSpecialization = new HashMap<>();
+            Map<Long, Entry> doctors = new HashMap<>();
+
+            long afterId = 0;
+            List<Object[]> rows;
+            do {
+                rows = doctorRepository.findSuggestRowsAfter(afterId, PageRequest.of(0, LOAD_CHUNK));
+                for (Object[] row : rows) {
+                    Long id = (Long) row[0];
+                    doctors.put(id, new Entry(Kind.DOCTOR, id, doctorName(row), feedbackCounts.getOrDefault(id, 0L)));
+                    if (row[3] != null) {
+                        doctorsPerHospital.merge((Long) row[3], 1L, Long::sum);
+                    }
+                    if (row[4] != null) {
+                        doctorsPerSpecialization.merge((Long) row[4], 1L, Long::sum);
+                    }
+                    afterId = id;
+                }
+            } while (rows.size() == LOAD_CHUNK);
+
+            Map<Long, Entry> hospitals = named(Kind.HOSPITAL, hospitalRepository.findNameRows(), doctorsPerHospital);
+            Map<Long, Entry> specializations = named(Kind.SPECIALIZATION,
+                    specializationRepository.findNameRows(), doctorsPerSpecialization);
+
+            // Sorted outside the lock; names changed meanwhile stay in the overlay, which shadows them
+            List<Entry> loaded = new ArrayList<>(doctors.size() + hospitals.size() + specializations.size());
+            loaded.addAll(doctors.values());
+            loaded.addAll(hospitals.values());
+            loaded.addAll(specializations.values());
+            Snapshot base = Snapshot.of(loaded);
+
+            synchronized (this) {
+                Map<Key, Entry> pending = new HashMap<>();
+                swap(Kind.DOCTOR, doctors, pending);
+                swap(Kind.HOSPITAL, hospitals, pending);
+                swap(Kind.SPECIALIZATION, specializations, pending);
+                view = View.of(base, pending);
+            }
+            log.info("Typeahead index loaded {} names in {} ms", base.size(), System.currentTimeMillis() - start);
+        } finally {
+            synchronized (this) {
+                changedWhileLoading = null;
+            }
+        }
+    }
+
+    private void swap(Kind kind, Map<Long, Entry> loaded, Map<Key, Entry> pending) {
+        Map<Long, Entry> live = entries.getOrDefault(kind, Map.of());
+        for (Long id : changedWhileLoading.getOrDefault(kind, Set.of())) {
+            Entry entry = live.get(id);
+            if (entry != null) {
+                loaded.put(id, entry);
+            } else {
+                loaded.remove(id);
+            }
+            pending.put(new Key(kind, id), entry);
+        }
+        entries.put(kind, loaded);
+    }
+
+    private static Map<Long, Entry> named(Kind kind, List<Object[]> rows, Map<Long, Long> weights) {
+        Map<Long, Entry> byId = new HashMap<>();
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            byId.put(id, new Entry(kind, id, (String) row[1], weights.getOrDefault(id, 0L)));
+        }
+        return byId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DirectoryChangedEvent event) {
+        Kind kind = event.getKind();
+        if (kind == Kind.PATIENT) {
+            return;
+        }
+        Long id = event.getId();
+        List<Object[]> rows = event.isDeleted() ? List.of() : switch (kind) {
+            case DOCTOR -> doctorRepository.findNameRow(id);
+            case HOSPITAL -> hospitalRepository.findNameRow(id);
+            default -> specializationRepository.findNameRow(id);
+        };
+
+        boolean compact;
+        synchronized (this) {
+            Map<Long, Entry> byId = entries.computeIfAbsent(kind, k -> new HashMap<>());
+            Entry entry = null;
+            if (rows.isEmpty()) {
+                byId.remove(id);
+            } else {
+                Object[] row = rows.get(0);
+                String name = kind == Kind.DOCTOR ? doctorName(row) : (String) row[1];
+                Entry previous = byId.get(id);
+                entry = new Entry(kind, id, name, previous != null ? previous.weight : 0L);
+                byId.put(id, entry);
+            }
+            if (changedWhileLoading != null) {
+                changedWhileLoading.computeIfAbsent(kind, k -> new HashSet<>()).add(id);
+            }
+            // Only the overlay is rebuilt, so a write costs the size of the overlay, not of the index
+            Map<Key, Entry> pending = new HashMap<>(view.pending);
+            pending.put(new Key(kind, id), entry);
+            view = View.of(view.base, pending);
+            compact = changedWhileLoading == null && pending.size() > maxPendingChanges;
+        }
+        if (compact) {
+            compactor.execute(this::reload);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+    }
+
+    /**
+     * The most popular names with a word starting with the prefix, at most
+     * limit of them. Never touches the database.
+     */
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int capped = Math.min(limit, MAX_LIMIT);
+        View current = view;
+        List<Entry> changed = current.overlay.top(normalized, capped, entry -> false);
+        List<Entry> stable = current.base.top(normalized, capped,
+                entry -> current.pending.containsKey(new Key(entry.kind, entry.id)));
+
+        // Both lists are heaviest first; merge them the same way
+        List<SuggestionDto> result = new ArrayList<>(capped);
+        int i = 0;
+        int j = 0;
+        while (result.size() < capped && (i < changed.size() || j < stable.size())) {
+            boolean takeChanged = j == stable.size()
+                    || (i < changed.size() && BY_WEIGHT.compare(changed.get(i), stable.get(j)) <= 0);
+            result.add((takeChanged ? changed.get(i++) : stable.get(j++)).toDto());
+        }
+        return result;
+    }
+
+    private static String doctorName(Object[] row) {
+        return row[1] + " " + row[2];
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : SPACES.matcher(FeedbackSearchIndex.normalize(text)).replaceAll(" ").trim();
+    }
+
+    private static final Comparator<Entry> BY_WEIGHT = Comparator
+            .comparingLong((Entry entry) -> entry.weight).reversed()
+            .thenComparing(entry -> normalize(entry.name));
+
+    private record Key(Kind kind, Long id) {
+    }
+
+    /**
+     * What readers see: the base snapshot from the last reload plus the names
+     * changed since. A null value in pending marks a removed name.
+     */
+    private static final class View {
+
+        private final Snapshot base;
+        private final Map<Key, Entry> pending;
+        private final Snapshot overlay;
+
+        private View(Snapshot base, Map<Key, Entry> pending, Snapshot overlay) {
+            this.base = base;
+            this.pending = pending;
+            this.overlay = overlay;
+        }
+
+        static View of(Snapshot base, Map<Key, Entry> pending) {
+            List<Entry> live = pending.values().stream().filter(Objects::nonNull).toList();
+            return new View(base, pending, Snapshot.of(live));
+        }
+    }
+
+    static final class Entry {
+
+        private final Kind kind;
+        private final Long id;
+        private final String name;
+        private final long weight;
+
+        Entry(Kind kind, Long id, String name, long weight) {
+            this.kind = kind;
+            this.id = id;
+            this.name = name;
+            this.weight = weight;
+        }
+
+        SuggestionDto toDto() {
+            return new SuggestionDto(kind.name(), id, name);
+        }
+    }
+
+    /**
+     * Immutable sorted keys with a range-maximum table over their weights.
+     * best[j][i] is the position of the heaviest key in [i, i + 2^j).
+     */
+    static final class Snapshot {
+
+        private final String[] keys;
+        private final Entry[] owners;
+        private final int[][] best;
+
+        private Snapshot(String[] keys, Entry[] owners) {
+            this.keys = keys;
+            this.owners = owners;
+            int n = keys.length;
+            int levels = n == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(n);
+            best = new int[levels][];
+            if (levels > 0) {
+                best[0] = new int[n];
+                for (int i = 0; i < n; i++) {
+                    best[0][i] = i;
+                }
+            }
+            for (int j = 1; j < levels; j++) {
+                int half = 1 << (j - 1);
+                best[j] = new int[n - (1 << j) + 1];
+                for (int i = 0; i < best[j].length; i++) {
+                    best[j][i] = heavier(best[j - 1][i], best[j - 1][i + half]);
+                }
+            }
+        }
+
+        static Snapshot of(Collection<Entry> entries) {
+            List<Map.Entry<String, Entry>> pairs = new ArrayList<>();
+            for (Entry entry : entries) {
+                String[] words = normalize(entry.name).split(" ");
+                for (int i = 0; i < Math.min(words.length, MAX_WORD_STARTS); i++) {
+                    if (!words[i].isEmpty()) {
+                        pairs.add(Map.entry(String.join(" ", List.of(words).subList(i, words.length)), entry));
+                    }
+                }
+            }
+            pairs.sort(Map.Entry.comparingByKey());
+            String[] keys = new String[pairs.size()];
+            Entry[] owners = new Entry[pairs.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = pairs.get(i).getKey();
+                owners[i] = pairs.get(i).getValue();
+            }
+            return new Snapshot(keys, owners);
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        // Heavier weight wins; on a tie the alphabetically first key
+        private int heavier(int a, int b) {
+            long wa = owners[a].weight;
+            long wb = owners[b].weight;
+            return wa != wb ? (wa > wb ? a : b) : Math.min(a, b);
+        }
+
+        private int heaviest(int from, int to) {
+            int j = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+            return heavier(best[j][from], best[j][to - (1 << j) + 1]);
+        }
+
+        // Heaviest entries with a key starting with the prefix, skipping hidden ones
+        List<Entry> top(String prefix, int limit, Predicate<Entry> hidden) {
+            int from = firstAtLeast(prefix);
+            int to = firstWithoutPrefix(prefix, from) - 1;
+            if (from > to) {
+                return List.of();
+            }
+
+            // Best-first over sub-ranges: take the heaviest key, then split its range around it
+            // Ranges are disjoint, so two heads are never the same position
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> heavier(a[2], b[2]) == a[2] ? -1 : 1);
+            ranges.add(new int[]{from, to, heaviest(from, to)});
+            Set<Entry> seen = new HashSet<>();
+            List<Entry> result = new ArrayList<>(limit);
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int position = range[2];
+                if (seen.add(owners[position]) && !hidden.test(owners[position])) {
+                    result.add(owners[position]);
+                }
+                if (range[0] < position) {
+                    ranges.add(new int[]{range[0], position - 1, heaviest(range[0], position - 1)});
+                }
+                if (position < range[1]) {
+                    ranges.add(new int[]{position + 1, range[1], heaviest(position + 1, range[1])});
+                }
+            }
+            return result;
+        }
+
+        private int firstAtLeast(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // Keys with the prefix are contiguous from 'from', so this predicate flips once
+        private int firstWithoutPrefix(String prefix, int from) {
+            int low = from;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].startsWith(prefix)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -5,74 +5,113 @@ import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import ptsd14.find.doctor.model.User;
+
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.security.Key;
 
 @Component
 public class JwtUtil {
 
-    private final String jwtSecret;
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+    public static final String CLAIM_AUTHORITIES = "authorities";
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String TYPE_REFRESH = "refresh";
+
     private final Key key;
+    // Built once; JwtParser is immutable and thread-safe
+    private final JwtParser parser;
     private final int jwtAccessExpirationMs = 1440 * 60 * 1000;
-    private final int jwtRefreshExpirationMs = 30 * 24 * 60 * 60 * 1000; 
+    private final long jwtRefreshExpirationMs = 30L * 24 * 60 * 60 * 1000;
 
     public JwtUtil(@Value("${jwt.secret}") String jwtSecret) {
-        this.jwtSecret = jwtSecret;
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setAllowedClockSkewSeconds(120)
+                .build();
     }
 
-    public String generateAccessToken(String email, String role) {
+    /**
+     * Access tokens carry everything the filter needs to build the principal:
+     * user id, token version and the role plus its permissions.
+     */
+    public String generateAccessToken(User user) {
+        List<String> authorities = new ArrayList<>();
+        authorities.add("ROLE_" + user.getRole().getName());
+        if (user.getRole().getPermissions() != null) {
+            authorities.addAll(user.getRole().getPermissions());
+        }
+
         return Jwts.builder()
-                .setSubject(email)
-                .claim("authorities", "ROLE_" + role)
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
+                .claim(CLAIM_AUTHORITIES, authorities)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtAccessExpirationMs))
-                .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String generateRefreshToken(String email) {
+    /**
+     * Refresh tokens carry the user id and token version too, so revoking a
+     * user's tokens also kills their refresh tokens. The type claim keeps them
+     * from being used as access tokens.
+     */
+    public String generateRefreshToken(User user) {
         return Jwts.builder()
-                .setSubject(email)
+                .setSubject(user.getEmail())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_TOKEN_VERSION, user.getTokenVersion())
+                .claim(CLAIM_TOKEN_TYPE, TYPE_REFRESH)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtRefreshExpirationMs))
-                .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiry and returns the claims in a single
+     * parse. Throws JwtException or IllegalArgumentException when invalid.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    // The claims of a valid refresh token, or null for anything else
+    public Claims parseRefreshToken(String token) {
+        try {
+            Claims claims = parseClaims(token);
+            return isRefreshToken(claims) ? claims : null;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static boolean isRefreshToken(Claims claims) {
+        return TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE, String.class));
+    }
+
     public String getEmailFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
+        return parseClaims(token).getSubject();
     }
 
-    private Claims extractAllClaims(String token) {
-    return Jwts.parserBuilder()
-            .setSigningKey(key)
-            .setAllowedClockSkewSeconds(120)  
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-}
-
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .setAllowedClockSkewSeconds(120) 
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
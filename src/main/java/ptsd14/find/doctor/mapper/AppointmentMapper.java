@@ -21,6 +21,7 @@ public interface AppointmentMapper {
     @Mapping(source = "status", target = "status")
      @Mapping(target = "doctorHospitalName", expression = "java(appointment.getDoctor() != null && appointment.getDoctor().getHospital() != null ? appointment.getDoctor().getHospital().getName() : null)")
     @Mapping(target = "doctorHospitalPhone", expression = "java(appointment.getDoctor() != null && appointment.getDoctor().getHospital() != null ? appointment.getDoctor().getHospital().getPhone() : null)")
+    @Mapping(target = "archived", ignore = true)
     AppointmentDto toDto(Appointment appointment);
     
 
@@ -33,6 +34,7 @@ public interface AppointmentMapper {
     @Mapping(target = "payment", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
     @Mapping(source = "status", target = "status")
     Appointment toEntity(AppointmentDto dto);
 
@@ -3,6 +3,7 @@ package ptsd14.find.doctor.mapper;
 import org.mapstruct.*;
 import ptsd14.find.doctor.dto.FeedbackDto;
 import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.ArchivedFeedback;
 import ptsd14.find.doctor.model.Feedback;
 
 @Mapper(
@@ -13,8 +14,12 @@ public interface FeedbackMapper {
 
     // ENTITY -> DTO
     @Mapping(target = "appointmentId", source = "appointment.id")
+    @Mapping(target = "score", ignore = true)
     FeedbackDto toDto(Feedback feedback);
 
+    @Mapping(target = "score", ignore = true)
+    FeedbackDto toDto(ArchivedFeedback feedback);
+
     // DTO -> ENTITY
     @Mapping(target = "appointment", expression = "java(mapAppointment(feedbackDto.getAppointmentId()))")
     @Mapping(target = "createdAt", ignore = true)
@@ -17,6 +17,7 @@ public interface UserMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "password", ignore = true)
     @Mapping(target = "authorities", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     @Mapping(target = "profilePhotoUrl", source = "profilePhotoUrl")
     User toEntity(UserDto dto);
 
@@ -25,6 +26,7 @@ public interface UserMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "password", ignore = true)
     @Mapping(target = "authorities", ignore = true)
+    @Mapping(target = "tokenVersion", ignore = true)
     @Mapping(target = "role", ignore = true)
     @Mapping(target = "profilePhotoUrl", source = "profilePhotoUrl")
     void updateFromDto(UserDto dto, @MappingTarget User user);
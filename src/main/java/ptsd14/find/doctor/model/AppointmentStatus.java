@@ -1,9 +1,28 @@
 package ptsd14.find.doctor.model;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum AppointmentStatus {
     PENDING,
     CONFIRMED,
     CANCELED,
-    COMPLETED
-}
+    COMPLETED;
 
+    /**
+     * States an appointment may move to this one from. PENDING is only ever
+     * the initial state; CANCELED and COMPLETED are final.
+     */
+    public Set<AppointmentStatus> allowedSources() {
+        return switch (this) {
+            case PENDING -> EnumSet.noneOf(AppointmentStatus.class);
+            case CONFIRMED -> EnumSet.of(PENDING);
+            case CANCELED -> EnumSet.of(PENDING, CONFIRMED);
+            case COMPLETED -> EnumSet.of(CONFIRMED);
+        };
+    }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return target.allowedSources().contains(this);
+    }
+}
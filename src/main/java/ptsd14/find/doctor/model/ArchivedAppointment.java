@@ -0,0 +1,68 @@
+package ptsd14.find.doctor.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Cold-tier copy of a finished appointment, moved out of {@code appointments}
+ * by AppointmentArchiveService. Rows keep their original time-ordered id, so
+ * the table is appended in id order and can be range-partitioned on it.
+ * References are plain ids so archived rows never block deleting a doctor,
+ * patient or type.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "appointments_archive", indexes = {
+    @Index(name = "idx_appointments_archive_patient", columnList = "patient_id, date_time"),
+    @Index(name = "idx_appointments_archive_doctor", columnList = "doctor_id, date_time")
+})
+public class ArchivedAppointment {
+
+    @Id
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "appointment_type_id", nullable = false)
+    private Long appointmentTypeId;
+
+    @Column(name = "date_time", nullable = false)
+    private LocalDateTime dateTime;
+
+    @Column(nullable = false)
+    private String note;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AppointmentStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
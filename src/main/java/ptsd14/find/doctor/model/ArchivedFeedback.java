@@ -0,0 +1,50 @@
+package ptsd14.find.doctor.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Cold-tier copy of feedback on an archived appointment. The doctor id is
+ * copied in so rating rebuilds can aggregate it without the appointment.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "feedbacks_archive", indexes = {
+    @Index(name = "idx_feedbacks_archive_appointment", columnList = "appointment_id"),
+    @Index(name = "idx_feedbacks_archive_doctor", columnList = "doctor_id")
+})
+public class ArchivedFeedback {
+
+    @Id
+    private Long id;
+
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(nullable = false)
+    private Integer rating;
+
+    @Column(nullable = false)
+    private String comment;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,46 @@
+package ptsd14.find.doctor.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Cold-tier copy of the payment of an archived appointment.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "payments_archive")
+public class ArchivedPayment {
+
+    @Id
+    private Long id;
+
+    @Column(name = "appointment_id", nullable = false, unique = true)
+    private Long appointmentId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private String paymentStatus;
+
+    @Column(nullable = false)
+    private String paymentMethod;
+
+    @Column(name = "paid_at", nullable = false)
+    private LocalDateTime paidAt;
+
+    @Column(name = "stripe_payment_intent_id")
+    private String stripePaymentIntentId;
+}
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 public class Email {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -17,7 +17,7 @@ import lombok.*;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "patients")
+@Table(name = "patients", indexes = @Index(name = "idx_patients_status", columnList = "status"))
 public class Patient {
 
     @Id
@@ -0,0 +1,90 @@
+package ptsd14.find.doctor.model;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+/**
+ * 53-bit ids that stay exact as JavaScript numbers:
+ * 41 bits of milliseconds since 2024-01-01, 4 bits of node id and an 8 bit
+ * per-millisecond sequence. Ids increase over time, so keyset paging on id
+ * keeps working and they sort after every id the old IDENTITY columns issued.
+ * The node id comes from the app.id.node-id system property or APP_ID_NODE_ID
+ * and must differ between instances writing to the same database. There is
+ * no default: two instances silently sharing node 0 would issue duplicate
+ * ids, so startup fails instead. The test build sets it to 0.
+ */
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 4;
+    static final int SEQUENCE_BITS = 8;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private static final long NODE_ID = resolveNodeId();
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence), shared by every entity type
+    private static final AtomicLong LAST = new AtomicLong();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+
+    public static long nextId() {
+        while (true) {
+            long previous = LAST.get();
+            long previousTimestamp = previous >>> SEQUENCE_BITS;
+            long previousSequence = previous & MAX_SEQUENCE;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+
+            long timestamp;
+            long sequence;
+            if (now > previousTimestamp) {
+                timestamp = now;
+                sequence = 0;
+            } else if (previousSequence < MAX_SEQUENCE) {
+                // Same millisecond, or the clock moved backwards: keep counting on the last timestamp
+                timestamp = previousTimestamp;
+                sequence = previousSequence + 1;
+            } else {
+                // Sequence exhausted: borrow the next millisecond instead of spinning
+                timestamp = previousTimestamp + 1;
+                sequence = 0;
+            }
+
+            if (LAST.compareAndSet(previous, (timestamp << SEQUENCE_BITS) | sequence)) {
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (NODE_ID << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    private static long resolveNodeId() {
+        String value = System.getProperty("app.id.node-id", System.getenv("APP_ID_NODE_ID"));
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("APP_ID_NODE_ID (or -Dapp.id.node-id) is not set; give every instance"
+                    + " writing to the database its own value between 0 and " + MAX_NODE_ID);
+        }
+        long nodeId;
+        try {
+            nodeId = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("app.id.node-id must be a number, got '" + value + "'", e);
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("app.id.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        return nodeId;
+    }
+}
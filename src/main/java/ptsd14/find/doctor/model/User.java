@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -49,6 +50,10 @@ public class User implements UserDetails {
     @JoinColumn(name = "role_id", nullable = false)
     private UserRole role; // entity
 
+    // Bumped to revoke every access token issued before, see TokenVersionRegistry
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private long tokenVersion;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
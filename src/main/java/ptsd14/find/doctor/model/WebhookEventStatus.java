@@ -0,0 +1,9 @@
+package ptsd14.find.doctor.model;
+
+public enum WebhookEventStatus {
+    RECEIVED,
+    PROCESSING,
+    PROCESSED,
+    FAILED,
+    DEAD
+}
@@ -0,0 +1,67 @@
+package ptsd14.find.doctor.projection;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import jakarta.persistence.criteria.JoinType;
+
+/**
+ * The fields a list endpoint can return in place of its full DTO, each mapped
+ * to the attribute paths it reads. A selection of them reads only those
+ * columns and joins only the tables they live in.
+ */
+public final class FieldCatalog<T> {
+
+    public static final String ID = "id";
+
+    private final Map<String, JoinType> joinTypes = new HashMap<>();
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+
+    public FieldCatalog() {
+        field(ID, ID);
+    }
+
+    // Associations not declared here are LEFT joined
+    public FieldCatalog<T> join(String path, JoinType type) {
+        joinTypes.put(path, type);
+        return this;
+    }
+
+    public FieldCatalog<T> field(String name, String path) {
+        return field(name, values -> values[0], path);
+    }
+
+    // A value computed from several columns, e.g. a full name
+    public FieldCatalog<T> field(String name, Function<Object[], Object> combine, String... paths) {
+        fields.put(name, new Field(name, List.of(paths), combine));
+        return this;
+    }
+
+    /**
+     * Parses a comma-separated ?fields= value, keeping the requested order.
+     * The id is always returned so rows can be told apart.
+     */
+    public FieldSelection<T> select(String names) {
+        Map<String, Field> selected = new LinkedHashMap<>();
+        selected.put(ID, fields.get(ID));
+        for (String name : names.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            Field field = fields.get(trimmed);
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field '" + trimmed + "'. Available: "
+                        + String.join(", ", fields.keySet()));
+            }
+            selected.put(trimmed, field);
+        }
+        return new FieldSelection<>(List.copyOf(selected.values()), joinTypes);
+    }
+
+    record Field(String name, List<String> paths, Function<Object[], Object> combine) {
+    }
+}
@@ -0,0 +1,106 @@
+package ptsd14.find.doctor.projection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import ptsd14.find.doctor.projection.FieldCatalog.Field;
+
+/**
+ * The fields picked from a FieldCatalog. Each distinct attribute path is one
+ * selected column; rows come back as maps in the requested field order.
+ */
+public final class FieldSelection<T> {
+
+    private final List<Field> fields;
+    private final Map<String, JoinType> joinTypes;
+    private final List<String> columns = new ArrayList<>();
+    // Per field, the positions of its paths among the columns
+    private final List<int[]> positions = new ArrayList<>();
+
+    FieldSelection(List<Field> fields, Map<String, JoinType> joinTypes) {
+        this.fields = fields;
+        this.joinTypes = joinTypes;
+        Map<String, Integer> columnIndex = new LinkedHashMap<>();
+        for (Field field : fields) {
+            positions.add(field.paths().stream()
+                    .mapToInt(path -> columnIndex.computeIfAbsent(path, p -> {
+                        columns.add(p);
+                        return columns.size() - 1;
+                    }))
+                    .toArray());
+        }
+    }
+
+    /**
+     * The columns to select from root. Joins the filter already made on
+     * root are reused rather than joined again.
+     */
+    public List<Selection<?>> selections(Root<T> root) {
+        Map<String, From<?, ?>> joins = new HashMap<>();
+        return columns.stream().<Selection<?>>map(path -> resolve(root, joins, path)).toList();
+    }
+
+    public Map<String, Object> toRow(Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            int[] at = positions.get(i);
+            Object[] values = new Object[at.length];
+            for (int j = 0; j < at.length; j++) {
+                values[j] = tuple.get(at[j]);
+            }
+            row.put(fields.get(i).name(), fields.get(i).combine().apply(values));
+        }
+        return row;
+    }
+
+    private Path<?> resolve(Root<T> root, Map<String, From<?, ?>> joins, String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0) {
+            return root.get(path);
+        }
+        String parent = path.substring(0, dot);
+        String leaf = path.substring(dot + 1);
+        if (leaf.equals(FieldCatalog.ID)) {
+            // The foreign key column on the owning table, so no join
+            int parentDot = parent.lastIndexOf('.');
+            From<?, ?> owner = parentDot < 0 ? root : join(root, joins, parent.substring(0, parentDot));
+            return owner.get(parent.substring(parentDot + 1)).get(leaf);
+        }
+        return join(root, joins, parent).get(leaf);
+    }
+
+    private From<?, ?> join(Root<T> root, Map<String, From<?, ?>> joins, String path) {
+        From<?, ?> cached = joins.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        int dot = path.lastIndexOf('.');
+        From<?, ?> owner = dot < 0 ? root : join(root, joins, path.substring(0, dot));
+        String attribute = path.substring(dot + 1);
+        JoinType type = joinTypes.getOrDefault(path, JoinType.LEFT);
+
+        From<?, ?> join = null;
+        for (Join<?, ?> existing : owner.getJoins()) {
+            if (existing.getAttribute().getName().equals(attribute) && existing.getJoinType() == type) {
+                join = existing;
+                break;
+            }
+        }
+        if (join == null) {
+            join = owner.join(attribute, type);
+        }
+        joins.put(path, join);
+        return join;
+    }
+}
@@ -0,0 +1,67 @@
+package ptsd14.find.doctor.projection;
+
+import java.util.function.Function;
+
+import jakarta.persistence.criteria.JoinType;
+
+import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.Doctor;
+import ptsd14.find.doctor.model.Payment;
+
+/**
+ * ?fields= catalogs of the list endpoints. Names match the DTO properties,
+ * so a sparse row is the full DTO with the unrequested properties left out.
+ */
+public final class ListFields {
+
+    private static final Function<Object[], Object> FULL_NAME = values -> values[0] + " " + values[1];
+
+    public static final FieldCatalog<Appointment> APPOINTMENTS = new FieldCatalog<Appointment>()
+            .join("doctor", JoinType.INNER)
+            .join("patient", JoinType.INNER)
+            .join("appointmentType", JoinType.INNER)
+            .field("doctorId", "doctor.id")
+            .field("doctorName", FULL_NAME, "doctor.firstname", "doctor.lastname")
+            .field("patientId", "patient.id")
+            .field("patientName", FULL_NAME, "patient.firstname", "patient.lastname")
+            .field("appointmentTypeId", "appointmentType.id")
+            .field("appointmentTypeName", "appointmentType.name")
+            .field("doctorHospitalName", "doctor.hospital.name")
+            .field("doctorHospitalPhone", "doctor.hospital.phone")
+            .field("dateTime", "dateTime")
+            .field("note", "note")
+            .field("status", "status")
+            .field("amount", "appointmentType.price")
+            .field("paymentStatus", "payment.paymentStatus")
+            .field("createdAt", "createdAt")
+            .field("updatedAt", "updatedAt")
+            .field("version", "version");
+
+    public static final FieldCatalog<Doctor> DOCTORS = new FieldCatalog<Doctor>()
+            .join("specialization", JoinType.INNER)
+            .join("hospital", JoinType.INNER)
+            .field("firstname", "firstname")
+            .field("lastname", "lastname")
+            .field("specializationId", "specialization.id")
+            .field("specializationName", "specialization.name")
+            .field("hospitalId", "hospital.id")
+            .field("hospitalName", "hospital.name")
+            .field("userId", "user.id")
+            .field("userEmail", "user.email")
+            .field("status", "status")
+            .field("createdAt", "createdAt")
+            .field("updatedAt", "updatedAt");
+
+    public static final FieldCatalog<Payment> PAYMENTS = new FieldCatalog<Payment>()
+            .join("appointment", JoinType.INNER)
+            .join("appointment.patient", JoinType.INNER)
+            .field("amount", "amount")
+            .field("paymentStatus", "paymentStatus")
+            .field("paymentMethod", "paymentMethod")
+            .field("paidAt", "paidAt")
+            .field("appointmentId", "appointment.id")
+            .field("patientName", FULL_NAME, "appointment.patient.firstname", "appointment.patient.lastname");
+
+    private ListFields() {
+    }
+}
@@ -1,13 +1,23 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.util.Streamable;
 
@@ -16,11 +26,173 @@ import ptsd14.find.doctor.model.Appointment;
 import ptsd14.find.doctor.model.AppointmentStatus;
 import ptsd14.find.doctor.model.Patient;
 
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends BaseRepository<Appointment, Long> {
+
+    // Builds AppointmentDto in the same select, so a page costs one query plus its count
+    String DTO_SELECT = """
+        SELECT new ptsd14.find.doctor.dto.AppointmentDto(
+            a.id,
+            d.id, d.firstname, d.lastname,
+            p.id, p.firstname, p.lastname,
+            t.id, t.name,
+            h.name, h.phone,
+            a.dateTime, a.note, a.status,
+            t.price, pay.paymentStatus,
+            a.createdAt, a.updatedAt, a.version)
+        FROM Appointment a
+        JOIN a.doctor d
+        LEFT JOIN d.hospital h
+        JOIN a.patient p
+        JOIN a.appointmentType t
+        LEFT JOIN a.payment pay
+        """;
+
+    // The list queries return slices; their totals are counted separately and cached in CountCache
+    @Query(DTO_SELECT)
+    Slice<AppointmentDto> findAllDtos(Pageable pageable);
+
+    @Query(DTO_SELECT + """
+        WHERE LOWER(d.firstname) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(d.lastname) LIKE LOWER(CONCAT('%', :search, '%'))
+        """)
+    Slice<AppointmentDto> findDtosByDoctorName(@Param("search") String search, Pageable pageable);
+
+    @Query("""
+        SELECT COUNT(a) FROM Appointment a
+        JOIN a.doctor d
+        WHERE LOWER(d.firstname) LIKE LOWER(CONCAT('%', :search, '%'))
+           OR LOWER(d.lastname) LIKE LOWER(CONCAT('%', :search, '%'))
+        """)
+    long countDtosByDoctorName(@Param("search") String search);
+
+    // Doctor name search after NameTrigramIndex resolved the matching doctors
+    @Query(DTO_SELECT + " WHERE d.id IN :doctorIds")
+    Slice<AppointmentDto> findDtosByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds, Pageable pageable);
+
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctor.id IN :doctorIds")
+    long countDtosByDoctorIds(@Param("doctorIds") Collection<Long> doctorIds);
+
+    @Query(DTO_SELECT + " WHERE d.user.id = :doctorUserId")
+    Slice<AppointmentDto> findDtosByDoctorUserId(@Param("doctorUserId") Long doctorUserId, Pageable pageable);
+
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctor.user.id = :doctorUserId")
+    long countDtosByDoctorUserId(@Param("doctorUserId") Long doctorUserId);
+
+    @Query(value = DTO_SELECT + " WHERE p.user.id = :userId",
+        countQuery = "SELECT COUNT(a) FROM Appointment a WHERE a.patient.user.id = :userId")
+    Page<AppointmentDto> findDtosByPatientUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Same rows without the count, for the patient list; the total comes from CountCache
+    @Query(DTO_SELECT + " WHERE p.user.id = :userId")
+    Slice<AppointmentDto> findDtoSliceByPatientUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE a.patient.user.id = :userId")
+    long countDtosByPatientUserId(@Param("userId") Long userId);
+
+    @Query(DTO_SELECT + " WHERE a.id = :id")
+    Optional<AppointmentDto> findDtoById(@Param("id") Long id);
+
+    // Guarded transition in one statement; 0 rows means the appointment is missing or not in a source state
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Appointment a
+        SET a.status = :target, a.updatedAt = :now, a.version = a.version + 1
+        WHERE a.id = :id AND a.status IN :sources
+    """)
+    int transitionStatus(@Param("id") Long id,
+                         @Param("sources") Collection<AppointmentStatus> sources,
+                         @Param("target") AppointmentStatus target,
+                         @Param("now") LocalDateTime now);
+
+    @Query("SELECT a.status FROM Appointment a WHERE a.id = :id")
+    Optional<AppointmentStatus> findStatusById(@Param("id") Long id);
+
+    // Bulk transition: state guard and doctor ownership are both checked by the UPDATE itself
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Appointment a
+        SET a.status = :target, a.updatedAt = :now, a.version = a.version + 1
+        WHERE a.id IN :ids
+          AND a.status IN :sources
+          AND a.doctor.id IN (SELECT d.id FROM Doctor d WHERE d.user.id = :doctorUserId)
+    """)
+    int transitionStatusForDoctor(@Param("ids") Collection<Long> ids,
+                                  @Param("sources") Collection<AppointmentStatus> sources,
+                                  @Param("target") AppointmentStatus target,
+                                  @Param("doctorUserId") Long doctorUserId,
+                                  @Param("now") LocalDateTime now);
+
+    // (id, status, version, doctor id, doctor user id, dateTime) rows used to report bulk outcomes
+    @Query("""
+        SELECT a.id, a.status, a.version, d.id, d.user.id, a.dateTime
+        FROM Appointment a
+        JOIN a.doctor d
+        WHERE a.id IN :ids
+    """)
+    List<Object[]> findStatusRows(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+        SELECT a.id
+        FROM Appointment a
+        WHERE a.doctor.user.id = :doctorUserId
+          AND a.status = :status
+          AND a.dateTime >= :from
+          AND a.dateTime < :to
+        ORDER BY a.dateTime
+    """)
+    List<Long> findIdsForDoctorBetween(@Param("doctorUserId") Long doctorUserId,
+                                       @Param("status") AppointmentStatus status,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+
+    // Scalar rows for CSV export, streamed from MySQL row by row (fetch size MIN_VALUE) instead of buffered
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT a.id, a.dateTime, a.status, d.firstname, d.lastname, p.firstname, p.lastname,
+               t.name, t.price, pay.paymentStatus, a.createdAt
+        FROM Appointment a
+        JOIN a.doctor d
+        JOIN a.patient p
+        JOIN a.appointmentType t
+        LEFT JOIN a.payment pay
+        WHERE (:from IS NULL OR a.dateTime >= :from)
+          AND (:to IS NULL OR a.dateTime < :to)
+          AND (:status IS NULL OR a.status = :status)
+        ORDER BY a.id
+    """)
+    Stream<Object[]> streamForExport(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("status") AppointmentStatus status);
 
     Streamable<AppointmentDto> findByDateTimeAfterOrderByDateTimeAsc(LocalDateTime now);
 
-    List<Appointment> findByPaymentIsNull();
+    // Anti-join against the unique payments.appointment_id index; only unpaid rows are ever read
+    @Query(value = DTO_SELECT + """
+        WHERE NOT EXISTS (SELECT 1 FROM Payment x WHERE x.appointment = a)
+          AND (:doctorId IS NULL OR d.id = :doctorId)
+          AND (:patientId IS NULL OR p.id = :patientId)
+          AND (:patientUserId IS NULL OR p.user.id = :patientUserId)
+          AND (:from IS NULL OR a.dateTime >= :from)
+          AND (:to IS NULL OR a.dateTime < :to)
+        """,
+        countQuery = """
+        SELECT COUNT(a) FROM Appointment a
+        WHERE NOT EXISTS (SELECT 1 FROM Payment x WHERE x.appointment = a)
+          AND (:doctorId IS NULL OR a.doctor.id = :doctorId)
+          AND (:patientId IS NULL OR a.patient.id = :patientId)
+          AND (:patientUserId IS NULL OR a.patient.user.id = :patientUserId)
+          AND (:from IS NULL OR a.dateTime >= :from)
+          AND (:to IS NULL OR a.dateTime < :to)
+        """)
+    Page<AppointmentDto> findUnpaidDtos(@Param("doctorId") Long doctorId,
+                                        @Param("patientId") Long patientId,
+                                        @Param("patientUserId") Long patientUserId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        Pageable pageable);
 
     @Query("""
         SELECT a FROM Appointment a
@@ -31,6 +203,32 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
         """)
     Page<Appointment> findByDoctorNameContainingIgnoreCase(@Param("search") String search, Pageable pageable);
 
+    // Keyset variants: seek on the primary key instead of OFFSET and skip the COUNT query
+    @Query(DTO_SELECT + """
+        WHERE a.id < :afterId
+        ORDER BY a.id DESC
+        """)
+    Slice<AppointmentDto> findDtosAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(DTO_SELECT + """
+        WHERE a.id < :afterId
+          AND (LOWER(d.firstname) LIKE LOWER(CONCAT('%', :search, '%')) OR
+               LOWER(d.lastname) LIKE LOWER(CONCAT('%', :search, '%')))
+        ORDER BY a.id DESC
+        """)
+    Slice<AppointmentDto> findDtosByDoctorNameAfter(@Param("search") String search,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query(DTO_SELECT + """
+        WHERE a.id < :afterId
+          AND d.id IN :doctorIds
+        ORDER BY a.id DESC
+        """)
+    Slice<AppointmentDto> findDtosByDoctorIdsAfter(@Param("doctorIds") Collection<Long> doctorIds,
+                                                   @Param("afterId") Long afterId,
+                                                   Pageable pageable);
+
     Page<Appointment> findByPatientFirstnameContainingIgnoreCaseOrPatientLastnameContainingIgnoreCase(
             String search, String search2, Pageable pageable);
 
@@ -47,10 +245,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
         WHERE a.dateTime > :now
         ORDER BY a.dateTime ASC
     """)
-    List<Appointment> findTop5Upcoming(@Param("now") LocalDateTime now);
-
-    @Query("SELECT a FROM Appointment a WHERE a.doctor.user.id = :doctorUserId")
-    Page<Appointment> findByDoctorUserId(@Param("doctorUserId") Long doctorUserId, Pageable pageable);
+    List<Appointment> findTop5Upcoming(@Param("now") LocalDateTime now, Pageable pageable);
 
     @Query("""
         SELECT COUNT(DISTINCT a.patient.id)
@@ -98,9 +293,54 @@ Long countConsultations(@Param("doctorId") Long doctorId, @Param("typeName") Str
                                               @Param("endDate") LocalDateTime endDate);
 
 
-    List<Appointment> findByPatientId(Long patientId);
+    // One doctor's active bookings starting in [from, to); read under the doctor row lock for the overlap check
+    @Query("""
+        SELECT a.id, a.dateTime, t.duration
+        FROM Appointment a
+        JOIN a.appointmentType t
+        WHERE a.doctor.id = :doctorId
+          AND a.status <> :excluded
+          AND a.dateTime >= :from
+          AND a.dateTime < :to
+    """)
+    List<Object[]> findDoctorSlotsBetween(@Param("doctorId") Long doctorId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("excluded") AppointmentStatus excluded);
 
-    Page<Appointment> findByPatientUserId(Long userId, Pageable pageable);
+    @Query("""
+        SELECT a.id, a.doctor.id, a.dateTime, a.appointmentType.duration
+        FROM Appointment a
+        WHERE a.dateTime >= :from
+          AND a.status <> :excluded
+    """)
+    List<Object[]> findBookedSlotsFrom(@Param("from") LocalDateTime from,
+                                       @Param("excluded") AppointmentStatus excluded);
+
+    @Query("""
+        SELECT a.id, a.dateTime, a.appointmentType.duration
+        FROM Appointment a
+        WHERE a.doctor.id = :doctorId
+          AND a.dateTime >= :from
+          AND a.status <> :excluded
+    """)
+    List<Object[]> findDoctorBookedSlotsFrom(@Param("doctorId") Long doctorId,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("excluded") AppointmentStatus excluded);
+
+    // Finished appointments past the archive horizon; ones still referenced by sent emails stay hot
+    @Query("""
+        SELECT a.id FROM Appointment a
+        WHERE a.status IN :statuses
+          AND a.dateTime < :before
+          AND NOT EXISTS (SELECT 1 FROM Email e WHERE e.appointment = a)
+        ORDER BY a.id
+    """)
+    List<Long> findArchivableIds(@Param("statuses") Collection<AppointmentStatus> statuses,
+                                 @Param("before") LocalDateTime before,
+                                 Pageable pageable);
+
+    List<Appointment> findByPatientId(Long patientId);
 
     Page<Appointment> findByPatientIdAndStatus(Long patientId, AppointmentStatus status, Pageable pageable);
 
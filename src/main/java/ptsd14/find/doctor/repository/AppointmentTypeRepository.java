@@ -1,8 +1,16 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+import java.util.List;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import ptsd14.find.doctor.model.AppointmentType;
@@ -15,5 +23,13 @@ public interface AppointmentTypeRepository extends JpaRepository<AppointmentType
     boolean existsByNameAndIdNot(String name, Long excludeId);
 
     Page<AppointmentType> findByNameContainingIgnoreCase(String name, Pageable pageable);
-    
+
+    // Served from the query cache; Hibernate invalidates it on any write to the table
+    @Override
+    @QueryHints(value = @QueryHint(name = HINT_CACHEABLE, value = "true"), forCounting = true)
+    Page<AppointmentType> findAll(Pageable pageable);
+
+    @Override
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    List<AppointmentType> findAll(Sort sort);
 }
@@ -0,0 +1,86 @@
+package ptsd14.find.doctor.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.model.ArchivedAppointment;
+
+public interface ArchivedAppointmentRepository extends JpaRepository<ArchivedAppointment, Long> {
+
+    // Same shape as AppointmentRepository.DTO_SELECT so both tiers merge into one history page
+    String DTO_SELECT = """
+        SELECT new ptsd14.find.doctor.dto.AppointmentDto(
+            a.id,
+            d.id, d.firstname, d.lastname,
+            p.id, p.firstname, p.lastname,
+            t.id, t.name,
+            h.name, h.phone,
+            a.dateTime, a.note, a.status,
+            t.price, pay.paymentStatus,
+            a.createdAt, a.updatedAt, a.version)
+        FROM ArchivedAppointment a
+        JOIN Doctor d ON d.id = a.doctorId
+        LEFT JOIN d.hospital h
+        JOIN Patient p ON p.id = a.patientId
+        JOIN AppointmentType t ON t.id = a.appointmentTypeId
+        LEFT JOIN ArchivedPayment pay ON pay.appointmentId = a.id
+        """;
+
+    @Query(value = DTO_SELECT + " WHERE p.user.id = :userId",
+        countQuery = """
+        SELECT COUNT(a) FROM ArchivedAppointment a
+        JOIN Patient p ON p.id = a.patientId
+        WHERE p.user.id = :userId
+        """)
+    Page<AppointmentDto> findDtosByPatientUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Copies hot rows as they are; the caller deletes them in the same transaction
+    @Modifying
+    @Query("""
+        INSERT INTO ArchivedAppointment (id, doctorId, patientId, appointmentTypeId, dateTime, note, status,
+                                         createdAt, updatedAt, version, archivedAt)
+        SELECT a.id, a.doctor.id, a.patient.id, a.appointmentType.id, a.dateTime, a.note, a.status,
+               a.createdAt, a.updatedAt, a.version, :now
+        FROM Appointment a
+        WHERE a.id IN :ids
+    """)
+    int copyFromHot(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Same columns as AppointmentRepository.streamForExport, so exports cover both tiers
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT a.id, a.dateTime, a.status, d.firstname, d.lastname, p.firstname, p.lastname,
+               t.name, t.price, pay.paymentStatus, a.createdAt
+        FROM ArchivedAppointment a
+        JOIN Doctor d ON d.id = a.doctorId
+        JOIN Patient p ON p.id = a.patientId
+        JOIN AppointmentType t ON t.id = a.appointmentTypeId
+        LEFT JOIN ArchivedPayment pay ON pay.appointmentId = a.id
+        WHERE (:from IS NULL OR a.dateTime >= :from)
+          AND (:to IS NULL OR a.dateTime < :to)
+          AND (:status IS NULL OR a.status = :status)
+        ORDER BY a.id
+    """)
+    Stream<Object[]> streamForExport(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("status") AppointmentStatus status);
+}
@@ -0,0 +1,46 @@
+package ptsd14.find.doctor.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ptsd14.find.doctor.model.ArchivedFeedback;
+
+public interface ArchivedFeedbackRepository extends BaseRepository<ArchivedFeedback, Long> {
+
+    @Modifying
+    @Query("""
+        INSERT INTO ArchivedFeedback (id, appointmentId, doctorId, rating, comment, createdAt, updatedAt)
+        SELECT f.id, a.id, a.doctor.id, f.rating, f.comment, f.createdAt, f.updatedAt
+        FROM Feedback f
+        JOIN f.appointment a
+        WHERE a.id IN :appointmentIds
+    """)
+    int copyFromHot(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    // Same columns as FeedbackRepository.aggregateRatingsByDoctor
+    @Query("""
+        SELECT f.doctorId, COUNT(f), SUM(f.rating),
+               SUM(CASE WHEN f.rating = 1 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 2 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 3 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 4 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 5 THEN 1 ELSE 0 END)
+        FROM ArchivedFeedback f
+        GROUP BY f.doctorId
+    """)
+    List<Object[]> aggregateRatingsByDoctor();
+
+    // Same columns as FeedbackRepository.findSearchRowsAfter
+    @Query("""
+        SELECT f.id, f.doctorId, f.rating, f.comment
+        FROM ArchivedFeedback f
+        WHERE f.id > :afterId
+        ORDER BY f.id
+    """)
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,59 @@
+package ptsd14.find.doctor.repository;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import ptsd14.find.doctor.model.ArchivedPayment;
+
+public interface ArchivedPaymentRepository extends JpaRepository<ArchivedPayment, Long> {
+
+    @Modifying
+    @Query("""
+        INSERT INTO ArchivedPayment (id, appointmentId, amount, paymentStatus, paymentMethod, paidAt, stripePaymentIntentId)
+        SELECT p.id, p.appointment.id, p.amount, p.paymentStatus, p.paymentMethod, p.paidAt, p.stripePaymentIntentId
+        FROM Payment p
+        WHERE p.appointment.id IN :appointmentIds
+    """)
+    int copyFromHot(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM ArchivedPayment p WHERE p.paymentStatus = 'PAID'")
+    BigDecimal sumTotalRevenue();
+
+    @Query("SELECT FUNCTION('MONTH', p.paidAt) as month, SUM(p.amount) FROM ArchivedPayment p WHERE p.paidAt IS NOT NULL GROUP BY FUNCTION('MONTH', p.paidAt) ORDER BY month")
+    List<Object[]> findMonthlyRevenue();
+
+    // Same columns as PaymentRepository.streamForExport, so exports cover both tiers
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT p.id, p.paidAt, p.amount, p.paymentMethod, p.paymentStatus, p.stripePaymentIntentId,
+               a.id, a.dateTime, pt.firstname, pt.lastname, d.firstname, d.lastname
+        FROM ArchivedPayment p
+        JOIN ArchivedAppointment a ON a.id = p.appointmentId
+        JOIN Patient pt ON pt.id = a.patientId
+        JOIN Doctor d ON d.id = a.doctorId
+        WHERE (:from IS NULL OR p.paidAt >= :from)
+          AND (:to IS NULL OR p.paidAt < :to)
+          AND (:status IS NULL OR p.paymentStatus = :status)
+        ORDER BY p.id
+    """)
+    Stream<Object[]> streamForExport(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("status") String status);
+}
@@ -0,0 +1,31 @@
+package ptsd14.find.doctor.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import ptsd14.find.doctor.projection.FieldSelection;
+
+/**
+ * Base for the repositories behind filtered lists. Adds a slice query that
+ * fetches one row past the page to tell whether there is a next one, so a
+ * list can be served without its COUNT query.
+ */
+@NoRepositoryBean
+public interface BaseRepository<T, ID> extends JpaRepository<T, ID>, JpaSpecificationExecutor<T> {
+
+    Slice<T> findSlice(Specification<T> spec, Pageable pageable);
+
+    // Rows at any offset, for lists that continue one table after another
+    List<T> findRange(Specification<T> spec, Sort sort, long offset, int limit);
+
+    // Only the selected fields' columns, as rows keyed by field name
+    Slice<Map<String, Object>> findFields(FieldSelection<T> fields, Specification<T> spec, Pageable pageable);
+}
@@ -0,0 +1,82 @@
+package ptsd14.find.doctor.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import ptsd14.find.doctor.projection.FieldSelection;
+
+/**
+ * Repository base class registered in FindDoctorApplication. getQuery applies
+ * the @EntityGraph declared on the calling repository method, as for findAll.
+ */
+public class BaseRepositoryImpl<T, ID> extends SimpleJpaRepository<T, ID> implements BaseRepository<T, ID> {
+
+    private final EntityManager entityManager;
+
+    public BaseRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<T> findSlice(Specification<T> spec, Pageable pageable) {
+        return slice(getQuery(spec, pageable.getSort()), pageable);
+    }
+
+    @Override
+    public List<T> findRange(Specification<T> spec, Sort sort, long offset, int limit) {
+        TypedQuery<T> query = getQuery(spec, sort);
+        query.setFirstResult(Math.toIntExact(offset));
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    @Override
+    public Slice<Map<String, Object>> findFields(FieldSelection<T> fields, Specification<T> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(getDomainClass());
+        // Filter first, so the selection can reuse the joins it made
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        query.multiselect(fields.selections(root));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+        return slice(entityManager.createQuery(query), pageable).map(fields::toRow);
+    }
+
+    private static <R> Slice<R> slice(TypedQuery<R> query, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList());
+        }
+
+        int size = pageable.getPageSize();
+        query.setFirstResult(Math.toIntExact(pageable.getOffset()));
+        query.setMaxResults(size + 1);
+        List<R> rows = query.getResultList();
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, pageable, hasNext);
+    }
+}
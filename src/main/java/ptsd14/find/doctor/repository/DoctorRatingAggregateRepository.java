@@ -0,0 +1,58 @@
+package ptsd14.find.doctor.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+
+public interface DoctorRatingAggregateRepository extends JpaRepository<DoctorRatingAggregate, Long> {
+
+    // Applies +1/-1 of a rating in place so concurrent feedback writes don't lose updates
+    @Modifying
+    @Query("""
+        UPDATE DoctorRatingAggregate g
+        SET g.ratingCount = g.ratingCount + :delta,
+            g.ratingSum = g.ratingSum + :rating * :delta,
+            g.rating1 = g.rating1 + CASE WHEN :rating = 1 THEN :delta ELSE 0 END,
+            g.rating2 = g.rating2 + CASE WHEN :rating = 2 THEN :delta ELSE 0 END,
+            g.rating3 = g.rating3 + CASE WHEN :rating = 3 THEN :delta ELSE 0 END,
+            g.rating4 = g.rating4 + CASE WHEN :rating = 4 THEN :delta ELSE 0 END,
+            g.rating5 = g.rating5 + CASE WHEN :rating = 5 THEN :delta ELSE 0 END,
+            g.updatedAt = :now
+        WHERE g.doctorId = :doctorId
+    """)
+    int applyRating(@Param("doctorId") Long doctorId,
+                    @Param("rating") int rating,
+                    @Param("delta") int delta,
+                    @Param("now") LocalDateTime now);
+
+    // Adds one rating, creating the doctor's row on the first one; a plain insert would race with a concurrent first rating (MySQL)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+        INSERT INTO doctor_rating_aggregates
+            (doctor_id, rating_count, rating_sum, rating_1, rating_2, rating_3, rating_4, rating_5, updated_at)
+        VALUES (:doctorId, 1, :rating,
+                CASE WHEN :rating = 1 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 2 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 3 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 4 THEN 1 ELSE 0 END,
+                CASE WHEN :rating = 5 THEN 1 ELSE 0 END,
+                :now)
+        ON DUPLICATE KEY UPDATE
+            rating_count = rating_count + 1,
+            rating_sum = rating_sum + :rating,
+            rating_1 = rating_1 + CASE WHEN :rating = 1 THEN 1 ELSE 0 END,
+            rating_2 = rating_2 + CASE WHEN :rating = 2 THEN 1 ELSE 0 END,
+            rating_3 = rating_3 + CASE WHEN :rating = 3 THEN 1 ELSE 0 END,
+            rating_4 = rating_4 + CASE WHEN :rating = 4 THEN 1 ELSE 0 END,
+            rating_5 = rating_5 + CASE WHEN :rating = 5 THEN 1 ELSE 0 END,
+            updated_at = :now
+    """)
+    int addRating(@Param("doctorId") Long doctorId,
+                  @Param("rating") int rating,
+                  @Param("now") LocalDateTime now);
+}
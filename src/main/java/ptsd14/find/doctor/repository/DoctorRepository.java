@@ -1,12 +1,23 @@
 package ptsd14.find.doctor.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ptsd14.find.doctor.dto.DoctorDto;
@@ -14,27 +25,55 @@ import ptsd14.find.doctor.model.Doctor;
 import ptsd14.find.doctor.model.User;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends BaseRepository<Doctor, Long> {
+
+    // List filters from DoctorFilter, any combination in one query
+    @Override
+    @EntityGraph(attributePaths = {"hospital", "specialization", "user"})
+    Page<Doctor> findAll(Specification<Doctor> spec, Pageable pageable);
 
+    // The same filters without the COUNT; totals come from CountCache
+    @Override
     @EntityGraph(attributePaths = {"hospital", "specialization", "user"})
-    Page<Doctor> findBy(Pageable pageable);
-    Page<Doctor> findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(
-        String firstname,
-        String lastname,
-        Pageable pageable
-    );
-    Page<Doctor> findByStatusIgnoreCaseAndFirstnameContainingIgnoreCaseOrStatusIgnoreCaseAndLastnameContainingIgnoreCase(
-            String trimmedStatus, String trimmedSearch, String trimmedStatus2, String trimmedSearch2,
-            Pageable pageable);
-    Page<Doctor> findByStatusIgnoreCase(String trim, Pageable pageable);
+    Slice<Doctor> findSlice(Specification<Doctor> spec, Pageable pageable);
 
     @EntityGraph(attributePaths = {"hospital", "specialization", "user"})
     Optional<DoctorDto> findWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = {"hospital", "specialization", "user"})
+    List<Doctor> findByIdIn(Collection<Long> ids);
+
+    // Name search resolved by NameTrigramIndex; the database only pages and filters the matched ids
     
     List<Doctor> findBySpecializationIdAndIdNot(Long specializationId, Long doctorId);
     
     Optional<Doctor> findByUser(User user);
 
+    // SELECT ... FOR UPDATE on the doctor row: serializes bookings for one doctor across all app nodes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "5000"))
+    @Query("SELECT d FROM Doctor d WHERE d.id = :id")
+    Optional<Doctor> findByIdForUpdate(@Param("id") Long id);
+
+    // Existence check for a batch of ids in one IN query, without loading the entities
+    @Query("SELECT d.id FROM Doctor d WHERE d.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // (id, firstname, lastname) for the name index: read in keyset chunks at startup, single row on change
+    @Query("SELECT d.id, d.firstname, d.lastname FROM Doctor d WHERE d.id > :afterId ORDER BY d.id")
+    List<Object[]> findNameRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT d.id, d.firstname, d.lastname FROM Doctor d WHERE d.id = :id")
+    List<Object[]> findNameRow(@Param("id") Long id);
+
+    // Same columns, for rows created or updated since the name index last reconciled
+    @Query("SELECT d.id, d.firstname, d.lastname FROM Doctor d WHERE d.createdAt >= :since OR d.updatedAt >= :since")
+    List<Object[]> findNameRowsChangedSince(@Param("since") LocalDateTime since);
+
+    // (id, firstname, lastname, hospital id, specialization id) for the typeahead index
+    @Query("SELECT d.id, d.firstname, d.lastname, d.hospital.id, d.specialization.id FROM Doctor d WHERE d.id > :afterId ORDER BY d.id")
+    List<Object[]> findSuggestRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
 
 
 }
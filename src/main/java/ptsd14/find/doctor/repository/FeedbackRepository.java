@@ -1,10 +1,12 @@
 package ptsd14.find.doctor.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,18 +15,12 @@ import ptsd14.find.doctor.dto.FeedbackDto;
 import ptsd14.find.doctor.model.Feedback;
 
 @Repository
-public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
+public interface FeedbackRepository extends BaseRepository<Feedback, Long> {
 
     Page<FeedbackDto> findAllByAppointmentId(Long appointmentId, Pageable pageable);
 
     List<Feedback> findByAppointment_Doctor_Id(Long id);
 
-    Page<Feedback> findByRatingAndCommentContainingIgnoreCase(Integer rating, String trim, Pageable pageable);
-
-    Page<Feedback> findByRating(Integer rating, Pageable pageable);
-
-    Page<Feedback> findByCommentContainingIgnoreCase(String trim, Pageable pageable);
-
     @Query("""
         SELECT AVG(f.rating)
         FROM Feedback f
@@ -41,6 +37,50 @@ public interface FeedbackRepository extends JpaRepository<Feedback, Long> {
 
     boolean existsByAppointmentId(Long appointmentId);
 
+    @Modifying
+    @Query("DELETE FROM Feedback f WHERE f.appointment.id IN :appointmentIds")
+    int deleteByAppointmentIds(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    @Query("""
+        SELECT a.doctor.id, COUNT(f), SUM(f.rating),
+               SUM(CASE WHEN f.rating = 1 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 2 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 3 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 4 THEN 1 ELSE 0 END),
+               SUM(CASE WHEN f.rating = 5 THEN 1 ELSE 0 END)
+        FROM Feedback f
+        JOIN f.appointment a
+        GROUP BY a.doctor.id
+    """)
+    List<Object[]> aggregateRatingsByDoctor();
+
+    // (id, doctor id, rating, comment) rows for FeedbackSearchIndex
+    @Query("""
+        SELECT f.id, a.doctor.id, f.rating, f.comment
+        FROM Feedback f
+        JOIN f.appointment a
+        WHERE f.id > :afterId
+        ORDER BY f.id
+    """)
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("""
+        SELECT f.id, a.doctor.id, f.rating, f.comment
+        FROM Feedback f
+        JOIN f.appointment a
+        WHERE f.id = :id
+    """)
+    List<Object[]> findSearchRow(@Param("id") Long id);
+
+    // Same columns, for rows created or updated since the search index last reconciled
+    @Query("""
+        SELECT f.id, a.doctor.id, f.rating, f.comment
+        FROM Feedback f
+        JOIN f.appointment a
+        WHERE f.createdAt >= :since OR f.updatedAt >= :since
+    """)
+    List<Object[]> findSearchRowsChangedSince(@Param("since") LocalDateTime since);
+
     @Query("SELECT AVG(f.rating) FROM Feedback f")
     Double findAverageRatingAllDoctors();
 
@@ -1,8 +1,17 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+import java.util.List;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ptsd14.find.doctor.model.Hospital;
 
@@ -15,5 +24,15 @@ public interface HospitalRepository extends JpaRepository<Hospital, Long>{
 
     Page<Hospital> findByNameContainingIgnoreCase(String trimmedSearch, Pageable pageable);
 
-    
+    // Served from the query cache; Hibernate invalidates it on any write to the table
+    @Override
+    @QueryHints(value = @QueryHint(name = HINT_CACHEABLE, value = "true"), forCounting = true)
+    Page<Hospital> findAll(Pageable pageable);
+
+    // (id, name) for the typeahead index
+    @Query("SELECT h.id, h.name FROM Hospital h")
+    List<Object[]> findNameRows();
+
+    @Query("SELECT h.id, h.name FROM Hospital h WHERE h.id = :id")
+    List<Object[]> findNameRow(@Param("id") Long id);
 }
@@ -1,28 +1,35 @@
 package ptsd14.find.doctor.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ptsd14.find.doctor.model.Patient;
 
-public interface PatientRepository extends JpaRepository<Patient, Long>{
+public interface PatientRepository extends BaseRepository<Patient, Long> {
 
-    @EntityGraph(attributePaths = {"user"})
-    Page<Patient> findByStatusIgnoreCaseAndFirstnameContainingIgnoreCaseOrStatusIgnoreCaseAndLastnameContainingIgnoreCase(
-            String trimmedStatus, String trimmedSearch, String trimmedStatus2, String trimmedSearch2,
-            Pageable pageable);
-    @EntityGraph(attributePaths = {"user"})
-    Page<Patient> findByStatusIgnoreCase(String trim, Pageable pageable);
+    // List filters from PatientFilter, any combination in one query
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Patient> findAll(Specification<Patient> spec, Pageable pageable);
 
+    @Override
     @EntityGraph(attributePaths = "user")
-    Page<Patient> findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(String trimmed, String trimmed2,
-            Pageable pageable);
+    Slice<Patient> findSlice(Specification<Patient> spec, Pageable pageable);
 
+    // Name search resolved by NameTrigramIndex; the database only pages and filters the matched ids
     @EntityGraph(attributePaths = "user")
-    Page<Patient> findBy(Pageable pageable);
+    List<Patient> findByIdIn(Collection<Long> ids);
+
     
     @EntityGraph(attributePaths = "user")
     Optional<Patient> findWithUserById(Long id);
@@ -33,4 +40,19 @@ public interface PatientRepository extends JpaRepository<Patient, Long>{
     
     Optional<Patient> findByUserId(Long id);
 
+    // Existence check for a batch of ids in one IN query, without loading the entities
+    @Query("SELECT p.id FROM Patient p WHERE p.id IN :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // (id, firstname, lastname) for the name index: read in keyset chunks at startup, single row on change
+    @Query("SELECT p.id, p.firstname, p.lastname FROM Patient p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findNameRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.firstname, p.lastname FROM Patient p WHERE p.id = :id")
+    List<Object[]> findNameRow(@Param("id") Long id);
+
+    // Same columns, for rows created or updated since the name index last reconciled
+    @Query("SELECT p.id, p.firstname, p.lastname FROM Patient p WHERE p.createdAt >= :since OR p.updatedAt >= :since")
+    List<Object[]> findNameRowsChangedSince(@Param("since") LocalDateTime since);
+
 }
@@ -1,26 +1,46 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import ptsd14.find.doctor.model.Payment;
 
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends BaseRepository<Payment, Long> {
+
+    // List filters from PaymentFilter; the graph loads what PaymentMapper reads
+    @Override
+    @EntityGraph(attributePaths = {"appointment", "appointment.patient"})
+    Page<Payment> findAll(Specification<Payment> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"appointment", "appointment.patient"})
+    Slice<Payment> findSlice(Specification<Payment> spec, Pageable pageable);
 
-    Page<Payment> findByPaymentStatusIgnoreCaseAndAppointment_Patient_FirstnameContainingIgnoreCaseOrPaymentStatusIgnoreCaseAndAppointment_Doctor_FirstnameContainingIgnoreCase(
-            String trim, String trim2, String trim3, String trim4, Pageable pageable);
+    boolean existsByStripePaymentIntentId(String stripePaymentIntentId);
 
-    Page<Payment> findByPaymentStatusIgnoreCase(String trim, Pageable pageable);
+    boolean existsByAppointmentId(Long appointmentId);
 
-    Page<Payment> findByAppointment_Patient_FirstnameContainingIgnoreCaseOrAppointment_Doctor_FirstnameContainingIgnoreCase(
-            String trim, String trim2, Pageable pageable);
+    @Modifying
+    @Query("DELETE FROM Payment p WHERE p.appointment.id IN :appointmentIds")
+    int deleteByAppointmentIds(@Param("appointmentIds") Collection<Long> appointmentIds);
 
     //Dashboard
     @Query("SELECT FUNCTION('MONTH', p.paidAt) as month, SUM(p.amount) FROM Payment p WHERE p.paidAt IS NOT NULL GROUP BY FUNCTION('MONTH', p.paidAt) ORDER BY month")
@@ -32,10 +52,24 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT DATE(p.paidAt), COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.paymentStatus = 'PAID' AND p.paidAt >= :startDate GROUP BY DATE(p.paidAt) ORDER BY DATE(p.paidAt)")
     List<Object[]> findRevenueLast30Days(@Param("startDate") LocalDateTime startDate);
 
-    
-    
-
-
+    // Scalar rows for CSV export, streamed from MySQL row by row (fetch size MIN_VALUE) instead of buffered
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT p.id, p.paidAt, p.amount, p.paymentMethod, p.paymentStatus, p.stripePaymentIntentId,
+               a.id, a.dateTime, pt.firstname, pt.lastname, d.firstname, d.lastname
+        FROM Payment p
+        JOIN p.appointment a
+        JOIN a.patient pt
+        JOIN a.doctor d
+        WHERE (:from IS NULL OR p.paidAt >= :from)
+          AND (:to IS NULL OR p.paidAt < :to)
+          AND (:status IS NULL OR p.paymentStatus = :status)
+        ORDER BY p.id
+    """)
+    Stream<Object[]> streamForExport(@Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to,
+                                     @Param("status") String status);
 }
-    
-
@@ -1,8 +1,17 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
+import java.util.List;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import ptsd14.find.doctor.model.Specialization;
@@ -15,5 +24,16 @@ public interface SpecializationRepos extends JpaRepository<Specialization, Long>
     boolean existsByNameAndIdNot(String name, Long excludeId);
 
     Page<Specialization> findByNameContainingIgnoreCase(String trimmedSearch, Pageable pageable);
-    
+
+    // Served from the query cache; Hibernate invalidates it on any write to the table
+    @Override
+    @QueryHints(value = @QueryHint(name = HINT_CACHEABLE, value = "true"), forCounting = true)
+    Page<Specialization> findAll(Pageable pageable);
+
+    // (id, name) for the typeahead index
+    @Query("SELECT s.id, s.name FROM Specialization s")
+    List<Object[]> findNameRows();
+
+    @Query("SELECT s.id, s.name FROM Specialization s WHERE s.id = :id")
+    List<Object[]> findNameRow(@Param("id") Long id);
 }
@@ -4,22 +4,36 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import ptsd14.find.doctor.model.User;
-import ptsd14.find.doctor.model.UserRole;
 
-public interface UserRepo extends JpaRepository<User, Long> {
+public interface UserRepo extends BaseRepository<User, Long> {
     
     Optional<User> findByEmail(String email);
     
     boolean existsByEmail(String email);
 
-    Page<User> findByRoleAndEmailContainingIgnoreCase(UserRole role, String email, Pageable pageable);
+    Page<User> findAll(Pageable pageable);
 
-    Page<User> findByRole(UserRole role, Pageable pageable);
+    // List filters from UserFilter, any combination in one query
+    @Override
+    @EntityGraph(attributePaths = "role")
+    Page<User> findAll(Specification<User> spec, Pageable pageable);
 
-    Page<User> findByEmailContainingIgnoreCase(String email, Pageable pageable);
+    @Override
+    @EntityGraph(attributePaths = "role")
+    Slice<User> findSlice(Specification<User> spec, Pageable pageable);
 
-    Page<User> findAll(Pageable pageable);
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.role.id = :roleId")
+    int incrementTokenVersionByRoleId(@Param("roleId") Long roleId);
 }
@@ -1,10 +1,18 @@
 package ptsd14.find.doctor.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 import java.util.Optional;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import ptsd14.find.doctor.model.UserRole;
 
 public interface UserRoleRepository extends JpaRepository<UserRole, Long> {
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<UserRole> findByName(String name);
 }
 
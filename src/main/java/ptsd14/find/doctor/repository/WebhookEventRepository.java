@@ -0,0 +1,47 @@
+package ptsd14.find.doctor.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import ptsd14.find.doctor.model.WebhookEvent;
+import ptsd14.find.doctor.model.WebhookEventStatus;
+
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    boolean existsByEventId(String eventId);
+
+    // Events a worker should pick up: new or failed ones whose backoff elapsed, or claims left behind by a crash
+    @Query("""
+        SELECT e.id, e.partitionKey FROM WebhookEvent e
+        WHERE (e.status IN :statuses AND e.nextAttemptAt <= :now)
+           OR (e.status = ptsd14.find.doctor.model.WebhookEventStatus.PROCESSING AND e.nextAttemptAt <= :stuckBefore)
+        ORDER BY e.id
+        """)
+    List<Object[]> findDue(@Param("statuses") Collection<WebhookEventStatus> statuses,
+                           @Param("now") LocalDateTime now,
+                           @Param("stuckBefore") LocalDateTime stuckBefore,
+                           Pageable pageable);
+
+    // Atomically moves an event to PROCESSING so only one worker handles it
+    @Modifying
+    @Query("""
+        UPDATE WebhookEvent e
+        SET e.status = ptsd14.find.doctor.model.WebhookEventStatus.PROCESSING,
+            e.attempts = e.attempts + 1,
+            e.nextAttemptAt = :now
+        WHERE e.id = :id
+          AND (e.status IN :statuses
+               OR (e.status = ptsd14.find.doctor.model.WebhookEventStatus.PROCESSING AND e.nextAttemptAt <= :stuckBefore))
+        """)
+    int claim(@Param("id") Long id,
+              @Param("statuses") Collection<WebhookEventStatus> statuses,
+              @Param("now") LocalDateTime now,
+              @Param("stuckBefore") LocalDateTime stuckBefore);
+}
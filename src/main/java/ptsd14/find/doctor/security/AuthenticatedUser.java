@@ -0,0 +1,36 @@
+package ptsd14.find.doctor.security;
+
+import lombok.Getter;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal of an authenticated request. It carries the user id, either from
+ * the token's uid claim or from the user row, so controllers do not look the
+ * user up by email just to get it.
+ */
+@Getter
+public class AuthenticatedUser extends User {
+
+    private final Long userId;
+
+    public AuthenticatedUser(Long userId, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+
+    /**
+     * Id of the user behind the authentication.
+     */
+    public static Long userId(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.getUserId() != null) {
+            return user.getUserId();
+        }
+        throw new IllegalStateException("Principal carries no user id: " + authentication.getName());
+    }
+}
@@ -5,20 +5,28 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import ptsd14.find.doctor.jwt.JwtUtil;
+import ptsd14.find.doctor.security.VerifiedTokenCache.VerifiedToken;
 import ptsd14.find.doctor.service.CustomUserDetailsService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -26,6 +34,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final CustomUserDetailsService userDetailsService;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenVersionRegistry tokenVersions;
+
+    // When true, tokens carrying uid/ver claims are trusted for authorities and never hit the database
+    @Value("${jwt.stateless-principal:true}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(
@@ -35,43 +49,92 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        String email = null;
-        String token = null;
-
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            if (token == null || token.isEmpty()) {
-                logger.error("Authorization header contains no token");
-                filterChain.doFilter(request, response);
-                return;
-            }
-            // Validate token structure (JWT must have exactly 2 '.' chars)
-            long dotCount = token.chars().filter(ch -> ch == '.').count();
-            if (dotCount != 2) {
-                logger.error("Invalid JWT token format: does not contain 2 periods: " + token);
-                filterChain.doFilter(request, response);
-                return;
-            }
 
-            try {
-                email = jwtUtil.getEmailFromToken(token);
-            } catch (JwtException e) {
-                logger.error("Invalid JWT Token", e);
-            }
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
         }
 
+        String token = authHeader.substring(7);
+        if (token.isEmpty()) {
+            logger.error("Authorization header contains no token");
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // Validate token structure (JWT must have exactly 2 '.' chars)
+        long dotCount = token.chars().filter(ch -> ch == '.').count();
+        if (dotCount != 2) {
+            logger.error("Invalid JWT token format: does not contain 2 periods");
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-            if (jwtUtil.validateToken(token)) {
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
-                );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        VerifiedToken verified = tokenCache.get(token);
+        if (verified == null) {
+            verified = verify(token);
+        }
+
+        // A token with a user id but no version cannot be checked for revocation, so it is treated as revoked
+        if (verified != null && verified.getUserId() != null
+                && (verified.getTokenVersion() == null
+                    || !tokenVersions.isCurrent(verified.getUserId(), verified.getTokenVersion()))) {
+            logger.warn("Rejected revoked JWT for user " + verified.getUserId());
+            tokenCache.remove(token);
+            verified = null;
+        }
+
+        if (verified != null) {
+            UserDetails userDetails = verified.getPrincipal();
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities()
+            );
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // Parses and verifies the token once, then caches the principal until the token expires
+    private VerifiedToken verify(String token) {
+        try {
+            Claims claims = jwtUtil.parseClaims(token);
+            if (JwtUtil.isRefreshToken(claims)) {
+                // Only /api/auth/refresh accepts these; never as a bearer token
+                logger.warn("Rejected refresh token used as an access token");
+                return null;
+            }
+            Long userId = claims.get(JwtUtil.CLAIM_USER_ID, Long.class);
+            Long tokenVersion = claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Long.class);
+
+            UserDetails userDetails;
+            if (statelessPrincipal && userId != null && tokenVersion != null) {
+                userDetails = new AuthenticatedUser(userId, claims.getSubject(), "", authoritiesFrom(claims));
+            } else {
+                // Tokens issued before uid/ver claims existed still resolve authorities from the database
+                userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            }
+
+            VerifiedToken verified = new VerifiedToken(userDetails, userId, tokenVersion);
+            tokenCache.put(token, verified, claims.getExpiration());
+            return verified;
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("Invalid JWT Token", e);
+        } catch (UsernameNotFoundException e) {
+            logger.warn("JWT subject no longer exists: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static List<SimpleGrantedAuthority> authoritiesFrom(Claims claims) {
+        Object raw = claims.get(JwtUtil.CLAIM_AUTHORITIES);
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        if (raw instanceof Collection<?> values) {
+            values.forEach(value -> authorities.add(new SimpleGrantedAuthority(value.toString())));
+        } else if (raw instanceof String value && !value.isBlank()) {
+            authorities.add(new SimpleGrantedAuthority(value));
+        }
+        return authorities;
+    }
 }
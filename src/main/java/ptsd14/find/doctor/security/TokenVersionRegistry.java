@@ -0,0 +1,66 @@
+package ptsd14.find.doctor.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.event.TokensRevokedEvent;
+import ptsd14.find.doctor.repository.UserRepo;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of each user's current token version. A token is only
+ * accepted while its "ver" claim matches, so bumping User.tokenVersion logs
+ * the user out everywhere. Versions are read from the database once per TTL.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private static final long UNKNOWN_USER = -1L;
+
+    private final UserRepo userRepository;
+    private final long ttlMillis;
+    private final Map<Long, Entry> versions = new ConcurrentHashMap<>();
+
+    public TokenVersionRegistry(UserRepo userRepository,
+                                @Value("${jwt.version-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return currentVersion(userId) == tokenVersion;
+    }
+
+    public long currentVersion(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = versions.get(userId);
+        if (entry != null && entry.getLoadedAt() + ttlMillis > now) {
+            return entry.getVersion();
+        }
+        long version = userRepository.findTokenVersionById(userId).orElse(UNKNOWN_USER);
+        versions.put(userId, new Entry(version, now));
+        return version;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokensRevoked(TokensRevokedEvent event) {
+        if (event.getUserId() == null) {
+            versions.clear();
+        } else {
+            versions.remove(event.getUserId());
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final long version;
+        private final long loadedAt;
+    }
+}
@@ -0,0 +1,130 @@
+package ptsd14.find.doctor.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of already verified access tokens. Entries are keyed by the
+ * SHA-256 digest of the token, so raw tokens are never held in memory, and
+ * expire with the token or after the configured TTL, whichever comes first.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize,
+                              @Value("${jwt.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public VerifiedToken get(String token) {
+        String digest = digest(token);
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getExpiresAt() <= System.currentTimeMillis()) {
+            entries.remove(digest, entry);
+            return null;
+        }
+        return entry.getToken();
+    }
+
+    public void put(String token, VerifiedToken verified, Date tokenExpiration) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + ttlMillis;
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            makeRoom(now);
+        }
+        entries.put(digest(token), new Entry(verified, expiresAt));
+    }
+
+    public void remove(String token) {
+        entries.remove(digest(token));
+    }
+
+    // Drops every cached principal for this user, e.g. after a role change
+    public void evictUser(String username) {
+        entries.values().removeIf(entry -> entry.getToken().getPrincipal().getUsername().equals(username));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.getExpiresAt() <= now);
+    }
+
+    private void makeRoom(long now) {
+        entries.values().removeIf(entry -> entry.getExpiresAt() <= now);
+        if (entries.size() < maxSize) {
+            return;
+        }
+        // Still full: drop an arbitrary tenth, those tokens are simply verified again
+        Iterator<String> keys = entries.keySet().iterator();
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Principal built from a verified token. userId and tokenVersion are null
+     * for tokens issued before they were added to the claims.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class VerifiedToken {
+        private final UserDetails principal;
+        private final Long userId;
+        private final Long tokenVersion;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final VerifiedToken token;
+        private final long expiresAt;
+    }
+}
@@ -0,0 +1,116 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ptsd14.find.doctor.event.AppointmentsArchivedEvent;
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedAppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedFeedbackRepository;
+import ptsd14.find.doctor.repository.ArchivedPaymentRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+import ptsd14.find.doctor.repository.PaymentRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves finished appointments older than the horizon, together with their
+ * payment and feedback, into the archive tables. Each batch is copied with
+ * INSERT ... SELECT and deleted from the hot tables in one short transaction,
+ * so the hot tables only hold recent and open appointments.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppointmentArchiveService {
+
+    private static final Set<AppointmentStatus> FINAL_STATUSES =
+            EnumSet.of(AppointmentStatus.COMPLETED, AppointmentStatus.CANCELED);
+    // Keeps the last month of payments hot for the dashboard's daily revenue chart
+    private static final int MIN_HORIZON_DAYS = 31;
+
+    private final AppointmentRepository appointmentRepository;
+    private final PaymentRepository paymentRepository;
+    private final FeedbackRepository feedbackRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final ArchivedFeedbackRepository archivedFeedbackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.archive.horizon-days:365}")
+    private int horizonDays = 365;
+
+    @Value("${app.archive.batch-size:500}")
+    private int batchSize = 500;
+
+    // Bounds one run; whatever is left is picked up by the next one
+    @Value("${app.archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun = 200;
+
+    /**
+     * Archives up to maxBatchesPerRun batches and returns the number of
+     * appointments moved. Overlapping runs on one node are skipped.
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public int archive() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Appointment archive already running, skipping");
+            return 0;
+        }
+        try {
+            LocalDateTime before = LocalDate.now().minusDays(Math.max(horizonDays, MIN_HORIZON_DAYS)).atStartOfDay();
+            long start = System.currentTimeMillis();
+            int total = 0;
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                Integer moved = transactionTemplate.execute(status -> archiveBatch(before));
+                if (moved == null || moved == 0) {
+                    break;
+                }
+                total += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Archived {} appointments older than {} in {} ms", total, before, System.currentTimeMillis() - start);
+                eventPublisher.publishEvent(new AppointmentsArchivedEvent(total));
+            }
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archiveBatch(LocalDateTime before) {
+        List<Long> ids = appointmentRepository.findArchivableIds(FINAL_STATUSES, before, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        archivedAppointmentRepository.copyFromHot(ids, LocalDateTime.now());
+        archivedPaymentRepository.copyFromHot(ids);
+        archivedFeedbackRepository.copyFromHot(ids);
+
+        // Children first; these bulk deletes skip cascades and rating events, which is what we want here
+        feedbackRepository.deleteByAppointmentIds(ids);
+        paymentRepository.deleteByAppointmentIds(ids);
+        appointmentRepository.deleteAllByIdInBatch(ids);
+        return ids.size();
+    }
+}
@@ -0,0 +1,64 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedAppointmentRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reads appointment history across the hot and archive tiers as if they
+ * were one table, newest first.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentHistoryService {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "dateTime").and(Sort.by(Sort.Direction.DESC, "id"));
+    private static final Comparator<AppointmentDto> NEWEST_FIRST_ORDER = Comparator
+            .comparing(AppointmentDto::getDateTime, Comparator.reverseOrder())
+            .thenComparing(AppointmentDto::getId, Comparator.reverseOrder());
+    // Deepest row a history page may reach; each tier is read up to this many rows
+    static final int MAX_WINDOW = 5000;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    /**
+     * Each tier returns its first offset + size rows in the same order, so
+     * the requested page is exactly that slice of their merge.
+     */
+    @Transactional(readOnly = true)
+    public Page<AppointmentDto> getPatientHistory(Long userId, Pageable pageable) {
+        long end = pageable.getOffset() + pageable.getPageSize();
+        if (end > MAX_WINDOW) {
+            throw new IllegalArgumentException("History pages are limited to the newest " + MAX_WINDOW + " appointments.");
+        }
+        Pageable window = PageRequest.of(0, (int) end, NEWEST_FIRST);
+
+        Page<AppointmentDto> hot = appointmentRepository.findDtosByPatientUserId(userId, window);
+        Page<AppointmentDto> archived = archivedAppointmentRepository.findDtosByPatientUserId(userId, window);
+        archived.forEach(dto -> dto.setArchived(true));
+
+        List<AppointmentDto> merged = new ArrayList<>(hot.getNumberOfElements() + archived.getNumberOfElements());
+        merged.addAll(hot.getContent());
+        merged.addAll(archived.getContent());
+        merged.sort(NEWEST_FIRST_ORDER);
+
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = (int) Math.min(end, merged.size());
+        return new PageImpl<>(merged.subList(from, to), pageable, hot.getTotalElements() + archived.getTotalElements());
+    }
+}
@@ -0,0 +1,472 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ptsd14.find.doctor.dto.ImportReportDto;
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.event.AppointmentsImportedEvent;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.model.AppointmentType;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.AppointmentTypeRepository;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.PatientRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Streaming CSV import of historical appointments. Rows are read in chunks;
+ * each chunk resolves its doctor, patient and type ids with one IN query per
+ * kind (ids seen earlier are remembered), is validated in memory and is then
+ * written in its own transaction as a JDBC batch. Invalid rows are reported
+ * by line number and never abort the import.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppointmentImportService {
+
+    static final String DOCTOR_ID = "doctorid";
+    static final String PATIENT_ID = "patientid";
+    static final String TYPE_ID = "appointmenttypeid";
+    static final String DATE_TIME = "datetime";
+    static final String NOTE = "note";
+    static final String STATUS = "status";
+
+    private static final List<String> REQUIRED_COLUMNS = List.of(DOCTOR_ID, PATIENT_ID, TYPE_ID, DATE_TIME, NOTE);
+    private static final int MAX_NOTE_LENGTH = 255;
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final PatientRepository patientRepository;
+    private final AppointmentTypeRepository appointmentTypeRepository;
+    private final DoctorAvailabilityIndex availabilityIndex;
+    private final DoctorBookingLocks bookingLocks;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${app.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+
+    /**
+     * Imports appointments from CSV with a header row naming the columns
+     * doctorId, patientId, appointmentTypeId, dateTime (ISO-8601), note and an
+     * optional status. A missing status means PENDING for future appointments
+     * and COMPLETED for past ones.
+     */
+    public ImportReportDto importCsv(Reader source) throws IOException {
+        CsvReader csv = new CsvReader(source);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV is empty");
+        }
+        Map<String, Integer> columns = resolveColumns(header);
+
+        ImportReportDto report = new ImportReportDto();
+        Lookups lookups = new Lookups();
+        // Upcoming rows take the doctor booking locks, which need READ COMMITTED
+        TransactionTemplate chunkTransaction = new TransactionTemplate(
+                transactionTemplate.getTransactionManager(), transactionTemplate);
+        chunkTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        List<RawRow> chunk = new ArrayList<>(chunkSize);
+        long start = System.currentTimeMillis();
+
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            chunk.add(new RawRow(csv.getRecordLine(), record));
+            if (chunk.size() >= chunkSize) {
+                importChunk(chunk, columns, lookups, report, chunkTransaction);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, columns, lookups, report, chunkTransaction);
+        }
+
+        log.info("Appointment import finished: {} rows, {} imported, {} failed in {} ms",
+                report.getTotalRows(), report.getImported(), report.getFailed(), System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private void importChunk(List<RawRow> rawRows, Map<String, Integer> columns, Lookups lookups, ImportReportDto report,
+                             TransactionTemplate chunkTransaction) {
+        report.setTotalRows(report.getTotalRows() + rawRows.size());
+        LocalDateTime now = LocalDateTime.now();
+        // Errors come from several passes over the chunk; keyed by line so the report stays in file order
+        Map<Long, String> errors = new TreeMap<>();
+
+        List<ImportRow> rows = new ArrayList<>(rawRows.size());
+        for (RawRow raw : rawRows) {
+            try {
+                rows.add(parse(raw, columns, now));
+            } catch (IllegalArgumentException e) {
+                errors.put(raw.line(), e.getMessage());
+            }
+        }
+
+        resolve(rows, lookups);
+
+        List<ImportRow> valid = new ArrayList<>(rows.size());
+        Map<Long, List<ImportRow>> chunkBookings = new HashMap<>();
+        for (ImportRow row : rows) {
+            String error = validate(row, lookups, chunkBookings, now);
+            if (error != null) {
+                errors.put(row.line, error);
+            } else {
+                valid.add(row);
+            }
+        }
+
+        if (!valid.isEmpty()) {
+            try {
+                List<ImportRow> taken = chunkTransaction.execute(status -> write(valid, now));
+                report.setImported(report.getImported() + valid.size() - taken.size());
+                taken.forEach(row -> errors.put(row.line, "Doctor is not available at " + row.dateTime));
+            } catch (RuntimeException e) {
+                String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Import chunk of {} rows failed: {}", valid.size(), message);
+                valid.forEach(row -> errors.put(row.line, "Chunk could not be saved: " + message));
+            }
+        }
+        errors.forEach((line, message) -> reject(report, line, message));
+    }
+
+    // Saves the rows and returns those left out because their slot was booked in the meantime
+    private List<ImportRow> write(List<ImportRow> candidates, LocalDateTime now) {
+        List<ImportRow> taken = findTakenSlots(candidates, now);
+        List<ImportRow> rows = taken.isEmpty() ? candidates
+                : candidates.stream().filter(row -> !taken.contains(row)).toList();
+        if (rows.isEmpty()) {
+            return taken;
+        }
+
+        List<Appointment> appointments = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(doctorRepository.getReferenceById(row.doctorId));
+            appointment.setPatient(patientRepository.getReferenceById(row.patientId));
+            appointment.setAppointmentType(appointmentTypeRepository.getReferenceById(row.typeId));
+            appointment.setDateTime(row.dateTime);
+            appointment.setNote(row.note);
+            appointment.setStatus(row.status);
+            appointments.add(appointment);
+        }
+        appointmentRepository.saveAll(appointments);
+
+        // Only upcoming bookings matter to the availability index and live dashboards
+        for (int i = 0; i < appointments.size(); i++) {
+            ImportRow row = rows.get(i);
+            if (row.blocksSlot(now)) {
+                eventPublisher.publishEvent(new AppointmentChangedEvent(
+                        AppointmentChangedEvent.Action.CREATED, appointments.get(i).getId(),
+                        row.doctorId, row.dateTime, row.durationMinutes, row.status));
+            }
+        }
+        eventPublisher.publishEvent(new AppointmentsImportedEvent(appointments.size()));
+        return taken;
+    }
+
+    /**
+     * Upcoming rows go through the same guard as single bookings: the doctors'
+     * booking locks and row locks, then the overlap check against the database,
+     * which also sees bookings made since the chunk was validated.
+     */
+    private List<ImportRow> findTakenSlots(List<ImportRow> rows, LocalDateTime now) {
+        List<ImportRow> upcoming = rows.stream().filter(row -> row.blocksSlot(now)).toList();
+        if (upcoming.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> doctorIds = new TreeSet<>();
+        upcoming.forEach(row -> doctorIds.add(row.doctorId));
+        bookingLocks.lockAllUntilCompletion(doctorIds);
+        doctorIds.forEach(doctorRepository::findByIdForUpdate);
+
+        List<ImportRow> taken = new ArrayList<>();
+        for (ImportRow row : upcoming) {
+            LocalDateTime end = row.dateTime.plusMinutes(row.durationMinutes);
+            List<Object[]> slots = appointmentRepository.findDoctorSlotsBetween(row.doctorId,
+                    row.dateTime.minusMinutes(AppointmentService.MAX_BOOKING_MINUTES), end, AppointmentStatus.CANCELED);
+            for (Object[] slot : slots) {
+                int minutes = slot[2] != null && (Integer) slot[2] > 0
+                        ? (Integer) slot[2]
+                        : DoctorAvailabilityIndex.DEFAULT_DURATION_MINUTES;
+                if (((LocalDateTime) slot[1]).plusMinutes(minutes).isAfter(row.dateTime)) {
+                    taken.add(row);
+                    break;
+                }
+            }
+        }
+        return taken;
+    }
+
+    private ImportRow parse(RawRow raw, Map<String, Integer> columns, LocalDateTime now) {
+        ImportRow row = new ImportRow(raw.line());
+        row.doctorId = parseId(raw, columns, DOCTOR_ID, "doctorId");
+        row.patientId = parseId(raw, columns, PATIENT_ID, "patientId");
+        row.typeId = parseId(raw, columns, TYPE_ID, "appointmentTypeId");
+
+        String dateTime = field(raw, columns, DATE_TIME);
+        if (dateTime.isEmpty()) {
+            throw new IllegalArgumentException("dateTime is required");
+        }
+        try {
+            row.dateTime = LocalDateTime.parse(dateTime);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid dateTime '" + dateTime + "', expected ISO-8601 such as 2024-05-01T09:30");
+        }
+
+        row.note = field(raw, columns, NOTE);
+        if (row.note.isEmpty()) {
+            throw new IllegalArgumentException("note is required");
+        }
+        if (row.note.length() > MAX_NOTE_LENGTH) {
+            throw new IllegalArgumentException("note is longer than " + MAX_NOTE_LENGTH + " characters");
+        }
+
+        String status = field(raw, columns, STATUS);
+        if (status.isEmpty()) {
+            row.status = row.dateTime.isAfter(now) ? AppointmentStatus.PENDING : AppointmentStatus.COMPLETED;
+        } else {
+            try {
+                row.status = AppointmentStatus.valueOf(status.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid status '" + status + "'");
+            }
+        }
+        return row;
+    }
+
+    // One IN query per kind for ids this import has not seen yet
+    private void resolve(List<ImportRow> rows, Lookups lookups) {
+        Set<Long> doctorIds = new HashSet<>();
+        Set<Long> patientIds = new HashSet<>();
+        Set<Long> typeIds = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (!lookups.doctors.containsKey(row.doctorId)) {
+                doctorIds.add(row.doctorId);
+            }
+            if (!lookups.patients.containsKey(row.patientId)) {
+                patientIds.add(row.patientId);
+            }
+            if (!lookups.typeMinutes.containsKey(row.typeId)) {
+                typeIds.add(row.typeId);
+            }
+        }
+
+        if (!doctorIds.isEmpty()) {
+            Set<Long> existing = doctorRepository.findExistingIds(doctorIds);
+            doctorIds.forEach(id -> lookups.doctors.put(id, existing.contains(id)));
+        }
+        if (!patientIds.isEmpty()) {
+            Set<Long> existing = patientRepository.findExistingIds(patientIds);
+            patientIds.forEach(id -> lookups.patients.put(id, existing.contains(id)));
+        }
+        if (!typeIds.isEmpty()) {
+            typeIds.forEach(id -> lookups.typeMinutes.put(id, Lookups.MISSING));
+            for (AppointmentType type : appointmentTypeRepository.findAllById(typeIds)) {
+                int minutes = type.getDuration() != null && type.getDuration() > 0
+                        ? type.getDuration()
+                        : DoctorAvailabilityIndex.DEFAULT_DURATION_MINUTES;
+                lookups.typeMinutes.put(type.getId(), minutes);
+            }
+        }
+    }
+
+    private String validate(ImportRow row, Lookups lookups, Map<Long, List<ImportRow>> chunkBookings, LocalDateTime now) {
+        if (!lookups.doctors.get(row.doctorId)) {
+            return "Doctor " + row.doctorId + " not found";
+        }
+        if (!lookups.patients.get(row.patientId)) {
+            return "Patient " + row.patientId + " not found";
+        }
+        int minutes = lookups.typeMinutes.get(row.typeId);
+        if (minutes == Lookups.MISSING) {
+            return "Appointment type " + row.typeId + " not found";
+        }
+        row.durationMinutes = minutes;
+
+        if (row.blocksSlot(now)) {
+            LocalDateTime end = row.dateTime.plusMinutes(minutes);
+            if (availabilityIndex.hasConfirmedConflict(row.doctorId, row.dateTime, end, null)) {
+                return "Doctor is not available at " + row.dateTime;
+            }
+            // Earlier chunks are already in the index; rows of this chunk are checked against each other
+            List<ImportRow> booked = chunkBookings.computeIfAbsent(row.doctorId, id -> new ArrayList<>());
+            for (ImportRow other : booked) {
+                if (other.dateTime.isBefore(end) && other.dateTime.plusMinutes(other.durationMinutes).isAfter(row.dateTime)) {
+                    return "Overlaps the appointment on line " + other.line;
+                }
+            }
+            booked.add(row);
+        }
+        return null;
+    }
+
+    private void reject(ImportReportDto report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ImportReportDto.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static Map<String, Integer> resolveColumns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("CSV header is missing columns: " + missing);
+        }
+        return columns;
+    }
+
+    private static Long parseId(RawRow raw, Map<String, Integer> columns, String column, String label) {
+        String value = field(raw, columns, column);
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(label + " is required");
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + label + " '" + value + "'");
+        }
+    }
+
+    private static String field(RawRow raw, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= raw.fields().size()) {
+            return "";
+        }
+        return raw.fields().get(index).trim();
+    }
+
+    private record RawRow(long line, List<String> fields) {
+    }
+
+    private static final class ImportRow {
+        final long line;
+        Long doctorId;
+        Long patientId;
+        Long typeId;
+        LocalDateTime dateTime;
+        String note;
+        AppointmentStatus status;
+        int durationMinutes;
+
+        ImportRow(long line) {
+            this.line = line;
+        }
+
+        boolean blocksSlot(LocalDateTime now) {
+            return status != AppointmentStatus.CANCELED && dateTime.isAfter(now);
+        }
+    }
+
+    // Ids already resolved during this import, so each is looked up at most once
+    private static final class Lookups {
+        static final int MISSING = -1;
+
+        final Map<Long, Boolean> doctors = new HashMap<>();
+        final Map<Long, Boolean> patients = new HashMap<>();
+        final Map<Long, Integer> typeMinutes = new HashMap<>();
+    }
+
+    /**
+     * Minimal RFC 4180 reader: quoted fields may contain commas, doubled
+     * quotes and line breaks. Reads one record at a time.
+     */
+    static final class CsvReader {
+
+        private final BufferedReader reader;
+        private long line = 0;
+        private long recordLine;
+
+        CsvReader(Reader source) {
+            this.reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        }
+
+        long getRecordLine() {
+            return recordLine;
+        }
+
+        List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            line++;
+            recordLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r') {
+                    // Dropped; the following \n ends the record
+                } else if (c == '\n') {
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,38 +1,177 @@
 package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.dto.BulkStatusResultDto;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.exception.BookingConflictException;
+import ptsd14.find.doctor.exception.InvalidStatusTransitionException;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.filter.AppointmentFilter;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.index.NameTrigramIndex;
 import ptsd14.find.doctor.mapper.AppointmentMapper;
 import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.projection.FieldSelection;
 import ptsd14.find.doctor.repository.*;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class AppointmentService {
 
+    // Bookings longer than this are not expected; bounds the overlap scan window
+    static final int MAX_BOOKING_MINUTES = 24 * 60;
+    // Caps the IN list of one bulk status update
+    public static final int MAX_BULK_IDS = 500;
+
     private final AppointmentRepository appointmentRepository;
     private final AppointmentMapper appointmentMapper;
     private final DoctorRepository doctorRepository;
     private final PatientRepository patientRepository;
     private final AppointmentTypeRepository appointmentTypeRepository;
+    private final DoctorAvailabilityIndex availabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DoctorBookingLocks bookingLocks;
+    private final NameTrigramIndex nameIndex;
+    private final CountCache countCache;
 
     @Transactional(readOnly = true)
     public Page<AppointmentDto> getAll(Pageable pageable, String search) {
+        String term = search == null ? "" : search.trim();
+        List<Long> doctorIds = matchDoctors(term);
+        if (doctorIds != null && doctorIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return countCache.page(findDtos(term, doctorIds, pageable), CountCache.Scope.APPOINTMENTS, term,
+                () -> countDtos(term, doctorIds));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<AppointmentDto> getSlice(Pageable pageable, String search) {
+        String term = search == null ? "" : search.trim();
+        List<Long> doctorIds = matchDoctors(term);
+        if (doctorIds != null && doctorIds.isEmpty()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        return findDtos(term, doctorIds, pageable);
+    }
+
+    // The admin, doctor and patient lists with only the requested fields, for ?fields=
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getFields(AppointmentFilter filter, FieldSelection<Appointment> fields,
+                                                Pageable pageable, boolean withTotal) {
+        long[] doctorIds = filter.hasSearch() ? nameIndex.searchDoctors(filter.getSearch().trim()) : null;
+        if (doctorIds != null && doctorIds.length > NameTrigramIndex.MAX_IN_IDS) {
+            doctorIds = null;
+        }
+        if (doctorIds != null && doctorIds.length == 0) {
+            return Page.empty(pageable);
+        }
+        Specification<Appointment> spec = filter.toSpecification(doctorIds);
+        Slice<Map<String, Object>> rows = appointmentRepository.findFields(fields, spec, pageable);
+        return withTotal
+                ? countCache.page(rows, CountCache.Scope.APPOINTMENTS, filter, () -> appointmentRepository.count(spec))
+                : rows;
+    }
+
+    // Doctors the name index resolved the search to, or null to match names with LIKE
+    private List<Long> matchDoctors(String term) {
+        if (term.isEmpty()) {
+            return null;
+        }
+        long[] doctorIds = nameIndex.searchDoctors(term);
+        return doctorIds != null && doctorIds.length <= NameTrigramIndex.MAX_IN_IDS
+                ? NameTrigramIndex.toList(doctorIds)
+                : null;
+    }
+
+    private Slice<AppointmentDto> findDtos(String term, List<Long> doctorIds, Pageable pageable) {
+        if (term.isEmpty()) {
+            return appointmentRepository.findAllDtos(pageable);
+        }
+        if (doctorIds != null) {
+            return appointmentRepository.findDtosByDoctorIds(doctorIds, pageable);
+        }
+        return appointmentRepository.findDtosByDoctorName(term, pageable);
+    }
+
+    private long countDtos(String term, List<Long> doctorIds) {
+        if (term.isEmpty()) {
+            return appointmentRepository.count();
+        }
+        if (doctorIds != null) {
+            return appointmentRepository.countDtosByDoctorIds(doctorIds);
+        }
+        return appointmentRepository.countDtosByDoctorName(term);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<AppointmentDto> getAll(String after, int size, String search) {
+        Long afterId = decodeCursor(after);
+        Pageable pageable = PageRequest.of(0, size);
+
+        Slice<AppointmentDto> slice;
+        long[] doctorIds = search == null || search.trim().isEmpty() ? null : nameIndex.searchDoctors(search);
         if (search == null || search.trim().isEmpty()) {
-            return appointmentRepository.findAll(pageable)
-                    .map(appointmentMapper::toDto);
+            slice = appointmentRepository.findDtosAfter(afterId, pageable);
+        } else if (doctorIds != null && doctorIds.length == 0) {
+            slice = new SliceImpl<>(List.of(), pageable, false);
+        } else if (doctorIds != null && doctorIds.length <= NameTrigramIndex.MAX_IN_IDS) {
+            slice = appointmentRepository.findDtosByDoctorIdsAfter(NameTrigramIndex.toList(doctorIds), afterId, pageable);
         } else {
-            return appointmentRepository.findByDoctorNameContainingIgnoreCase(search.trim(), pageable)
-                    .map(appointmentMapper::toDto);
+            slice = appointmentRepository.findDtosByDoctorNameAfter(search.trim(), afterId, pageable);
+        }
+
+        String nextCursor = slice.hasNext() && slice.hasContent()
+                ? encodeCursor(slice.getContent().get(slice.getNumberOfElements() - 1).getId())
+                : null;
+        return new SliceDto<>(
+                slice.getContent(),
+                size,
+                null,
+                slice.hasNext(),
+                nextCursor
+        );
+    }
+
+    private static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
         }
     }
 
@@ -42,49 +181,66 @@ public class AppointmentService {
                 .map(appointmentMapper::toDto);
     }
 
-    @Transactional
+    // READ COMMITTED so the overlap check sees bookings committed while we waited for the doctor lock
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public AppointmentDto create(AppointmentDto dto) {
         if (dto.getDateTime() == null || dto.getDateTime().isBefore(LocalDateTime.now())) {
         throw new IllegalArgumentException("Appointment date and time must be in the future.");
     }
         Appointment appointment = appointmentMapper.toEntity(dto);
 
-        Doctor doctor = doctorRepository.findById(dto.getDoctorId())
-                .orElseThrow(() -> new ResourceNotFoundException("Doctor not found"));
         Patient patient = patientRepository.findById(dto.getPatientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Patient not found"));
         AppointmentType appointmentType = appointmentTypeRepository.findById(dto.getAppointmentTypeId())
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment type not found"));
 
+        checkAvailability(dto.getDoctorId(), dto.getDateTime(), appointmentType, null);
+        Doctor doctor = lockDoctor(dto.getDoctorId());
+        checkOverlapInDatabase(dto.getDoctorId(), dto.getDateTime(), appointmentType, null);
+
         appointment.setDoctor(doctor);
         appointment.setPatient(patient);
         appointment.setAppointmentType(appointmentType);
         appointment.setStatus(AppointmentStatus.PENDING);
 
         Appointment saved = appointmentRepository.save(appointment);
+        eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Action.CREATED, saved));
         return appointmentMapper.toDto(saved);
     }
 
-    @Transactional
+    // READ COMMITTED so the overlap check sees bookings committed while we waited for the doctor lock
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public AppointmentDto update(Long id, AppointmentDto dto) {
         Appointment existing = appointmentRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found"));
+        if (dto.getVersion() != null && !dto.getVersion().equals(existing.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+        }
 
         existing.setDateTime(dto.getDateTime());
         existing.setNote(dto.getNote());
 
-        Doctor doctor = doctorRepository.findById(dto.getDoctorId())
-                .orElseThrow(() -> new ResourceNotFoundException("Doctor not found"));
         Patient patient = patientRepository.findById(dto.getPatientId())
                 .orElseThrow(() -> new ResourceNotFoundException("Patient not found"));
         AppointmentType appointmentType = appointmentTypeRepository.findById(dto.getAppointmentTypeId())
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment type not found"));
 
+        Doctor doctor;
+        if (existing.getStatus() != AppointmentStatus.CANCELED) {
+            checkAvailability(dto.getDoctorId(), dto.getDateTime(), appointmentType, id);
+            doctor = lockDoctor(dto.getDoctorId());
+            checkOverlapInDatabase(dto.getDoctorId(), dto.getDateTime(), appointmentType, id);
+        } else {
+            doctor = doctorRepository.findById(dto.getDoctorId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Doctor not found"));
+        }
+
         existing.setDoctor(doctor);
         existing.setPatient(patient);
         existing.setAppointmentType(appointmentType);
 
         Appointment updated = appointmentRepository.save(existing);
+        eventPublisher.publishEvent(AppointmentChangedEvent.of(AppointmentChangedEvent.Action.UPDATED, updated));
         return appointmentMapper.toDto(updated);
     }
 
@@ -94,28 +250,183 @@ public class AppointmentService {
             throw new ResourceNotFoundException("Appointment not found");
         }
         appointmentRepository.deleteById(id);
+        eventPublisher.publishEvent(AppointmentChangedEvent.deleted(id));
     }
 
+    /**
+     * Moves an appointment along the status state machine with a single
+     * conditional UPDATE, so concurrent doctor and patient actions cannot
+     * overwrite each other.
+     */
     @Transactional
     public AppointmentDto updateStatus(Long id, AppointmentStatus status) {
-        Appointment appointment = appointmentRepository.findById(id)
+        Set<AppointmentStatus> sources = status.allowedSources();
+        int updated = sources.isEmpty()
+                ? 0
+                : appointmentRepository.transitionStatus(id, sources, status, LocalDateTime.now());
+        if (updated == 0) {
+            AppointmentStatus current = appointmentRepository.findStatusById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Appointment not found"));
+            throw new InvalidStatusTransitionException(
+                    "Cannot change appointment status from " + current + " to " + status + ".");
+        }
+
+        AppointmentDto dto = appointmentRepository.findDtoById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment not found"));
+        eventPublisher.publishEvent(new AppointmentChangedEvent(
+                AppointmentChangedEvent.Action.STATUS_CHANGED, id, dto.getDoctorId(), dto.getDateTime(), null, status));
+        return dto;
+    }
+
+    /**
+     * Applies one status transition to many of the logged-in doctor's
+     * appointments with a single UPDATE and reports what happened to each id.
+     */
+    @Transactional
+    public BulkStatusResultDto updateStatusForDoctor(Long doctorUserId, Collection<Long> ids, AppointmentStatus status) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > MAX_BULK_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_IDS + " appointments can be updated at once.");
+        }
+
+        BulkStatusResultDto result = new BulkStatusResultDto();
+        result.setTarget(status);
+        if (distinctIds.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, Object[]> before = new HashMap<>();
+        for (Object[] row : appointmentRepository.findStatusRows(distinctIds)) {
+            before.put((Long) row[0], row);
+        }
 
-        appointment.setStatus(status);
-        appointment = appointmentRepository.save(appointment);
-        return appointmentMapper.toDto(appointment);
+        Set<AppointmentStatus> sources = status.allowedSources();
+        int updated = sources.isEmpty()
+                ? 0
+                : appointmentRepository.transitionStatusForDoctor(
+                        distinctIds, sources, status, doctorUserId, LocalDateTime.now());
+        result.setUpdated(updated);
+
+        Map<Long, Object[]> after = new HashMap<>();
+        if (updated > 0) {
+            for (Object[] row : appointmentRepository.findStatusRows(before.keySet())) {
+                after.put((Long) row[0], row);
+            }
+        }
+
+        for (Long id : distinctIds) {
+            Object[] row = before.get(id);
+            if (row == null) {
+                result.getOutcomes().add(new BulkStatusResultDto.Outcome(id, BulkStatusResultDto.Result.NOT_FOUND, null));
+                continue;
+            }
+            if (!doctorUserId.equals(row[4])) {
+                result.getOutcomes().add(new BulkStatusResultDto.Outcome(id, BulkStatusResultDto.Result.NOT_OWNED, null));
+                continue;
+            }
+            // Our UPDATE bumped the version exactly once and left the row in the target state
+            Object[] now = after.get(id);
+            if (now != null && now[1] == status && ((Long) now[2]) == ((Long) row[2]) + 1) {
+                result.getOutcomes().add(new BulkStatusResultDto.Outcome(id, BulkStatusResultDto.Result.UPDATED, status));
+                eventPublisher.publishEvent(new AppointmentChangedEvent(AppointmentChangedEvent.Action.STATUS_CHANGED,
+                        id, (Long) row[3], (LocalDateTime) row[5], null, status));
+            } else {
+                AppointmentStatus current = (AppointmentStatus) (now != null ? now[1] : row[1]);
+                result.getOutcomes().add(new BulkStatusResultDto.Outcome(id, BulkStatusResultDto.Result.INVALID_TRANSITION, current));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Completes every confirmed appointment the logged-in doctor has on the given day.
+     */
+    @Transactional
+    public BulkStatusResultDto completeConfirmedForDoctor(Long doctorUserId, LocalDate date) {
+        List<Long> ids = appointmentRepository.findIdsForDoctorBetween(doctorUserId, AppointmentStatus.CONFIRMED,
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+        BulkStatusResultDto result = new BulkStatusResultDto();
+        result.setTarget(AppointmentStatus.COMPLETED);
+        // A busy day can hold more than one bulk request allows, so go through it in batches
+        for (int from = 0; from < ids.size(); from += MAX_BULK_IDS) {
+            BulkStatusResultDto batch = updateStatusForDoctor(doctorUserId,
+                    ids.subList(from, Math.min(from + MAX_BULK_IDS, ids.size())), AppointmentStatus.COMPLETED);
+            result.setUpdated(result.getUpdated() + batch.getUpdated());
+            result.getOutcomes().addAll(batch.getOutcomes());
+        }
+        return result;
+    }
+
+    /**
+     * Serializes bookings for one doctor: first on a striped lock in this JVM,
+     * then on the doctor row (SELECT ... FOR UPDATE) so other nodes wait too.
+     * Both are held until the transaction ends.
+     */
+    private Doctor lockDoctor(Long doctorId) {
+        bookingLocks.lockUntilCompletion(doctorId);
+        return doctorRepository.findByIdForUpdate(doctorId)
+                .orElseThrow(() -> new ResourceNotFoundException("Doctor not found"));
+    }
+
+    // Authoritative check under the doctor lock; the index check above only rejects confirmed conflicts early
+    private void checkOverlapInDatabase(Long doctorId, LocalDateTime start, AppointmentType type, Long excludeAppointmentId) {
+        if (start == null) {
+            return;
+        }
+        LocalDateTime end = start.plusMinutes(durationOf(type.getDuration()));
+        List<Object[]> slots = appointmentRepository.findDoctorSlotsBetween(
+                doctorId, start.minusMinutes(MAX_BOOKING_MINUTES), end, AppointmentStatus.CANCELED);
+        for (Object[] slot : slots) {
+            if (slot[0].equals(excludeAppointmentId)) {
+                continue;
+            }
+            LocalDateTime otherStart = (LocalDateTime) slot[1];
+            if (otherStart.plusMinutes(durationOf((Integer) slot[2])).isAfter(start)) {
+                throw new BookingConflictException("Doctor is not available at the requested time.");
+            }
+        }
+    }
+
+    private static int durationOf(Integer minutes) {
+        return minutes != null && minutes > 0 ? minutes : DoctorAvailabilityIndex.DEFAULT_DURATION_MINUTES;
+    }
+
+    private void checkAvailability(Long doctorId, LocalDateTime start, AppointmentType type, Long excludeAppointmentId) {
+        if (start == null) {
+            return;
+        }
+        int minutes = type.getDuration() != null ? type.getDuration() : DoctorAvailabilityIndex.DEFAULT_DURATION_MINUTES;
+        // The index only knows this node's bookings, so a conflict there is re-read from the database
+        if (availabilityIndex.hasConfirmedConflict(doctorId, start, start.plusMinutes(minutes), excludeAppointmentId)) {
+            throw new BookingConflictException("Doctor is not available at the requested time.");
+        }
     }
 
     @Transactional(readOnly = true)
         public Page<AppointmentDto> getAppointmentsForDoctor(Long doctorUserId, Pageable pageable) {
-        Page<Appointment> appointments = appointmentRepository.findByDoctorUserId(doctorUserId, pageable);
-        return appointments.map(appointmentMapper::toDto);
+        return countCache.page(appointmentRepository.findDtosByDoctorUserId(doctorUserId, pageable),
+                CountCache.Scope.APPOINTMENTS, doctorUserId,
+                () -> appointmentRepository.countDtosByDoctorUserId(doctorUserId));
+    }
 
+    @Transactional(readOnly = true)
+    public Slice<AppointmentDto> getAppointmentSliceForDoctor(Long doctorUserId, Pageable pageable) {
+        return appointmentRepository.findDtosByDoctorUserId(doctorUserId, pageable);
     }
-    @Transactional
+    @Transactional(readOnly = true)
     public Page<AppointmentDto> getAppointmentsForPatient(Long userId, Pageable pageable) {
-    return appointmentRepository.findByPatientUserId(userId, pageable)
-            .map(appointmentMapper::toDto);
+        return countCache.page(appointmentRepository.findDtoSliceByPatientUserId(userId, pageable),
+                CountCache.Scope.APPOINTMENTS, new PatientKey(userId),
+                () -> appointmentRepository.countDtosByPatientUserId(userId));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<AppointmentDto> getAppointmentSliceForPatient(Long userId, Pageable pageable) {
+        return appointmentRepository.findDtoSliceByPatientUserId(userId, pageable);
+    }
+
+    // Count cache key for one patient's list; the doctor list is keyed by the bare user id
+    private record PatientKey(Long patientUserId) {
     }
 
     @Transactional
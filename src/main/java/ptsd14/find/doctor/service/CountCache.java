@@ -0,0 +1,147 @@
+package ptsd14.find.doctor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.event.AppointmentsArchivedEvent;
+import ptsd14.find.doctor.event.AppointmentsImportedEvent;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.event.FeedbackChangedEvent;
+import ptsd14.find.doctor.event.PaymentChangedEvent;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived totals for the paged lists, keyed by list and filter, so paging
+ * through one result set runs its COUNT once rather than on every page. Write
+ * events drop the lists they can change; anything else, such as a new user,
+ * shows up once the entry expires.
+ */
+@Component
+public class CountCache {
+
+    public enum Scope {
+        DOCTORS,
+        PATIENTS,
+        PAYMENTS,
+        FEEDBACKS,
+        USERS,
+        APPOINTMENTS
+    }
+
+    private final Map<Scope, Map<Object, Entry>> entries = new EnumMap<>(Scope.class);
+    // Bumped on every invalidation, so a count read across one is not stored
+    private final Map<Scope, AtomicLong> generations = new EnumMap<>(Scope.class);
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public CountCache(@Value("${app.count-cache.max-size:10000}") int maxSize,
+                      @Value("${app.count-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        for (Scope scope : Scope.values()) {
+            entries.put(scope, new ConcurrentHashMap<>());
+            generations.put(scope, new AtomicLong());
+        }
+    }
+
+    public long count(Scope scope, Object key, LongSupplier counter) {
+        Map<Object, Entry> byKey = entries.get(scope);
+        long now = System.currentTimeMillis();
+        Entry cached = byKey.get(key);
+        if (cached != null && cached.getExpiresAt() > now) {
+            return cached.getCount();
+        }
+
+        AtomicLong generation = generations.get(scope);
+        long before = generation.get();
+        long count = counter.getAsLong();
+        if (byKey.size() >= maxSize) {
+            byKey.values().removeIf(entry -> entry.getExpiresAt() <= now);
+            if (byKey.size() >= maxSize) {
+                byKey.clear();
+            }
+        }
+        Entry entry = new Entry(count, now + ttlMillis);
+        byKey.put(key, entry);
+        // invalidate() bumps before it clears, so either it removed the entry or we see the bump here
+        if (generation.get() != before) {
+            byKey.remove(key, entry);
+        }
+        return count;
+    }
+
+    /**
+     * The slice as a page, its total from the cache. Like Spring Data's own
+     * paging, the count is skipped when the slice alone settles it.
+     */
+    public <T> Page<T> page(Slice<T> slice, Scope scope, Object key, LongSupplier counter) {
+        return PageableExecutionUtils.getPage(slice.getContent(), slice.getPageable(),
+                () -> count(scope, key, counter));
+    }
+
+    public void invalidate(Scope... scopes) {
+        for (Scope scope : scopes) {
+            generations.get(scope).incrementAndGet();
+            entries.get(scope).clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DirectoryChangedEvent event) {
+        switch (event.getKind()) {
+            // Names also feed the payment and appointment searches
+            case DOCTOR -> invalidate(Scope.DOCTORS, Scope.PAYMENTS, Scope.APPOINTMENTS);
+            case PATIENT -> invalidate(Scope.PATIENTS, Scope.PAYMENTS, Scope.APPOINTMENTS);
+            default -> invalidate(Scope.values());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.getAction() == AppointmentChangedEvent.Action.DELETED) {
+            invalidate(Scope.APPOINTMENTS, Scope.PAYMENTS, Scope.FEEDBACKS);
+        } else {
+            invalidate(Scope.APPOINTMENTS);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsImported(AppointmentsImportedEvent event) {
+        invalidate(Scope.APPOINTMENTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsArchived(AppointmentsArchivedEvent event) {
+        invalidate(Scope.APPOINTMENTS, Scope.PAYMENTS, Scope.FEEDBACKS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentChanged(PaymentChangedEvent event) {
+        invalidate(Scope.PAYMENTS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFeedbackChanged(FeedbackChangedEvent event) {
+        invalidate(Scope.FEEDBACKS);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final long count;
+        private final long expiresAt;
+    }
+}
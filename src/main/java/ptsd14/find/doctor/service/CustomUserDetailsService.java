@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 import ptsd14.find.doctor.model.User;
 import ptsd14.find.doctor.model.UserRole;
 import ptsd14.find.doctor.repository.UserRepo;
+import ptsd14.find.doctor.security.AuthenticatedUser;
 
 @Service
 @RequiredArgsConstructor
@@ -41,10 +42,6 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
 
-    return org.springframework.security.core.userdetails.User
-            .withUsername(user.getEmail())
-            .password(user.getPassword())
-            .authorities(authorities)
-            .build();
+    return new AuthenticatedUser(user.getId(), user.getEmail(), user.getPassword(), authorities);
 }
 }
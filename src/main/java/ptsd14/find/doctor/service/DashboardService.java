@@ -1,10 +1,19 @@
 package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import jakarta.transaction.Transactional;
 import ptsd14.find.doctor.dto.DashboardStatsDto;
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.event.AppointmentsArchivedEvent;
+import ptsd14.find.doctor.event.AppointmentsImportedEvent;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.event.PaymentChangedEvent;
 import ptsd14.find.doctor.model.Appointment;
 import ptsd14.find.doctor.repository.*;
 
@@ -13,6 +22,8 @@ import java.time.*;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,17 +35,83 @@ public class DashboardService {
     private final AppointmentRepository appointmentRepository;
     private final SpecializationRepos specializationRepository;
     private final PaymentRepository paymentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
 
+    // Upcoming appointments drift with the clock, so rebuild at least this often
+    @Value("${app.dashboard.max-age-ms:60000}")
+    private long maxAgeMillis;
+
+    // Last computed stats, replaced as a whole by refresh() and never mutated afterwards
+    private volatile DashboardStatsDto snapshot;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+
+    /**
+     * Returns the in-memory snapshot. It is rebuilt off-request by
+     * refreshIfStale(); only the very first call computes it inline.
+     */
     public DashboardStatsDto getDashboardStats() {
+        DashboardStatsDto current = snapshot;
+        return current != null ? current : refresh(false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.refresh-interval-ms:5000}")
+    public void refreshIfStale() {
+        DashboardStatsDto current = snapshot;
+        boolean expired = current == null
+            || current.getGeneratedAt().isBefore(LocalDateTime.now().minus(Duration.ofMillis(maxAgeMillis)));
+        if (dirty.get() || expired) {
+            refresh(true);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsImported(AppointmentsImportedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentsArchived(AppointmentsArchivedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentChanged(PaymentChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDirectoryChanged(DirectoryChangedEvent event) {
+        dirty.set(true);
+    }
+
+    private synchronized DashboardStatsDto refresh(boolean force) {
+        if (!force && snapshot != null) {
+            return snapshot;
+        }
+        // Cleared before computing so a write that lands mid-refresh marks it dirty again
+        dirty.set(false);
+        DashboardStatsDto dto = computeDashboardStats();
+        snapshot = dto;
+        return dto;
+    }
+
+    private DashboardStatsDto computeDashboardStats() {
     DashboardStatsDto dto = new DashboardStatsDto();
 
     dto.setDoctorCount(doctorRepository.count());
     dto.setPatientCount(patientRepository.count());
-    dto.setAppointmentCount(appointmentRepository.count());
+    dto.setAppointmentCount(appointmentRepository.count() + archivedAppointmentRepository.count());
     dto.setSpecializationCount(specializationRepository.count());
 
-    BigDecimal totalRevenue = paymentRepository.sumTotalRevenue();
-    dto.setTotalRevenue(totalRevenue != null ? totalRevenue : BigDecimal.ZERO);
+    BigDecimal totalRevenue = orZero(paymentRepository.sumTotalRevenue())
+        .add(orZero(archivedPaymentRepository.sumTotalRevenue()));
+    dto.setTotalRevenue(totalRevenue);
 
     List<DashboardStatsDto.DailyRevenue> dailyRevenue = paymentRepository.findRevenueLast30Days(LocalDateTime.now().minusDays(30))
         .stream()
@@ -48,13 +125,17 @@ public class DashboardService {
 
     dto.setRevenueLast30Days(dailyRevenue);
     dto.setUpcomingAppointments(getUpcomingAppointments());
+    dto.setGeneratedAt(LocalDateTime.now());
 
     return dto;
 }
 
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
 
     public List<DashboardStatsDto.AppointmentSummary> getUpcomingAppointments() {
-    List<Appointment> upcoming = appointmentRepository.findTop5Upcoming(LocalDateTime.now());
+    List<Appointment> upcoming = appointmentRepository.findTop5Upcoming(LocalDateTime.now(), PageRequest.of(0, 5));
     return upcoming.stream()
         .map(a -> {
         DashboardStatsDto.AppointmentSummary s = new DashboardStatsDto.AppointmentSummary();
@@ -97,14 +178,18 @@ public class DashboardService {
     }
     @Transactional
     public List<Map<String, Object>> getMonthlyRevenue() {
-        List<Object[]> rawData = paymentRepository.findMonthlyRevenue();
-
-        return rawData.stream()
-        .map(record -> {
-            Integer monthNumber = (Integer) record[0];
-            BigDecimal revenue = (BigDecimal) record[1];
-            String monthName = Month.of(monthNumber).getDisplayName(java.time.format.TextStyle.SHORT, Locale.ENGLISH);
-            return Map.<String, Object>of("month", monthName, "revenue", revenue);
+        // Both tiers group by calendar month, so their sums add up per month
+        Map<Integer, BigDecimal> byMonth = new TreeMap<>();
+        for (List<Object[]> rawData : List.of(paymentRepository.findMonthlyRevenue(), archivedPaymentRepository.findMonthlyRevenue())) {
+            for (Object[] record : rawData) {
+                byMonth.merge((Integer) record[0], (BigDecimal) record[1], BigDecimal::add);
+            }
+        }
+
+        return byMonth.entrySet().stream()
+        .map(entry -> {
+            String monthName = Month.of(entry.getKey()).getDisplayName(java.time.format.TextStyle.SHORT, Locale.ENGLISH);
+            return Map.<String, Object>of("month", monthName, "revenue", entry.getValue());
         })
         .collect(Collectors.toList());
     }
@@ -0,0 +1,226 @@
+package ptsd14.find.doctor.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ptsd14.find.doctor.dto.DashboardDeltaDto;
+import ptsd14.find.doctor.dto.DashboardStatsDto;
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.event.PaymentChangedEvent;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single fan-out publisher for live admin dashboards. Each change is turned
+ * into one delta and serialized once on a dedicated thread, then queued for
+ * every connected emitter, so request threads never wait on slow clients.
+ * Every subscriber has its own bounded queue, drained on a pooled thread
+ * while it has frames, so a slow client only delays itself. A client whose queue fills
+ * up is disconnected; on reconnect it starts again from a fresh snapshot.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DashboardStreamService {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    // Frames a client may fall behind by before it is dropped
+    static final int QUEUE_CAPACITY = 100;
+
+    private final DashboardService dashboardService;
+    private final AppointmentRepository appointmentRepository;
+    private final ObjectMapper objectMapper;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-sse");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Drains run on platform threads: send() is synchronized, so a blocked write would pin a virtual thread's carrier
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-sse-send");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(EMITTER_TIMEOUT_MS));
+    }
+
+    /**
+     * Registers an emitter created by the caller and queues the snapshot for it.
+     */
+    public SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        // Start every client from the shared snapshot, deltas follow
+        subscriber.offer(SseEmitter.event().name("snapshot").data(dashboardService.getDashboardStats()).build());
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        dispatcher.execute(() -> broadcast(toDelta(event)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentChanged(PaymentChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        DashboardDeltaDto delta = new DashboardDeltaDto();
+        delta.setType("PAID".equals(event.getStatus()) || "COMPLETED".equals(event.getStatus())
+            ? DashboardDeltaDto.Type.PAYMENT_RECEIVED
+            : DashboardDeltaDto.Type.PAYMENT_UPDATED);
+        delta.setPaymentId(event.getPaymentId());
+        delta.setAppointmentId(event.getAppointmentId());
+        delta.setAmount(event.getAmount());
+        delta.setStatus(event.getStatus());
+        dispatcher.execute(() -> broadcast(delta));
+    }
+
+    // Keeps idle connections open through proxies and drops clients that went away.
+    // A ping that does not fit in a full queue also drops a client that stopped reading
+    @Scheduled(fixedRate = 25000)
+    public void heartbeat() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.forEach(subscriber -> subscriber.offer(ping));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private DashboardDeltaDto toDelta(AppointmentChangedEvent event) {
+        DashboardDeltaDto delta = new DashboardDeltaDto();
+        delta.setAppointmentId(event.getAppointmentId());
+        delta.setDateTime(event.getDateTime());
+        delta.setStatus(event.getStatus() != null ? event.getStatus().name() : null);
+
+        switch (event.getAction()) {
+            case CREATED -> {
+                delta.setType(DashboardDeltaDto.Type.APPOINTMENT_CREATED);
+                // One lookup per change, shared by every subscriber
+                appointmentRepository.findDtoById(event.getAppointmentId()).ifPresent(dto -> {
+                    DashboardStatsDto.AppointmentSummary summary = new DashboardStatsDto.AppointmentSummary();
+                    summary.setId(dto.getId());
+                    summary.setPatientName(dto.getPatientName());
+                    summary.setDoctorName(dto.getDoctorName());
+                    summary.setTypeName(dto.getAppointmentTypeName());
+                    summary.setNote(dto.getNote());
+                    summary.setDateTime(dto.getDateTime());
+                    delta.setAppointment(summary);
+                });
+            }
+            case STATUS_CHANGED -> delta.setType(DashboardDeltaDto.Type.APPOINTMENT_STATUS_CHANGED);
+            case DELETED -> delta.setType(DashboardDeltaDto.Type.APPOINTMENT_DELETED);
+            default -> delta.setType(DashboardDeltaDto.Type.APPOINTMENT_UPDATED);
+        }
+        return delta;
+    }
+
+    private void broadcast(DashboardDeltaDto delta) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize dashboard delta {}", delta.getType(), e);
+            return;
+        }
+
+        // Built once: the same frame is written to every subscriber
+        Set<ResponseBodyEmitter.DataWithMediaType> message = SseEmitter.event()
+            .name(delta.getType().name())
+            .data(json, MediaType.APPLICATION_JSON)
+            .build();
+        subscribers.forEach(subscriber -> subscriber.offer(message));
+    }
+
+    /**
+     * One connected client: its emitter and the frames not yet written to it.
+     * At most one drain task runs per subscriber, so frames keep their order.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue =
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> message) {
+            if (!queue.offer(message)) {
+                log.warn("Dropping a dashboard subscriber that fell {} events behind", QUEUE_CAPACITY);
+                subscribers.remove(this);
+                queue.clear();
+                // complete() waits for the emitter's monitor, which a stuck write holds
+                senders.execute(emitter::complete);
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> message;
+                while ((message = queue.poll()) != null) {
+                    emitter.send(message);
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                queue.clear();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // A frame offered between the last poll and the reset would otherwise wait for the next drain
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+    }
+}
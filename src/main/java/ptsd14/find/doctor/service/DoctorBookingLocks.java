@@ -0,0 +1,83 @@
+package ptsd14.find.doctor.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ptsd14.find.doctor.exception.BookingConflictException;
+
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-JVM locks that serialize bookings per doctor on this node, so
+ * concurrent requests queue here instead of piling up on the doctor row lock.
+ * A lock is held until the surrounding transaction commits or rolls back, which
+ * is when the next booking can see the new appointment.
+ * <p>
+ * Seeing it relies on READ COMMITTED: under MySQL's default REPEATABLE READ a
+ * transaction that read anything before waiting here keeps reading its old
+ * snapshot and misses the booking. Locking outside READ COMMITTED is refused.
+ */
+@Component
+public class DoctorBookingLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public DoctorBookingLocks(@Value("${app.booking.lock-stripes:256}") int stripeCount,
+                              @Value("${app.booking.lock-timeout-ms:5000}") long timeoutMillis) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public void lockUntilCompletion(Long doctorId) {
+        checkTransaction();
+        lockStripe(stripeOf(doctorId));
+    }
+
+    // Several doctors at once, in stripe order so two callers cannot deadlock
+    public void lockAllUntilCompletion(Collection<Long> doctorIds) {
+        checkTransaction();
+        doctorIds.stream().map(this::stripeOf).distinct().sorted().forEach(this::lockStripe);
+    }
+
+    private static void checkTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking locks must be taken inside a transaction");
+        }
+        Integer isolation = TransactionSynchronizationManager.getCurrentTransactionIsolationLevel();
+        if (isolation == null || isolation != Connection.TRANSACTION_READ_COMMITTED) {
+            throw new IllegalStateException("Booking locks must be taken in a READ COMMITTED transaction");
+        }
+    }
+
+    private int stripeOf(Long doctorId) {
+        return Math.floorMod(Long.hashCode(doctorId), stripes.length);
+    }
+
+    private void lockStripe(int index) {
+        ReentrantLock lock = stripes[index];
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new BookingConflictException("Doctor is busy with another booking, please retry.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingConflictException("Booking was interrupted, please retry.");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+}
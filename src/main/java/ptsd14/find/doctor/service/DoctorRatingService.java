@@ -0,0 +1,85 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ptsd14.find.doctor.event.DoctorRatingChangedEvent;
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+import ptsd14.find.doctor.repository.ArchivedFeedbackRepository;
+import ptsd14.find.doctor.repository.DoctorRatingAggregateRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DoctorRatingService {
+
+    private final DoctorRatingAggregateRepository aggregateRepository;
+    private final FeedbackRepository feedbackRepository;
+    private final ArchivedFeedbackRepository archivedFeedbackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public void addRating(Long doctorId, Integer rating) {
+        validateRating(rating);
+        aggregateRepository.addRating(doctorId, rating, LocalDateTime.now());
+        eventPublisher.publishEvent(new DoctorRatingChangedEvent(doctorId));
+    }
+
+    @Transactional
+    public void removeRating(Long doctorId, Integer rating) {
+        validateRating(rating);
+        int updated = aggregateRepository.applyRating(doctorId, rating, -1, LocalDateTime.now());
+        if (updated == 0) {
+            log.warn("No rating aggregate for doctorId {} while removing a rating, rebuild may be needed", doctorId);
+            return;
+        }
+        eventPublisher.publishEvent(new DoctorRatingChangedEvent(doctorId));
+    }
+
+    public static void validateRating(Integer rating) {
+        if (rating == null || rating < 1 || rating > 5) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+
+    /**
+     * Rebuilds every aggregate from the feedbacks table and its archive. Runs
+     * nightly to reconcile drift and on startup when the aggregate table is empty.
+     */
+    @Transactional
+    @Scheduled(cron = "${app.ratings.rebuild-cron:0 0 4 * * *}")
+    public void rebuildAll() {
+        Map<Long, DoctorRatingAggregate> byDoctor = new LinkedHashMap<>();
+        for (List<Object[]> rows : List.of(feedbackRepository.aggregateRatingsByDoctor(),
+                                           archivedFeedbackRepository.aggregateRatingsByDoctor())) {
+            for (Object[] row : rows) {
+                DoctorRatingAggregate aggregate = byDoctor.computeIfAbsent((Long) row[0], DoctorRatingAggregate::new);
+                aggregate.setRatingCount(aggregate.getRatingCount() + ((Number) row[1]).longValue());
+                aggregate.setRatingSum(aggregate.getRatingSum() + ((Number) row[2]).longValue());
+                aggregate.setRating1(aggregate.getRating1() + ((Number) row[3]).longValue());
+                aggregate.setRating2(aggregate.getRating2() + ((Number) row[4]).longValue());
+                aggregate.setRating3(aggregate.getRating3() + ((Number) row[5]).longValue());
+                aggregate.setRating4(aggregate.getRating4() + ((Number) row[6]).longValue());
+                aggregate.setRating5(aggregate.getRating5() + ((Number) row[7]).longValue());
+            }
+        }
+
+        aggregateRepository.deleteAllInBatch();
+        List<DoctorRatingAggregate> aggregates = List.copyOf(byDoctor.values());
+        aggregateRepository.saveAll(aggregates);
+
+        log.info("Rebuilt rating aggregates for {} doctors", aggregates.size());
+        eventPublisher.publishEvent(new DoctorRatingChangedEvent(null));
+    }
+}
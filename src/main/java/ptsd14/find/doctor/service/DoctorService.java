@@ -1,25 +1,35 @@
 package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ptsd14.find.doctor.dto.AvailabilityDto;
 import ptsd14.find.doctor.dto.DoctorDashboardDto;
 import ptsd14.find.doctor.dto.DoctorDto;
 import ptsd14.find.doctor.dto.FeedbackDto.FeedbackSummaryDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.filter.DoctorFilter;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.index.DoctorRatingIndex;
+import ptsd14.find.doctor.index.NameTrigramIndex;
 import ptsd14.find.doctor.mapper.DoctorMapper;
 import ptsd14.find.doctor.model.Doctor;
-import ptsd14.find.doctor.model.Feedback;
 import ptsd14.find.doctor.model.Hospital;
 import ptsd14.find.doctor.model.Patient;
 import ptsd14.find.doctor.model.Specialization;
 import ptsd14.find.doctor.model.User;
+import ptsd14.find.doctor.projection.FieldSelection;
 import ptsd14.find.doctor.repository.AppointmentRepository;
 import ptsd14.find.doctor.repository.DoctorRepository;
-import ptsd14.find.doctor.repository.FeedbackRepository;
 import ptsd14.find.doctor.repository.HospitalRepository;
 import ptsd14.find.doctor.repository.SpecializationRepos;
 import ptsd14.find.doctor.repository.UserRepo;
@@ -30,7 +40,11 @@ import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.temporal.TemporalAdjusters;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -40,41 +54,78 @@ public class DoctorService {
     private final DoctorMapper doctorMapper;
     private final HospitalRepository hospitalRepository;
     private final SpecializationRepos specializationRepository;
-    private final FeedbackRepository feedbackRepository;
     private final UserRepo userRepository;
     private final AppointmentRepository appointmentRepository;
+    private final DoctorAvailabilityIndex availabilityIndex;
+    private final DoctorRatingIndex ratingIndex;
+    private final DoctorRatingService ratingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NameTrigramIndex nameIndex;
+    private final CountCache countCache;
 
     @Transactional(readOnly = true)
-    public Page<DoctorDto> getAll(Pageable pageable, String search, String status) {
-        Page<Doctor> doctors;
-
-        boolean hasSearch = search != null && !search.trim().isEmpty();
-        boolean hasStatus = status != null && !status.trim().isEmpty();
-
-        if (hasStatus && hasSearch) {
-            String trimmedSearch = search.trim();
-            String trimmedStatus = status.trim();
-            doctors = doctorRepository.findByStatusIgnoreCaseAndFirstnameContainingIgnoreCaseOrStatusIgnoreCaseAndLastnameContainingIgnoreCase(
-                    trimmedStatus, trimmedSearch,
-                    trimmedStatus, trimmedSearch,
-                    pageable
-            );
-        } else if (hasStatus) {
-            doctors = doctorRepository.findByStatusIgnoreCase(status.trim(), pageable);
-        } else if (hasSearch) {
-            String trimmed = search.trim();
-            doctors = doctorRepository.findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(
-                    trimmed,
-                    trimmed,
-                    pageable
-            );
-        } else {
-            doctors = doctorRepository.findBy(pageable);
+    public Page<DoctorDto> getAll(DoctorFilter filter, Pageable pageable) {
+        long[] matches = matchNames(filter);
+        if (matches != null && matches.length == 0) {
+            return Page.empty(pageable);
         }
 
+        Page<Doctor> doctors = matches != null && filter.isSearchOnly() ? findByIds(matches, pageable) : null;
+        if (doctors == null) {
+            Specification<Doctor> spec = filter.toSpecification(matches);
+            doctors = countCache.page(doctorRepository.findSlice(spec, pageable), CountCache.Scope.DOCTORS, filter,
+                    () -> doctorRepository.count(spec));
+        }
+        return doctors.map(doctorMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<DoctorDto> getSlice(DoctorFilter filter, Pageable pageable) {
+        long[] matches = matchNames(filter);
+        if (matches != null && matches.length == 0) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        Slice<Doctor> doctors = matches != null && filter.isSearchOnly() ? findByIds(matches, pageable) : null;
+        if (doctors == null) {
+            doctors = doctorRepository.findSlice(filter.toSpecification(matches), pageable);
+        }
         return doctors.map(doctorMapper::toDto);
     }
 
+    // Only the requested fields, read straight from the columns; a page with its total when withTotal is set
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getFields(DoctorFilter filter, FieldSelection<Doctor> fields,
+                                                Pageable pageable, boolean withTotal) {
+        long[] matches = matchNames(filter);
+        if (matches != null && matches.length == 0) {
+            return Page.empty(pageable);
+        }
+        Specification<Doctor> spec = filter.toSpecification(matches);
+        Slice<Map<String, Object>> rows = doctorRepository.findFields(fields, spec, pageable);
+        return withTotal
+                ? countCache.page(rows, CountCache.Scope.DOCTORS, filter, () -> doctorRepository.count(spec))
+                : rows;
+    }
+
+    // Ids the name index resolved the search to, or null to match names with LIKE
+    private long[] matchNames(DoctorFilter filter) {
+        long[] matches = filter.hasSearch() ? nameIndex.searchDoctors(filter.getSearch()) : null;
+        return matches != null && matches.length > NameTrigramIndex.MAX_IN_IDS ? null : matches;
+    }
+
+    // A page of id-ordered name matches is cut from the index and fetched with one IN query, without a count
+    private Page<Doctor> findByIds(long[] ids, Pageable pageable) {
+        List<Long> pageIds = NameTrigramIndex.idPage(ids, pageable);
+        if (pageIds == null) {
+            return null;
+        }
+        Map<Long, Doctor> byId = doctorRepository.findByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+        List<Doctor> content = pageIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, ids.length);
+    }
+
     @Transactional(readOnly = true)
     public Optional<DoctorDto> getById(Long id) {
         return doctorRepository.findWithDetailsById(id);
@@ -82,12 +133,38 @@ public class DoctorService {
 
      @Transactional(readOnly = true)
     public List<DoctorDto> getDoctorsWithFeedback() {
-        return doctorRepository.findAll().stream()
-                .filter(doctor -> !feedbackRepository.findByAppointment_Doctor_Id(doctor.getId()).isEmpty())
+        return doctorRepository.findByIdIn(ratingIndex.getRatedDoctorIds()).stream()
                 .map(doctorMapper::toDto)
                 .toList();
     }
 
+    // Served from the in-memory availability index, no database access
+    public AvailabilityDto getAvailability(Long doctorId, LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'to' must be after 'from'");
+        }
+
+        AvailabilityDto dto = new AvailabilityDto();
+        dto.setDoctorId(doctorId);
+        dto.setFrom(from);
+        dto.setTo(to);
+
+        LocalDateTime cursor = from;
+        for (DoctorAvailabilityIndex.Booking booking : availabilityIndex.getBookings(doctorId, from, to)) {
+            dto.getBusy().add(new AvailabilityDto.TimeRange(booking.getStart(), booking.getEnd()));
+            if (booking.getStart().isAfter(cursor)) {
+                dto.getFree().add(new AvailabilityDto.TimeRange(cursor, booking.getStart()));
+            }
+            if (booking.getEnd().isAfter(cursor)) {
+                cursor = booking.getEnd();
+            }
+        }
+        if (cursor.isBefore(to)) {
+            dto.getFree().add(new AvailabilityDto.TimeRange(cursor, to));
+        }
+        return dto;
+    }
+
     @Transactional
     public DoctorDto create(DoctorDto dto) {
         Doctor doctor = doctorMapper.toEntity(dto);
@@ -109,6 +186,7 @@ public class DoctorService {
         doctor.setUser(user);
 
         Doctor saved = doctorRepository.save(doctor);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, saved.getId(), false));
         return doctorMapper.toDto(saved);
     }
     @Transactional
@@ -137,11 +215,13 @@ public class DoctorService {
         existing.setUser(user);
 
         Doctor updated = doctorRepository.save(existing);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, updated.getId(), false));
         return doctorMapper.toDto(updated);
     }
 
     public void delete(Long id) {
         doctorRepository.deleteById(id);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, id, true));
     }
 
     @Transactional(readOnly = true)
@@ -151,11 +231,9 @@ public class DoctorService {
 
         Long totalPatients = appointmentRepository.countDistinctPatients(doctorId);
         Long consultations = appointmentRepository.countConsultations(doctorId, "Consultation%");
-        Double avgRating = feedbackRepository.findAverageRatingByDoctor(doctorId);
-        if (avgRating == null) avgRating = 0.0;
-
-        Integer ratingCount = feedbackRepository.countRatingsByDoctor(doctorId);
-        if (ratingCount == null) ratingCount = 0;
+        Optional<DoctorRatingIndex.RatingEntry> rating = ratingIndex.get(doctorId);
+        Double avgRating = rating.map(DoctorRatingIndex.RatingEntry::getAverage).orElse(0.0);
+        Integer ratingCount = rating.map(entry -> (int) entry.getCount()).orElse(0);
 
         DoctorDashboardDto.DoctorInfo doctorInfo = DoctorDashboardDto.DoctorInfo.builder()
             .id(doctor.getId())
@@ -220,35 +298,17 @@ public class DoctorService {
         return dob != null ? Period.between(dob, LocalDate.now()).getYears() : 0;
     }
 
-    @Transactional(readOnly = true)
+    // Ranking and totals come from the rating index; only the top doctors' rows are loaded
     public List<DoctorDto> getTopRatedDoctors(int limit) {
-    return doctorRepository.findAll().stream()
-        .map(doctor -> {
-            List<Feedback> feedbacks = feedbackRepository.findByAppointment_Doctor_Id(doctor.getId());
-            double avgRating = feedbacks.stream()
-                .mapToInt(Feedback::getRating)
-                .average()
-                .orElse(0.0);
-            DoctorDto dto = doctorMapper.toDto(doctor);
-            dto.setTotalFeedbacks(feedbacks.size());
-            dto.setAverageRating(avgRating);
-            return dto;
-        })
-        .filter(d -> d.getTotalFeedbacks() > 0)
-        .sorted((d1, d2) -> Double.compare(d2.getAverageRating(), d1.getAverageRating()))
-        .limit(limit)
-        .toList();
+        return ratingIndex.getTopRated(limit);
     }
 
-    @Transactional(readOnly = true)
     public FeedbackSummaryDto getFeedbackSummary() {
-    Double avgRating = feedbackRepository.findAverageRatingAllDoctors();
-    if (avgRating == null) avgRating = 0.0;
-
-    Integer ratingCount = feedbackRepository.countAllRatings();
-    if (ratingCount == null) ratingCount = 0;
+        return new FeedbackSummaryDto(ratingIndex.getOverallAverage(), (int) ratingIndex.getTotalCount());
+    }
 
-    return new FeedbackSummaryDto(avgRating, ratingCount);
-}
+    public void rebuildRatings() {
+        ratingService.rebuildAll();
+    }
 
 }
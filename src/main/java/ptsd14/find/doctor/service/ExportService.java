@@ -0,0 +1,129 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedAppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedPaymentRepository;
+import ptsd14.find.doctor.repository.PaymentRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Streams CSV exports straight from a forward-only result set into the
+ * response writer. Rows are scalar projections, so nothing is added to the
+ * persistence context and heap use does not grow with the export size.
+ * Archived rows are exported first, then the hot ones, so reports reach back
+ * past the archive horizon.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final String FORMULA_PREFIXES = "=+-@";
+
+    private final PaymentRepository paymentRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @Transactional(readOnly = true)
+    public long writePaymentsCsv(Writer writer, LocalDateTime from, LocalDateTime to, String status) throws IOException {
+        writer.write("id,paid_at,amount,method,status,stripe_payment_intent_id,appointment_id,appointment_date_time,patient,doctor\n");
+        Function<Object[], String> toLine = row -> line(
+            row[0], row[1], row[2], row[3], row[4], row[5], row[6], row[7],
+            fullName(row[8], row[9]), fullName(row[10], row[11]));
+        // One tier after the other: a streaming result set must be closed before the next query
+        long count;
+        try (Stream<Object[]> rows = archivedPaymentRepository.streamForExport(from, to, status)) {
+            count = writeRows(writer, rows, toLine);
+        }
+        try (Stream<Object[]> rows = paymentRepository.streamForExport(from, to, status)) {
+            count += writeRows(writer, rows, toLine);
+        }
+        log.info("Exported {} payments", count);
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public long writeAppointmentsCsv(Writer writer, LocalDateTime from, LocalDateTime to, AppointmentStatus status) throws IOException {
+        writer.write("id,date_time,status,doctor,patient,type,price,payment_status,created_at\n");
+        Function<Object[], String> toLine = row -> line(
+            row[0], row[1], row[2], fullName(row[3], row[4]), fullName(row[5], row[6]),
+            row[7], row[8], row[9], row[10]);
+        long count;
+        try (Stream<Object[]> rows = archivedAppointmentRepository.streamForExport(from, to, status)) {
+            count = writeRows(writer, rows, toLine);
+        }
+        try (Stream<Object[]> rows = appointmentRepository.streamForExport(from, to, status)) {
+            count += writeRows(writer, rows, toLine);
+        }
+        log.info("Exported {} appointments", count);
+        return count;
+    }
+
+    private long writeRows(Writer writer, Stream<Object[]> rows, Function<Object[], String> toLine)
+            throws IOException {
+        long[] count = {0};
+        try {
+            rows.forEach(row -> {
+                try {
+                    writer.write(toLine.apply(row));
+                    // Push bytes to the client regularly instead of buffering the whole export
+                    if (++count[0] % FLUSH_EVERY_ROWS == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return count[0];
+    }
+
+    private static String fullName(Object firstname, Object lastname) {
+        return ((firstname != null ? firstname : "") + " " + (lastname != null ? lastname : "")).trim();
+    }
+
+    private static String line(Object... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(escape(values[i]));
+        }
+        return sb.append('\n').toString();
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks
+    private static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Spreadsheets evaluate text cells starting with these as formulas; a leading quote keeps them literal
+        if (value instanceof CharSequence && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
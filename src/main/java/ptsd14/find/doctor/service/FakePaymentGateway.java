@@ -0,0 +1,78 @@
+package ptsd14.find.doctor.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.PaymentIntent;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for Stripe, enabled with payment.gateway=fake, so the
+ * payment flow can be load-tested offline. Calls sleep for the configured
+ * latency and fail at the configured rate, going through the same bulkhead and
+ * circuit breaker as the real gateway.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "fake")
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final PaymentGatewayGuard guard;
+
+    @Value("${payment.gateway.fake.latency-ms:150}")
+    private long latencyMs;
+
+    @Value("${payment.gateway.fake.jitter-ms:50}")
+    private long jitterMs;
+
+    @Value("${payment.gateway.fake.failure-rate:0.0}")
+    private double failureRate;
+
+    @Override
+    public PaymentIntent createPaymentIntent(Long appointmentId, Long amountInCents, String currency) {
+        return guard.execute("createPaymentIntent", () -> {
+            simulateCall();
+            String id = "pi_fake_" + UUID.randomUUID().toString().replace("-", "");
+            PaymentIntent paymentIntent = new PaymentIntent();
+            paymentIntent.setId(id);
+            paymentIntent.setClientSecret(id + "_secret_fake");
+            paymentIntent.setAmount(amountInCents);
+            paymentIntent.setCurrency(currency);
+            paymentIntent.setStatus("requires_payment_method");
+            paymentIntent.setMetadata(Map.of("appointmentId", appointmentId.toString()));
+            return paymentIntent;
+        });
+    }
+
+    @Override
+    public void refund(String paymentIntentId) {
+        guard.execute("refund", () -> {
+            simulateCall();
+            log.info("Fake refund for {}", paymentIntentId);
+            return null;
+        });
+    }
+
+    private void simulateCall() throws ApiConnectionException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Fake gateway call interrupted", e);
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new ApiConnectionException("Simulated payment gateway failure");
+        }
+    }
+}
@@ -2,20 +2,35 @@ package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import ptsd14.find.doctor.dto.FeedbackDto;
+import ptsd14.find.doctor.event.FeedbackChangedEvent;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.filter.FeedbackFilter;
+import ptsd14.find.doctor.index.FeedbackSearchIndex;
 import ptsd14.find.doctor.mapper.FeedbackMapper;
 import ptsd14.find.doctor.model.Appointment;
+import ptsd14.find.doctor.model.ArchivedFeedback;
 import ptsd14.find.doctor.model.Feedback;
 import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedFeedbackRepository;
 import ptsd14.find.doctor.repository.FeedbackRepository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,35 +38,97 @@ import java.util.Optional;
 public class FeedbackService {
 
     private final FeedbackRepository feedbackRepository;
+    private final ArchivedFeedbackRepository archivedFeedbackRepository;
     private final AppointmentRepository appointmentRepository;
     private final FeedbackMapper feedbackMapper;
+    private final DoctorRatingService ratingService;
+    private final FeedbackSearchIndex searchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CountCache countCache;
+
+    /**
+     * Feedback on archived appointments continues the list after the hot
+     * rows, so reviews the doctor's average still counts stay listed.
+     */
+    @Transactional(readOnly = true)
+    public Page<FeedbackDto> getAll(FeedbackFilter filter, Pageable pageable) {
+        Specification<Feedback> spec = filter.toSpecification();
+        Page<FeedbackDto> hot = countCache.page(feedbackRepository.findSlice(spec, pageable), CountCache.Scope.FEEDBACKS,
+                        filter, () -> feedbackRepository.count(spec))
+                .map(feedbackMapper::toDto);
+        long archivedTotal = countCache.count(CountCache.Scope.FEEDBACKS, new ArchivedKey(filter),
+                () -> archivedFeedbackRepository.count(filter.toArchivedSpecification()));
+
+        List<FeedbackDto> content = new ArrayList<>(hot.getContent());
+        int missing = pageable.getPageSize() - hot.getNumberOfElements();
+        if (missing > 0 && archivedTotal > 0) {
+            long offset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+            archivedRows(filter, pageable, offset, missing).forEach(row -> content.add(feedbackMapper.toDto(row)));
+        }
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archivedTotal);
+    }
 
-   @Transactional(readOnly = true)
-    public Page<FeedbackDto> getAll(Pageable pageable, String search, Integer rating) {
-    Page<Feedback> feedbacks;
-
-    boolean hasSearch = search != null && !search.trim().isEmpty();
-    boolean hasRating = rating != null && rating >= 1 && rating <= 5;
-
-    if (hasSearch && hasRating) {
-        feedbacks = feedbackRepository.findByRatingAndCommentContainingIgnoreCase(
-            rating,
-            search.trim(),
-            pageable
-        );
-    } else if (hasRating) {
-        feedbacks = feedbackRepository.findByRating(rating, pageable);
-    } else if (hasSearch) {
-        feedbacks = feedbackRepository.findByCommentContainingIgnoreCase(
-            search.trim(),
-            pageable
-        );
-    } else {
-        feedbacks = feedbackRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Slice<FeedbackDto> getSlice(FeedbackFilter filter, Pageable pageable) {
+        Specification<Feedback> spec = filter.toSpecification();
+        Slice<FeedbackDto> hot = feedbackRepository.findSlice(spec, pageable).map(feedbackMapper::toDto);
+        if (hot.hasNext()) {
+            return hot;
+        }
+        // The hot rows end on this page; only a page past them needs their count to place the archive offset
+        long offset = hot.hasContent() ? 0 : Math.max(0, pageable.getOffset() - feedbackRepository.count(spec));
+        int missing = pageable.getPageSize() - hot.getNumberOfElements();
+        List<ArchivedFeedback> archived = archivedRows(filter, pageable, offset, missing + 1);
+
+        List<FeedbackDto> content = new ArrayList<>(hot.getContent());
+        archived.stream().limit(missing).forEach(row -> content.add(feedbackMapper.toDto(row)));
+        return new SliceImpl<>(content, pageable, archived.size() > missing);
     }
 
-    return feedbacks.map(feedbackMapper::toDto);
-}
+    private List<ArchivedFeedback> archivedRows(FeedbackFilter filter, Pageable pageable, long offset, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return archivedFeedbackRepository.findRange(filter.toArchivedSpecification(), pageable.getSort(), offset, limit);
+    }
+
+    // Count cache key of the archive tier, next to the hot tier's count for the same filter
+    private record ArchivedKey(FeedbackFilter filter) {
+    }
+
+    /**
+     * Full-text search over comments, most relevant first. Falls back to the
+     * unranked substring filter until the index has loaded.
+     */
+    @Transactional(readOnly = true)
+    public Page<FeedbackDto> search(String query, Integer rating, Long doctorId, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            return getAll(FeedbackFilter.builder().search(query).rating(rating).doctorId(doctorId).build(), pageable);
+        }
+        FeedbackSearchIndex.Hits hits = searchIndex.search(
+                query, rating, doctorId, (int) pageable.getOffset(), pageable.getPageSize());
+        if (hits.getIds().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, hits.getTotal());
+        }
+
+        Map<Long, FeedbackDto> byId = feedbackRepository.findAllById(hits.getIds()).stream()
+                .collect(Collectors.toMap(Feedback::getId, feedbackMapper::toDto, (a, b) -> a, HashMap::new));
+        // The index covers both tiers; whatever is not hot has been archived
+        List<Long> archivedIds = hits.getIds().stream().filter(id -> !byId.containsKey(id)).toList();
+        if (!archivedIds.isEmpty()) {
+            archivedFeedbackRepository.findAllById(archivedIds)
+                    .forEach(row -> byId.put(row.getId(), feedbackMapper.toDto(row)));
+        }
+        List<FeedbackDto> content = new ArrayList<>(hits.getIds().size());
+        for (int i = 0; i < hits.getIds().size(); i++) {
+            FeedbackDto dto = byId.get(hits.getIds().get(i));
+            if (dto != null) {
+                dto.setScore((double) hits.getScores().get(i));
+                content.add(dto);
+            }
+        }
+        return new PageImpl<>(content, pageable, hits.getTotal());
+    }
 
     @Transactional(readOnly = true)
     public Optional<FeedbackDto> getById(Long id) {
@@ -71,16 +148,25 @@ public class FeedbackService {
         throw new IllegalStateException("Feedback already exists for this appointment.");
     }
 
+    DoctorRatingService.validateRating(dto.getRating());
+
     Feedback feedback = feedbackMapper.toEntity(dto);
     feedback.setAppointment(appointment);
 
-    return feedbackMapper.toDto(feedbackRepository.save(feedback));
+    Feedback saved = feedbackRepository.save(feedback);
+    ratingService.addRating(appointment.getDoctor().getId(), saved.getRating());
+    eventPublisher.publishEvent(new FeedbackChangedEvent(saved.getId(), false));
+    return feedbackMapper.toDto(saved);
 }
 
 
     public FeedbackDto update(Long id, FeedbackDto dto) {
         Feedback feedback = feedbackRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Feedback not found"));
+        DoctorRatingService.validateRating(dto.getRating());
+
+        Long previousDoctorId = feedback.getAppointment().getDoctor().getId();
+        Integer previousRating = feedback.getRating();
 
         feedback.setRating(dto.getRating());
         feedback.setComment(dto.getComment());
@@ -90,12 +176,24 @@ public class FeedbackService {
         
         feedback.setAppointment(appointment);
         Feedback updated = feedbackRepository.save(feedback);
+
+        Long doctorId = appointment.getDoctor().getId();
+        if (!doctorId.equals(previousDoctorId) || !updated.getRating().equals(previousRating)) {
+            ratingService.removeRating(previousDoctorId, previousRating);
+            ratingService.addRating(doctorId, updated.getRating());
+        }
+        eventPublisher.publishEvent(new FeedbackChangedEvent(updated.getId(), false));
         return feedbackMapper.toDto(updated);
 
     }
 
     public void delete(Long id) {
-        feedbackRepository.deleteById(id);
+        feedbackRepository.findById(id).ifPresent(feedback -> {
+            Long doctorId = feedback.getAppointment().getDoctor().getId();
+            feedbackRepository.delete(feedback);
+            ratingService.removeRating(doctorId, feedback.getRating());
+            eventPublisher.publishEvent(new FeedbackChangedEvent(id, true));
+        });
     }
 
 }
@@ -1,5 +1,6 @@
 package ptsd14.find.doctor.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -7,6 +8,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
 import ptsd14.find.doctor.dto.HospitalDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
 import ptsd14.find.doctor.exception.DuplicateResourceException;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
 import ptsd14.find.doctor.mapper.HospitalMapper;
@@ -20,6 +22,7 @@ public class HospitalService {
 
     private final HospitalRepository hospitalRepository;
     private final HospitalMapper hospitalMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Optional<HospitalDto> getById(Long id) {
         return hospitalRepository.findById(id)
@@ -45,6 +48,7 @@ public class HospitalService {
         Hospital hospital = hospitalMapper.toEntity(dto);
         hospital.setId(null); 
         Hospital savedHospital = hospitalRepository.save(hospital);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, savedHospital.getId(), false));
         return hospitalMapper.toDto(savedHospital);
     }
 
@@ -76,6 +80,7 @@ public class HospitalService {
             existingHospital.setPhone(dto.getPhone());
         }
         Hospital updatedHospital = hospitalRepository.save(existingHospital);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, id, false));
         return hospitalMapper.toDto(updatedHospital);
     }
 
@@ -84,5 +89,6 @@ public class HospitalService {
             throw new ResourceNotFoundException("Hospital not found");
         }
         hospitalRepository.deleteById(id);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, id, true));
     }
 }
\ No newline at end of file
@@ -2,22 +2,35 @@ package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import ptsd14.find.doctor.dto.PatientDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.filter.PatientFilter;
+import ptsd14.find.doctor.index.NameTrigramIndex;
 import ptsd14.find.doctor.mapper.PatientMapper;
 import ptsd14.find.doctor.model.Patient;
 import ptsd14.find.doctor.model.User;
 import ptsd14.find.doctor.repository.PatientRepository;
 import ptsd14.find.doctor.repository.UserRepo;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,42 +39,57 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final PatientMapper patientMapper;
     private final UserRepo userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NameTrigramIndex nameIndex;
+    private final CountCache countCache;
 
     @Transactional(readOnly = true)
-    public Page<PatientDto> getAll(Pageable pageable, String search, String status) {
-        Page<Patient> patients;
+    public Page<PatientDto> getAll(PatientFilter filter, Pageable pageable) {
+        long[] matches = matchNames(filter);
+        if (matches != null && matches.length == 0) {
+            return Page.empty(pageable);
+        }
 
-        boolean hasSearch = search != null && !search.trim().isEmpty();
-        boolean hasStatus = status != null && !status.trim().isEmpty();
+        Page<Patient> patients = matches != null && filter.isSearchOnly() ? findByIds(matches, pageable) : null;
+        if (patients == null) {
+            Specification<Patient> spec = filter.toSpecification(matches);
+            patients = countCache.page(patientRepository.findSlice(spec, pageable), CountCache.Scope.PATIENTS, filter,
+                    () -> patientRepository.count(spec));
+        }
+        return patients.map(patientMapper::toDto);
+    }
 
-        if (hasStatus && hasSearch) {
-    
-            String trimmedSearch = search.trim();
-            String trimmedStatus = status.trim();
-            patients = patientRepository.findByStatusIgnoreCaseAndFirstnameContainingIgnoreCaseOrStatusIgnoreCaseAndLastnameContainingIgnoreCase(
-                trimmedStatus, trimmedSearch,
-                trimmedStatus, trimmedSearch,
-                pageable
-            );
-        } else if (hasStatus) {
-            
-            patients = patientRepository.findByStatusIgnoreCase(status.trim(), pageable);
-        } else if (hasSearch) {
-            
-            String trimmed = search.trim();
-            patients = patientRepository.findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(
-                trimmed,
-                trimmed,
-                pageable
-            );
-        } else {
-            
-            patients = patientRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Slice<PatientDto> getSlice(PatientFilter filter, Pageable pageable) {
+        long[] matches = matchNames(filter);
+        if (matches != null && matches.length == 0) {
+            return new SliceImpl<>(List.of(), pageable, false);
         }
 
+        Slice<Patient> patients = matches != null && filter.isSearchOnly() ? findByIds(matches, pageable) : null;
+        if (patients == null) {
+            patients = patientRepository.findSlice(filter.toSpecification(matches), pageable);
+        }
         return patients.map(patientMapper::toDto);
     }
 
+    private long[] matchNames(PatientFilter filter) {
+        long[] matches = filter.hasSearch() ? nameIndex.searchPatients(filter.getSearch()) : null;
+        return matches != null && matches.length > NameTrigramIndex.MAX_IN_IDS ? null : matches;
+    }
+
+    // A page of id-ordered name matches is cut from the index and fetched with one IN query, without a count
+    private Page<Patient> findByIds(long[] ids, Pageable pageable) {
+        List<Long> pageIds = NameTrigramIndex.idPage(ids, pageable);
+        if (pageIds == null) {
+            return null;
+        }
+        Map<Long, Patient> byId = patientRepository.findByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(Patient::getId, Function.identity()));
+        List<Patient> content = pageIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(content, pageable, ids.length);
+    }
+
     @Transactional(readOnly = true)
     public Optional<PatientDto> getById(Long id) {
     return patientRepository.findWithUserById(id)
@@ -89,7 +117,9 @@ public class PatientService {
             patient.setStatus("INACTIVE"); 
         }
 
-        return patientMapper.toDto(patientRepository.save(patient));
+        Patient saved = patientRepository.save(patient);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.PATIENT, saved.getId(), false));
+        return patientMapper.toDto(saved);
     }
 
     @Transactional
@@ -107,7 +137,9 @@ public class PatientService {
 
     patientMapper.updateFromDto(dto, existing);
 
-    return patientMapper.toDto(patientRepository.save(existing));
+    Patient updated = patientRepository.save(existing);
+    eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.PATIENT, updated.getId(), false));
+    return patientMapper.toDto(updated);
     }
 
     public void delete(Long id) {
@@ -115,6 +147,7 @@ public class PatientService {
             throw new ResourceNotFoundException("Patient not found");
         }
         patientRepository.deleteById(id);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.PATIENT, id, true));
     }
 
     public PatientDto getPatientByUserEmail(String email) {
@@ -0,0 +1,15 @@
+package ptsd14.find.doctor.service;
+
+import com.stripe.model.PaymentIntent;
+
+/**
+ * Outbound calls to the payment provider. Implementations throw
+ * PaymentProcessingException when the provider rejects a call and
+ * PaymentGatewayUnavailableException when it cannot be reached.
+ */
+public interface PaymentGateway {
+
+    PaymentIntent createPaymentIntent(Long appointmentId, Long amountInCents, String currency);
+
+    void refund(String paymentIntentId);
+}
@@ -0,0 +1,148 @@
+package ptsd14.find.doctor.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import ptsd14.find.doctor.exception.PaymentGatewayUnavailableException;
+import ptsd14.find.doctor.exception.PaymentProcessingException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulkhead and circuit breaker around payment gateway calls. The bulkhead caps
+ * how many request threads can be blocked on the provider at once; the breaker
+ * fails fast after repeated connection or 5xx errors and lets a single probe
+ * through once the open period has passed.
+ */
+@Slf4j
+@Component
+public class PaymentGatewayGuard {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @FunctionalInterface
+    public interface GatewayCall<T> {
+        T call() throws StripeException;
+    }
+
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMs;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final Object lock = new Object();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public PaymentGatewayGuard(@Value("${payment.gateway.max-concurrent-calls:20}") int maxConcurrentCalls,
+                               @Value("${payment.gateway.bulkhead-wait-ms:100}") long bulkheadWaitMs,
+                               @Value("${payment.gateway.breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${payment.gateway.breaker.open-seconds:30}") long openSeconds) {
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.bulkheadWaitMs = bulkheadWaitMs;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    public <T> T execute(String operation, GatewayCall<T> call) {
+        acquireBulkhead(operation);
+        try {
+            acquirePermission(operation);
+            try {
+                T result = call.call();
+                onSuccess();
+                return result;
+            } catch (StripeException e) {
+                if (isTransient(e)) {
+                    onFailure(operation);
+                } else {
+                    // The provider answered, so it is healthy even though it rejected the call
+                    onSuccess();
+                }
+                throw new PaymentProcessingException(operation + " failed: " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                onFailure(operation);
+                throw e;
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public State getState() {
+        synchronized (lock) {
+            return state;
+        }
+    }
+
+    private void acquireBulkhead(String operation) {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new PaymentGatewayUnavailableException("Too many concurrent payment requests, please retry: " + operation);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayUnavailableException("Interrupted while waiting for the payment gateway: " + operation);
+        }
+    }
+
+    private void acquirePermission(String operation) {
+        synchronized (lock) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) {
+                    throw new PaymentGatewayUnavailableException("Payment gateway is unavailable, please retry later: " + operation);
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) {
+                    throw new PaymentGatewayUnavailableException("Payment gateway is recovering, please retry later: " + operation);
+                }
+                probeInFlight = true;
+            }
+        }
+    }
+
+    private void onSuccess() {
+        synchronized (lock) {
+            if (state != State.CLOSED) {
+                log.info("Payment gateway circuit closed");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            probeInFlight = false;
+        }
+    }
+
+    private void onFailure(String operation) {
+        synchronized (lock) {
+            probeInFlight = false;
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != State.OPEN) {
+                    log.warn("Payment gateway circuit opened after {} failures ({})", consecutiveFailures, operation);
+                }
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private static boolean isTransient(StripeException e) {
+        if (e instanceof ApiConnectionException || e instanceof RateLimitException) {
+            return true;
+        }
+        Integer status = e.getStatusCode();
+        return status == null || status >= 500;
+    }
+}
@@ -1,32 +1,36 @@
 package ptsd14.find.doctor.service;
 
-import com.stripe.Stripe;
 import com.stripe.model.PaymentIntent;
-import com.stripe.model.Refund;
-import com.stripe.param.PaymentIntentCreateParams;
-import com.stripe.param.RefundCreateParams;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ptsd14.find.doctor.dto.AppointmentDto;
 import ptsd14.find.doctor.dto.PaymentDto;
+import ptsd14.find.doctor.event.PaymentChangedEvent;
 import ptsd14.find.doctor.exception.AppointmentNotFoundException;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
-import ptsd14.find.doctor.mapper.AppointmentMapper;
+import ptsd14.find.doctor.filter.PaymentFilter;
+import ptsd14.find.doctor.index.NameTrigramIndex;
 import ptsd14.find.doctor.mapper.PaymentMapper;
 import ptsd14.find.doctor.model.Appointment;
 import ptsd14.find.doctor.model.Payment;
+import ptsd14.find.doctor.projection.FieldSelection;
 import ptsd14.find.doctor.repository.AppointmentRepository;
 import ptsd14.find.doctor.repository.PaymentRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
@@ -37,71 +41,115 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final AppointmentRepository appointmentRepository;
     private final PaymentMapper paymentMapper;
-    private final AppointmentMapper appointmentMapper;
-
-    @Value("${stripe.secret.key}")
-    private String stripeSecretKey;
-
-    public PaymentIntent createPaymentIntent(Long appointmentId, Long amountInCents, String currency) throws Exception {
-        Stripe.apiKey = stripeSecretKey;
-
-        appointmentRepository.findById(appointmentId)
-                .orElseThrow(() -> new AppointmentNotFoundException(appointmentId));
-
-        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                .setAmount(amountInCents)
-                .setCurrency(currency)
-                .addPaymentMethodType("card")
-                .putMetadata("appointmentId", appointmentId.toString())
-                .build();
-                
-        return PaymentIntent.create(params);
-        
+    private final ApplicationEventPublisher eventPublisher;
+    private final PaymentGateway paymentGateway;
+    private final NameTrigramIndex nameIndex;
+    private final CountCache countCache;
+
+    // Gateway calls run outside a transaction so no database connection is held during the HTTP round trip
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PaymentIntent createPaymentIntent(Long appointmentId, Long amountInCents, String currency) {
+        if (!appointmentRepository.existsById(appointmentId)) {
+            throw new AppointmentNotFoundException(appointmentId);
+        }
+
+        return paymentGateway.createPaymentIntent(appointmentId, amountInCents, currency);
     }
 
+    /**
+     * Records the payment for a succeeded PaymentIntent. Idempotent: Stripe and the
+     * webhook inbox may both deliver the same intent more than once.
+     */
     public void savePaymentFromIntent(PaymentIntent paymentIntent) {
-        Long appointmentId = Long.valueOf(paymentIntent.getMetadata().get("appointmentId"));
-
-        Appointment appointment = appointmentRepository.findById(appointmentId)
-                .orElseThrow(() -> new AppointmentNotFoundException(appointmentId));
+        String appointmentIdStr = paymentIntent.getMetadata().get("appointmentId");
+        if (appointmentIdStr == null || appointmentIdStr.isEmpty()) {
+            log.warn("No appointmentId metadata found in PaymentIntent {}", paymentIntent.getId());
+            return;
+        }
+
+        Long appointmentId;
+        try {
+            appointmentId = Long.parseLong(appointmentIdStr);
+        } catch (NumberFormatException ex) {
+            log.error("Invalid appointmentId in metadata: {}", appointmentIdStr);
+            return;
+        }
+
+        if (paymentRepository.existsByStripePaymentIntentId(paymentIntent.getId())
+                || paymentRepository.existsByAppointmentId(appointmentId)) {
+            log.info("Payment already recorded for appointmentId {}, skipping", appointmentId);
+            return;
+        }
+
+        Appointment appointment = appointmentRepository.findById(appointmentId).orElse(null);
+        if (appointment == null) {
+            log.warn("Appointment not found for ID: {}", appointmentId);
+            return;
+        }
 
         Payment payment = new Payment();
         payment.setAmount(BigDecimal.valueOf(paymentIntent.getAmount()).movePointLeft(2)); 
-        payment.setPaymentStatus("COMPLETED");
+        payment.setPaymentStatus("PAID");
         payment.setPaymentMethod(paymentIntent.getPaymentMethod() != null ? paymentIntent.getPaymentMethod() : "unknown");
         payment.setStripePaymentIntentId(paymentIntent.getId());
         payment.setPaidAt(LocalDateTime.now());
         payment.setAppointment(appointment);
 
         paymentRepository.save(payment);
+        eventPublisher.publishEvent(PaymentChangedEvent.of(payment));
         log.info("Payment saved for appointmentId: {}", appointmentId);
     }
 
-    public Page<PaymentDto> getAll(Pageable pageable, String search, String status) {
-    boolean hasSearch = search != null && !search.trim().isEmpty();
-    boolean hasStatus = status != null && !status.trim().isEmpty();
-
-    Page<Payment> payments;
-
-    if (hasSearch && hasStatus) {
-        payments = paymentRepository.findByPaymentStatusIgnoreCaseAndAppointment_Patient_FirstnameContainingIgnoreCaseOrPaymentStatusIgnoreCaseAndAppointment_Doctor_FirstnameContainingIgnoreCase(
-                status.trim(), search.trim(),
-                status.trim(), search.trim(),
-                pageable
-        );
-    } else if (hasStatus) {
-        payments = paymentRepository.findByPaymentStatusIgnoreCase(status.trim(), pageable);
-    } else if (hasSearch) {
-        payments = paymentRepository.findByAppointment_Patient_FirstnameContainingIgnoreCaseOrAppointment_Doctor_FirstnameContainingIgnoreCase(
-                search.trim(), search.trim(), pageable
-        );
-    } else {
-        payments = paymentRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Page<PaymentDto> getAll(PaymentFilter filter, Pageable pageable) {
+        Specification<Payment> spec = toSpecification(filter);
+        if (spec == null) {
+            return Page.empty(pageable);
+        }
+        return countCache.page(paymentRepository.findSlice(spec, pageable), CountCache.Scope.PAYMENTS, filter,
+                        () -> paymentRepository.count(spec))
+                .map(paymentMapper::toDto);
     }
 
-    return payments.map(paymentMapper::toDto);
-}
+    @Transactional(readOnly = true)
+    public Slice<PaymentDto> getSlice(PaymentFilter filter, Pageable pageable) {
+        Specification<Payment> spec = toSpecification(filter);
+        if (spec == null) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+        return paymentRepository.findSlice(spec, pageable).map(paymentMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getFields(PaymentFilter filter, FieldSelection<Payment> fields,
+                                                Pageable pageable, boolean withTotal) {
+        Specification<Payment> spec = toSpecification(filter);
+        if (spec == null) {
+            return Page.empty(pageable);
+        }
+        Slice<Map<String, Object>> rows = paymentRepository.findFields(fields, spec, pageable);
+        return withTotal
+                ? countCache.page(rows, CountCache.Scope.PAYMENTS, filter, () -> paymentRepository.count(spec))
+                : rows;
+    }
 
+    // null when the name index already knows no patient or doctor matches the search
+    private Specification<Payment> toSpecification(PaymentFilter filter) {
+        long[] patientMatches = null;
+        long[] doctorMatches = null;
+        if (filter.hasSearch()) {
+            patientMatches = nameIndex.searchPatients(filter.getSearch());
+            doctorMatches = nameIndex.searchDoctors(filter.getSearch());
+            if (patientMatches == null || doctorMatches == null
+                    || patientMatches.length + doctorMatches.length > NameTrigramIndex.MAX_IN_IDS) {
+                patientMatches = null;
+                doctorMatches = null;
+            } else if (patientMatches.length == 0 && doctorMatches.length == 0) {
+                return null;
+            }
+        }
+        return filter.toSpecification(patientMatches, doctorMatches);
+    }
 
     public PaymentDto getPaymentById(Long id) {
         Payment payment = paymentRepository.findById(id)
@@ -109,16 +157,18 @@ public class PaymentService {
         return paymentMapper.toDto(payment);
     }
 
-    public List<AppointmentDto> getUnpaidAppointments() {
-        return appointmentRepository.findByPaymentIsNull()
-                .stream()
-                .map(appointmentMapper::toDto)
-                .toList();
+    /**
+     * Pages appointments that have no payment yet, filtered in the database.
+     * A non-null patientUserId restricts the result to that patient's appointments.
+     */
+    @Transactional(readOnly = true)
+    public Page<AppointmentDto> getUnpaidAppointments(Long doctorId, Long patientId, Long patientUserId,
+                                                      LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return appointmentRepository.findUnpaidDtos(doctorId, patientId, patientUserId, from, to, pageable);
     }
 
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void refundPayment(Long id) {
-    Stripe.apiKey = stripeSecretKey;
-
     Payment payment = paymentRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Payment not found with id " + id));
 
@@ -126,21 +176,13 @@ public class PaymentService {
         throw new IllegalStateException("No Stripe PaymentIntent ID associated with this payment.");
     }
 
-    try {
-        RefundCreateParams params = RefundCreateParams.builder()
-                .setPaymentIntent(payment.getStripePaymentIntentId())
-                .build();
+    paymentGateway.refund(payment.getStripePaymentIntentId());
 
-        Refund.create(params); 
+    payment.setPaymentStatus("REFUNDED");
+    paymentRepository.save(payment);
+    eventPublisher.publishEvent(PaymentChangedEvent.of(payment));
 
-        payment.setPaymentStatus("REFUNDED");
-        paymentRepository.save(payment);
-
-        log.info("Refund created successfully for paymentId {}", id);
-    } catch (Exception e) {
-        log.error("Failed to refund paymentId {}: {}", id, e.getMessage());
-        throw new RuntimeException("Refund failed: " + e.getMessage());
-    }
+    log.info("Refund created successfully for paymentId {}", id);
 }
 
     @Transactional
@@ -156,6 +198,7 @@ public class PaymentService {
         payment.setPaidAt(LocalDateTime.now());
 
         paymentRepository.save(payment);
+        eventPublisher.publishEvent(PaymentChangedEvent.of(payment));
     }
 
 
@@ -1,5 +1,6 @@
 package ptsd14.find.doctor.service;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -7,6 +8,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import lombok.RequiredArgsConstructor;
 import ptsd14.find.doctor.dto.SpecializationDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
 import ptsd14.find.doctor.exception.DuplicateResourceException;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
 import ptsd14.find.doctor.mapper.SpecializationMapper;
@@ -20,6 +22,7 @@ public class SpecializationService {
 
     private final SpecializationRepos specializationRepository;
     private final SpecializationMapper specializationMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public Page<SpecializationDto> getAll(Pageable pageable, String search) {
@@ -51,6 +54,7 @@ public class SpecializationService {
         specialization.setIconUrl(dto.getIconUrl());
     }
         Specialization saved = specializationRepository.save(specialization);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.SPECIALIZATION, saved.getId(), false));
         return specializationMapper.toDto(saved);
     }
 
@@ -81,6 +85,7 @@ public class SpecializationService {
     }
 
         Specialization updatedSpecialization = specializationRepository.save(existing);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.SPECIALIZATION, id, false));
         return specializationMapper.toDto(updatedSpecialization);
     }
 
@@ -89,5 +94,6 @@ public class SpecializationService {
             throw new ResourceNotFoundException("Specialization not found");
         }
         specializationRepository.deleteById(id);
+        eventPublisher.publishEvent(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.SPECIALIZATION, id, true));
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package ptsd14.find.doctor.service;
+
+import com.stripe.StripeClient;
+import com.stripe.model.PaymentIntent;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    private final StripeClient stripeClient;
+    private final PaymentGatewayGuard guard;
+
+    @Override
+    public PaymentIntent createPaymentIntent(Long appointmentId, Long amountInCents, String currency) {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(amountInCents)
+                .setCurrency(currency)
+                .addPaymentMethodType("card")
+                .putMetadata("appointmentId", appointmentId.toString())
+                .build();
+
+        return guard.execute("createPaymentIntent", () -> stripeClient.paymentIntents().create(params));
+    }
+
+    @Override
+    public void refund(String paymentIntentId) {
+        RefundCreateParams params = RefundCreateParams.builder()
+                .setPaymentIntent(paymentIntentId)
+                .build();
+
+        guard.execute("refund", () -> stripeClient.refunds().create(params));
+    }
+}
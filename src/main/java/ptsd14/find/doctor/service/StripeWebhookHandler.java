@@ -0,0 +1,42 @@
+package ptsd14.find.doctor.service;
+
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.ApiResource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.stereotype.Component;
+
+import ptsd14.find.doctor.exception.PaymentProcessingException;
+import ptsd14.find.doctor.model.WebhookEvent;
+
+/**
+ * Applies a stored Stripe event. Must be idempotent: an event can be handled
+ * again after a crash or a failed status update.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StripeWebhookHandler {
+
+    private final PaymentService paymentService;
+
+    public void handle(WebhookEvent webhookEvent) {
+        if (!"payment_intent.succeeded".equals(webhookEvent.getType())) {
+            log.info("Unhandled event type: {}", webhookEvent.getType());
+            return;
+        }
+
+        Event event = ApiResource.GSON.fromJson(webhookEvent.getPayload(), Event.class);
+        PaymentIntent paymentIntent = event.getDataObjectDeserializer().getObject()
+                .map(obj -> (PaymentIntent) obj)
+                .orElseThrow(() -> new PaymentProcessingException(
+                        "Could not deserialize PaymentIntent from event " + webhookEvent.getEventId()));
+
+        log.info("PaymentIntent succeeded: id={}, amount={}, currency={}",
+                paymentIntent.getId(), paymentIntent.getAmount(), paymentIntent.getCurrency());
+        paymentService.savePaymentFromIntent(paymentIntent);
+    }
+}
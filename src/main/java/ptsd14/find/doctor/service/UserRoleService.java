@@ -1,13 +1,17 @@
 package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ptsd14.find.doctor.dto.RoleDto;
 import ptsd14.find.doctor.dto.RoleFormDto;
+import ptsd14.find.doctor.event.TokensRevokedEvent;
 import ptsd14.find.doctor.mapper.UserRoleMapper;
 import ptsd14.find.doctor.model.UserRole;
+import ptsd14.find.doctor.repository.UserRepo;
 import ptsd14.find.doctor.repository.UserRoleRepository;
 
 import java.time.LocalDateTime;
@@ -19,6 +23,8 @@ public class UserRoleService {
 
     private final UserRoleRepository userRoleRepository;
     private final UserRoleMapper roleMapper;
+    private final UserRepo userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<RoleDto> getAllRoles(Pageable pageable) {
         return userRoleRepository.findAll(pageable)
@@ -33,12 +39,17 @@ public class UserRoleService {
         return roleMapper.toDto(saved);
     }
 
+    @Transactional
     public RoleDto updateRole(Long id, RoleFormDto formDto) {
         UserRole existing = userRoleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Role not found"));
         roleMapper.updateFromFormDto(formDto, existing);
         existing.setUpdatedAt(LocalDateTime.now());
         UserRole saved = userRoleRepository.save(existing);
+
+        // Permissions are baked into access tokens, so holders of this role must log in again
+        userRepository.incrementTokenVersionByRoleId(id);
+        eventPublisher.publishEvent(new TokensRevokedEvent(null));
         return roleMapper.toDto(saved);
     }
 
@@ -1,8 +1,11 @@
 package ptsd14.find.doctor.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -12,7 +15,9 @@ import ptsd14.find.doctor.dto.CreateUserRequest;
 import ptsd14.find.doctor.dto.UpdateProfileRequest;
 import ptsd14.find.doctor.dto.UpdateUserRequest;
 import ptsd14.find.doctor.dto.UserDto;
+import ptsd14.find.doctor.event.TokensRevokedEvent;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.filter.UserFilter;
 import ptsd14.find.doctor.mapper.UserMapper;
 import ptsd14.find.doctor.model.User;
 import ptsd14.find.doctor.model.UserRole;
@@ -32,31 +37,20 @@ public class UserService {
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
     private final UserRoleRepository userRoleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CountCache countCache;
 
     @Transactional(readOnly = true)
-    public Page<UserDto> getAll(Pageable pageable, String search, String roleName) {
-        Page<User> users;
-
-        boolean hasSearch = search != null && !search.trim().isEmpty();
-        boolean hasRole = roleName != null && !roleName.trim().isEmpty();
-
-        UserRole role = null;
-        if (hasRole) {
-            role = userRoleRepository.findByName(roleName)
-                .orElseThrow(() -> new RuntimeException("Role not found: " + roleName));
-        }
-
-        if (hasRole && hasSearch) {
-            users = userRepository.findByRoleAndEmailContainingIgnoreCase(role, search.trim(), pageable);
-        } else if (hasRole) {
-            users = userRepository.findByRole(role, pageable);
-        } else if (hasSearch) {
-            users = userRepository.findByEmailContainingIgnoreCase(search.trim(), pageable);
-        } else {
-            users = userRepository.findAll(pageable);
-        }
+    public Page<UserDto> getAll(UserFilter filter, Pageable pageable) {
+        Specification<User> spec = filter.toSpecification();
+        return countCache.page(userRepository.findSlice(spec, pageable), CountCache.Scope.USERS, filter,
+                        () -> userRepository.count(spec))
+                .map(userMapper::toDto);
+    }
 
-        return users.map(userMapper::toDto);
+    @Transactional(readOnly = true)
+    public Slice<UserDto> getSlice(UserFilter filter, Pageable pageable) {
+        return userRepository.findSlice(filter.toSpecification(), pageable).map(userMapper::toDto);
     }
 
     @Transactional(readOnly = true)
@@ -99,10 +93,15 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        user.setEmail(req.getEmail());
-
         UserRole role = userRoleRepository.findById(req.getRoleId())
             .orElseThrow(() -> new RuntimeException("Role not found with id: " + req.getRoleId()));
+
+        // Tokens carry the email and authorities, so outstanding ones must stop working
+        boolean revokeTokens = !role.getId().equals(user.getRole().getId())
+            || !user.getEmail().equals(req.getEmail())
+            || (req.getPassword() != null && !req.getPassword().isEmpty());
+
+        user.setEmail(req.getEmail());
         user.setRole(role);
 
 
@@ -118,10 +117,26 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(req.getPassword()));
         }
 
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+
         User updated = userRepository.save(user);
+        if (revokeTokens) {
+            eventPublisher.publishEvent(new TokensRevokedEvent(updated.getId()));
+        }
         return userMapper.toDto(updated);
     }
 
+    // Forced logout: every access token issued so far for this user is rejected
+    @Transactional
+    public void revokeTokens(Long id) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        eventPublisher.publishEvent(new TokensRevokedEvent(user.getId()));
+    }
+
     @Transactional
     public void delete(Long id) {
         User user = userRepository.findById(id)
@@ -136,12 +151,20 @@ public class UserService {
         User user = userRepository.findByEmail(currentEmail)
             .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
+        boolean revokeTokens = false;
         if (request.getEmail() != null && !request.getEmail().isBlank()) {
+            revokeTokens = !request.getEmail().equals(user.getEmail());
             user.setEmail(request.getEmail());
         }
 
         if (request.getPassword() != null && !request.getPassword().isBlank()) {
             user.setPassword(passwordEncoder.encode(request.getPassword()));
+            revokeTokens = true;
+        }
+
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            eventPublisher.publishEvent(new TokensRevokedEvent(user.getId()));
         }
 
         User saved = userRepository.save(user);
@@ -0,0 +1,102 @@
+package ptsd14.find.doctor.service;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import ptsd14.find.doctor.model.WebhookEvent;
+import ptsd14.find.doctor.model.WebhookEventStatus;
+import ptsd14.find.doctor.repository.WebhookEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistence side of the webhook inbox: recording, claiming and settling
+ * events. Each method is its own short transaction.
+ */
+@Service
+@RequiredArgsConstructor
+public class WebhookInboxService {
+
+    private static final List<WebhookEventStatus> CLAIMABLE = List.of(WebhookEventStatus.RECEIVED, WebhookEventStatus.FAILED);
+
+    private final WebhookEventRepository webhookEventRepository;
+
+    @Value("${app.webhook.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.webhook.backoff-base-seconds:5}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.webhook.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    // A PROCESSING claim older than this is assumed lost (e.g. the instance died) and retried
+    @Value("${app.webhook.stuck-after-seconds:300}")
+    private long stuckAfterSeconds;
+
+    public boolean isKnown(String eventId) {
+        return webhookEventRepository.existsByEventId(eventId);
+    }
+
+    /**
+     * Stores a verified event. Throws DataIntegrityViolationException when the
+     * event id was already recorded by a concurrent delivery.
+     */
+    @Transactional
+    public WebhookEvent record(String eventId, String type, Long partitionKey, String payload) {
+        WebhookEvent event = new WebhookEvent();
+        event.setEventId(eventId);
+        event.setType(type);
+        event.setPartitionKey(partitionKey);
+        event.setPayload(payload);
+        return webhookEventRepository.saveAndFlush(event);
+    }
+
+    @Transactional
+    public Optional<WebhookEvent> claim(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = webhookEventRepository.claim(id, CLAIMABLE, now, now.minusSeconds(stuckAfterSeconds));
+        return claimed == 1 ? webhookEventRepository.findById(id) : Optional.empty();
+    }
+
+    @Transactional
+    public void markProcessed(Long id) {
+        webhookEventRepository.findById(id).ifPresent(event -> {
+            event.setStatus(WebhookEventStatus.PROCESSED);
+            event.setProcessedAt(LocalDateTime.now());
+            event.setLastError(null);
+        });
+    }
+
+    @Transactional
+    public void markFailed(Long id, String error) {
+        webhookEventRepository.findById(id).ifPresent(event -> {
+            event.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(WebhookEventStatus.DEAD);
+            } else {
+                event.setStatus(WebhookEventStatus.FAILED);
+                event.setNextAttemptAt(LocalDateTime.now().plus(backoff(event.getAttempts())));
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<Object[]> findDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return webhookEventRepository.findDue(CLAIMABLE, now, now.minusSeconds(stuckAfterSeconds), PageRequest.of(0, limit));
+    }
+
+    // Exponential backoff: base, 2x base, 4x base ... capped at the configured maximum
+    private Duration backoff(int attempts) {
+        long seconds = backoffBaseSeconds << Math.min(Math.max(attempts - 1, 0), 20);
+        return Duration.ofSeconds(Math.min(seconds, backoffMaxSeconds));
+    }
+}
@@ -0,0 +1,112 @@
+package ptsd14.find.doctor.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import ptsd14.find.doctor.model.WebhookEvent;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pool for inbox events. Each partition is a single thread
+ * with a bounded queue, and events are routed by appointment id so events for
+ * the same appointment never run concurrently. Anything that does not fit in
+ * a queue, or fails, is picked up again by the poller.
+ */
+@Slf4j
+@Service
+public class WebhookProcessor {
+
+    private static final int POLL_BATCH = 500;
+
+    private final WebhookInboxService inbox;
+    private final StripeWebhookHandler handler;
+    private final ThreadPoolExecutor[] partitions;
+    // Ids currently queued or running, so the poller does not enqueue them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public WebhookProcessor(WebhookInboxService inbox,
+                            StripeWebhookHandler handler,
+                            @Value("${app.webhook.workers:4}") int workers,
+                            @Value("${app.webhook.queue-capacity:1000}") int queueCapacity) {
+        this.inbox = inbox;
+        this.handler = handler;
+        this.partitions = new ThreadPoolExecutor[workers];
+        for (int i = 0; i < workers; i++) {
+            String name = "webhook-worker-" + i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+    }
+
+    public void submit(Long eventId, Long partitionKey) {
+        if (!inFlight.add(eventId)) {
+            return;
+        }
+        try {
+            partitionFor(partitionKey != null ? partitionKey : eventId).execute(() -> {
+                try {
+                    process(eventId);
+                } finally {
+                    inFlight.remove(eventId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(eventId);
+            log.warn("Webhook queue full, event {} left for the poller", eventId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook.poll-interval-ms:5000}")
+    public void pollDue() {
+        List<Object[]> due = inbox.findDue(POLL_BATCH);
+        for (Object[] row : due) {
+            submit((Long) row[0], (Long) row[1]);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void process(Long eventId) {
+        Optional<WebhookEvent> claimed = inbox.claim(eventId);
+        if (claimed.isEmpty()) {
+            // Already processed, or another worker holds it
+            return;
+        }
+        try {
+            handler.handle(claimed.get());
+            inbox.markProcessed(eventId);
+        } catch (Exception e) {
+            log.warn("Webhook event {} failed: {}", eventId, e.getMessage());
+            inbox.markFailed(eventId, e.getMessage());
+        }
+    }
+
+    private ThreadPoolExecutor partitionFor(long key) {
+        return partitions[(int) Math.floorMod(key, (long) partitions.length)];
+    }
+}
@@ -0,0 +1,244 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.dto.FeedbackDto;
+import ptsd14.find.doctor.event.AppointmentsArchivedEvent;
+import ptsd14.find.doctor.filter.FeedbackFilter;
+import ptsd14.find.doctor.index.FeedbackSearchIndex;
+import ptsd14.find.doctor.mapper.FeedbackMapperImpl;
+import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.repository.*;
+import ptsd14.find.doctor.service.AppointmentArchiveService;
+import ptsd14.find.doctor.service.AppointmentHistoryService;
+import ptsd14.find.doctor.service.CountCache;
+import ptsd14.find.doctor.service.DoctorRatingService;
+import ptsd14.find.doctor.service.FeedbackService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+class AppointmentArchiveServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+    @Autowired
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+    @Autowired
+    private ArchivedPaymentRepository archivedPaymentRepository;
+    @Autowired
+    private ArchivedFeedbackRepository archivedFeedbackRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private AppointmentArchiveService archiveService;
+    private AppointmentHistoryService historyService;
+    private FeedbackService feedbackService;
+
+    private User patientUser;
+    private Doctor doctor;
+    private Patient patient;
+    private AppointmentType type;
+
+    @BeforeEach
+    void setup() {
+        archiveService = new AppointmentArchiveService(appointmentRepository, paymentRepository, feedbackRepository,
+                archivedAppointmentRepository, archivedPaymentRepository, archivedFeedbackRepository,
+                eventPublisher, new TransactionTemplate(transactionManager));
+        historyService = new AppointmentHistoryService(appointmentRepository, archivedAppointmentRepository);
+        feedbackService = new FeedbackService(feedbackRepository, archivedFeedbackRepository, appointmentRepository,
+                new FeedbackMapperImpl(), mock(DoctorRatingService.class), mock(FeedbackSearchIndex.class),
+                eventPublisher, new CountCache(100, 30));
+
+        UserRole role = new UserRole();
+        role.setName("PATIENT");
+        entityManager.persist(role);
+
+        User doctorUser = new User();
+        doctorUser.setEmail("doctor@example.com");
+        doctorUser.setPassword("secret");
+        doctorUser.setRole(role);
+        entityManager.persist(doctorUser);
+
+        patientUser = new User();
+        patientUser.setEmail("patient@example.com");
+        patientUser.setPassword("secret");
+        patientUser.setRole(role);
+        entityManager.persist(patientUser);
+
+        Hospital hospital = new Hospital();
+        hospital.setName("Calmette");
+        hospital.setPhone("012345678");
+        hospital.setAddress("Phnom Penh");
+        entityManager.persist(hospital);
+
+        Specialization specialization = new Specialization();
+        specialization.setName("Cardiology");
+        entityManager.persist(specialization);
+
+        doctor = new Doctor();
+        doctor.setFirstname("nita");
+        doctor.setLastname("hun");
+        doctor.setStatus("ACTIVE");
+        doctor.setHospital(hospital);
+        doctor.setSpecialization(specialization);
+        doctor.setUser(doctorUser);
+        entityManager.persist(doctor);
+
+        patient = new Patient();
+        patient.setFirstname("sok");
+        patient.setLastname("leng");
+        patient.setStatus("ACTIVE");
+        patient.setGender("female");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setAddress("Phnom Penh");
+        patient.setUser(patientUser);
+        entityManager.persist(patient);
+
+        type = new AppointmentType();
+        type.setName("Consultation");
+        type.setPrice(new BigDecimal("20.00"));
+        type.setDuration(30);
+        entityManager.persist(type);
+    }
+
+    @Test
+    void archive_movesOldFinishedAppointmentsWithPaymentAndFeedback() {
+        Appointment old = appointment(LocalDate.now().minusYears(2).atTime(9, 0), AppointmentStatus.COMPLETED);
+        pay(old);
+        Feedback feedback = new Feedback();
+        feedback.setRating(5);
+        feedback.setComment("Great");
+        feedback.setAppointment(old);
+        entityManager.persist(feedback);
+
+        Appointment oldButOpen = appointment(LocalDate.now().minusYears(2).atTime(10, 0), AppointmentStatus.PENDING);
+        Appointment recent = appointment(LocalDateTime.now().minusDays(3), AppointmentStatus.COMPLETED);
+        entityManager.flush();
+        entityManager.clear();
+
+        int archived = archiveService.archive();
+
+        assertThat(archived).isEqualTo(1);
+        assertThat(appointmentRepository.findAll()).extracting(Appointment::getId)
+                .containsExactlyInAnyOrder(oldButOpen.getId(), recent.getId());
+        assertThat(archivedAppointmentRepository.findById(old.getId())).isPresent();
+        assertThat(paymentRepository.count()).isZero();
+        assertThat(archivedPaymentRepository.count()).isEqualTo(1);
+        assertThat(feedbackRepository.count()).isZero();
+        assertThat(archivedFeedbackRepository.findAll()).singleElement()
+                .satisfies(f -> assertThat(f.getDoctorId()).isEqualTo(doctor.getId()));
+        verify(eventPublisher).publishEvent(any(AppointmentsArchivedEvent.class));
+    }
+
+    @Test
+    void feedbackList_continuesIntoTheArchive() {
+        Appointment old = appointment(LocalDate.now().minusYears(2).atTime(9, 0), AppointmentStatus.COMPLETED);
+        Feedback archived = feedback(old, 3, "Long ago");
+        Appointment recent = appointment(LocalDateTime.now().minusDays(3), AppointmentStatus.COMPLETED);
+        Feedback hot = feedback(recent, 5, "Just now");
+        entityManager.flush();
+        entityManager.clear();
+
+        archiveService.archive();
+
+        FeedbackFilter all = FeedbackFilter.builder().build();
+        Page<FeedbackDto> first = feedbackService.getAll(all, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "id")));
+        Page<FeedbackDto> second = feedbackService.getAll(all, PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "id")));
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        assertThat(first.getContent()).extracting(FeedbackDto::getId).containsExactly(hot.getId());
+        assertThat(second.getContent()).singleElement().satisfies(dto -> {
+            assertThat(dto.getId()).isEqualTo(archived.getId());
+            assertThat(dto.getAppointmentId()).isEqualTo(old.getId());
+        });
+
+        Slice<FeedbackDto> firstSlice = feedbackService.getSlice(all, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "id")));
+        Slice<FeedbackDto> secondSlice = feedbackService.getSlice(all, PageRequest.of(1, 1, Sort.by(Sort.Direction.DESC, "id")));
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(secondSlice.getContent()).extracting(FeedbackDto::getId).containsExactly(archived.getId());
+        assertThat(secondSlice.hasNext()).isFalse();
+
+        FeedbackFilter threeStars = FeedbackFilter.builder().rating(3).doctorId(doctor.getId()).build();
+        assertThat(feedbackService.getAll(threeStars, PageRequest.of(0, 10)).getContent())
+                .extracting(FeedbackDto::getId).containsExactly(archived.getId());
+    }
+
+    @Test
+    void history_mergesBothTiersNewestFirst() {
+        Appointment oldest = appointment(LocalDate.now().minusYears(3).atTime(9, 0), AppointmentStatus.COMPLETED);
+        pay(oldest);
+        Appointment older = appointment(LocalDate.now().minusYears(2).atTime(9, 0), AppointmentStatus.CANCELED);
+        Appointment recent = appointment(LocalDateTime.now().minusDays(3), AppointmentStatus.COMPLETED);
+        Appointment upcoming = appointment(LocalDateTime.now().plusDays(3), AppointmentStatus.PENDING);
+        entityManager.flush();
+        entityManager.clear();
+
+        archiveService.archive();
+
+        Page<AppointmentDto> first = historyService.getPatientHistory(patientUser.getId(), PageRequest.of(0, 3));
+        Page<AppointmentDto> second = historyService.getPatientHistory(patientUser.getId(), PageRequest.of(1, 3));
+
+        assertThat(first.getTotalElements()).isEqualTo(4);
+        assertThat(first.getContent()).extracting(AppointmentDto::getId)
+                .containsExactly(upcoming.getId(), recent.getId(), older.getId());
+        assertThat(first.getContent()).extracting(AppointmentDto::isArchived).containsExactly(false, false, true);
+        assertThat(second.getContent()).singleElement().satisfies(dto -> {
+            assertThat(dto.getId()).isEqualTo(oldest.getId());
+            assertThat(dto.getPaymentStatus()).isEqualTo("PAID");
+            assertThat(dto.getDoctorName()).isEqualTo("nita hun");
+        });
+    }
+
+    private Appointment appointment(LocalDateTime dateTime, AppointmentStatus status) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setAppointmentType(type);
+        appointment.setDateTime(dateTime);
+        appointment.setNote("Visit");
+        appointment.setStatus(status);
+        return entityManager.persist(appointment);
+    }
+
+    private Feedback feedback(Appointment appointment, int rating, String comment) {
+        Feedback feedback = new Feedback();
+        feedback.setRating(rating);
+        feedback.setComment(comment);
+        feedback.setAppointment(appointment);
+        return entityManager.persist(feedback);
+    }
+
+    private void pay(Appointment appointment) {
+        Payment payment = new Payment();
+        payment.setAmount(new BigDecimal("20.00"));
+        payment.setPaymentMethod("CASH");
+        payment.setPaymentStatus("PAID");
+        payment.setAppointment(appointment);
+        entityManager.persist(payment);
+    }
+}
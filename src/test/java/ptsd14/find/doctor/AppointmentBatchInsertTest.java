@@ -0,0 +1,143 @@
+package ptsd14.find.doctor;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import ptsd14.find.doctor.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that appointment inserts are sent as JDBC batches. The 100k row
+ * benchmark only runs with -Dbenchmark=true and compares batch size 1
+ * (what IDENTITY ids forced) against the configured batch size.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+    "spring.jpa.properties.hibernate.order_inserts=true"
+})
+public class AppointmentBatchInsertTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Long doctorId;
+    private Long patientId;
+    private Long typeId;
+
+    @BeforeEach
+    void setup() {
+        UserRole role = new UserRole();
+        role.setName("PATIENT");
+        entityManager.persist(role);
+
+        Hospital hospital = new Hospital();
+        hospital.setName("Calmette");
+        hospital.setPhone("012345678");
+        hospital.setAddress("Phnom Penh");
+        entityManager.persist(hospital);
+
+        Specialization specialization = new Specialization();
+        specialization.setName("Cardiology");
+        entityManager.persist(specialization);
+
+        Doctor doctor = new Doctor();
+        doctor.setFirstname("nita");
+        doctor.setLastname("hun");
+        doctor.setStatus("ACTIVE");
+        doctor.setHospital(hospital);
+        doctor.setSpecialization(specialization);
+        doctor.setUser(user("doctor@example.com", role));
+        doctorId = entityManager.persist(doctor).getId();
+
+        Patient patient = new Patient();
+        patient.setFirstname("sok");
+        patient.setLastname("leng");
+        patient.setStatus("ACTIVE");
+        patient.setGender("female");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setAddress("Phnom Penh");
+        patient.setUser(user("patient@example.com", role));
+        patientId = entityManager.persist(patient).getId();
+
+        AppointmentType type = new AppointmentType();
+        type.setName("Consultation");
+        type.setPrice(new BigDecimal("20.00"));
+        type.setDuration(30);
+        typeId = entityManager.persist(type).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void inserts_shouldBeBatched() {
+        insertAppointments(500, 500);
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(500);
+        // One prepared statement per batch of 50 instead of one per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(20);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark_insert100kAppointments() {
+        int rows = Integer.getInteger("benchmark.rows", 100_000);
+        Session session = entityManager.getEntityManager().unwrap(Session.class);
+
+        session.setJdbcBatchSize(1);
+        double unbatched = insertAppointments(rows, 1_000);
+
+        session.setJdbcBatchSize(50);
+        double batched = insertAppointments(rows, 1_000);
+
+        System.out.printf("appointments: %d rows, unbatched %.0f rows/s, batched %.0f rows/s%n",
+                rows, unbatched, batched);
+    }
+
+    private double insertAppointments(int rows, int flushEvery) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(entityManager.getEntityManager().getReference(Doctor.class, doctorId));
+            appointment.setPatient(entityManager.getEntityManager().getReference(Patient.class, patientId));
+            appointment.setAppointmentType(entityManager.getEntityManager().getReference(AppointmentType.class, typeId));
+            appointment.setDateTime(LocalDateTime.now().plusMinutes(i));
+            appointment.setNote("Visit " + i);
+            entityManager.persist(appointment);
+
+            if ((i + 1) % flushEvery == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return rows / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private User user(String email, UserRole role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+}
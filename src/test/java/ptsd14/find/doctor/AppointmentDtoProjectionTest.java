@@ -0,0 +1,235 @@
+package ptsd14.find.doctor;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.filter.AppointmentFilter;
+import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.projection.ListFields;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class AppointmentDtoProjectionTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private User doctorUser;
+    private User patientUser;
+    private Doctor doctor;
+    private Patient patient;
+    private AppointmentType type;
+
+    @BeforeEach
+    void setup() {
+        UserRole role = new UserRole();
+        role.setName("PATIENT");
+        entityManager.persist(role);
+
+        doctorUser = user("doctor@example.com", role);
+        patientUser = user("patient@example.com", role);
+
+        Hospital hospital = new Hospital();
+        hospital.setName("Calmette");
+        hospital.setPhone("012345678");
+        hospital.setAddress("Phnom Penh");
+        entityManager.persist(hospital);
+
+        Specialization specialization = new Specialization();
+        specialization.setName("Cardiology");
+        entityManager.persist(specialization);
+
+        doctor = new Doctor();
+        doctor.setFirstname("nita");
+        doctor.setLastname("hun");
+        doctor.setStatus("ACTIVE");
+        doctor.setHospital(hospital);
+        doctor.setSpecialization(specialization);
+        doctor.setUser(doctorUser);
+        entityManager.persist(doctor);
+
+        patient = new Patient();
+        patient.setFirstname("sok");
+        patient.setLastname("leng");
+        patient.setStatus("ACTIVE");
+        patient.setGender("female");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setAddress("Phnom Penh");
+        patient.setUser(patientUser);
+        entityManager.persist(patient);
+
+        type = new AppointmentType();
+        type.setName("Consultation");
+        type.setPrice(new BigDecimal("20.00"));
+        type.setDuration(30);
+        entityManager.persist(type);
+
+        for (int i = 1; i <= 5; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(doctor);
+            appointment.setPatient(patient);
+            appointment.setAppointmentType(type);
+            appointment.setDateTime(LocalDateTime.now().plusDays(i));
+            appointment.setNote("Visit " + i);
+            entityManager.persist(appointment);
+
+            Payment payment = new Payment();
+            payment.setAmount(new BigDecimal("20.00"));
+            payment.setPaymentMethod("CASH");
+            payment.setPaymentStatus("PAID");
+            payment.setAppointment(appointment);
+            entityManager.persist(payment);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllDtos_shouldIssueOneSelectWithoutCount() {
+        Slice<AppointmentDto> slice = appointmentRepository.findAllDtos(
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.hasNext()).isTrue();
+        AppointmentDto dto = slice.getContent().get(0);
+        assertThat(dto.getDoctorName()).isEqualTo("nita hun");
+        assertThat(dto.getPatientName()).isEqualTo("sok leng");
+        assertThat(dto.getDoctorHospitalName()).isEqualTo("Calmette");
+        assertThat(dto.getPaymentStatus()).isEqualTo("PAID");
+        assertThat(dto.getStatus()).isEqualTo("PENDING");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findDtosByDoctorName_shouldIssueOneSelectAndCountSeparately() {
+        Slice<AppointmentDto> slice = appointmentRepository.findDtosByDoctorName("NIT", PageRequest.of(2, 2));
+
+        assertThat(slice.getContent()).hasSize(1);
+        assertThat(slice.hasNext()).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(appointmentRepository.countDtosByDoctorName("NIT")).isEqualTo(5);
+        assertThat(appointmentRepository.countDtosByDoctorName("zzz")).isZero();
+    }
+
+    @Test
+    void findDtosAfter_shouldSeekBelowTheCursorInOneSelect() {
+        Slice<AppointmentDto> first = appointmentRepository.findDtosAfter(Long.MAX_VALUE, PageRequest.of(0, 2));
+        Long cursor = first.getContent().get(1).getId();
+        Slice<AppointmentDto> next = appointmentRepository.findDtosAfter(cursor, PageRequest.of(0, 2));
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(next.getContent()).hasSize(2)
+                .allSatisfy(dto -> assertThat(dto.getId()).isLessThan(cursor));
+        assertThat(next.getContent().get(0).getDoctorName()).isEqualTo("nita hun");
+        assertThat(appointmentRepository.findDtosByDoctorNameAfter("NIT", cursor, PageRequest.of(0, 10)).getContent())
+                .hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void findDtosByDoctorUserId_shouldIssueOneSelectAndCountSeparately() {
+        Slice<AppointmentDto> slice = appointmentRepository.findDtosByDoctorUserId(doctorUser.getId(), PageRequest.of(0, 2));
+
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(appointmentRepository.countDtosByDoctorUserId(doctorUser.getId())).isEqualTo(5);
+    }
+
+    @Test
+    void findDtosByPatientUserId_shouldIssueOneSelectAndOneCount() {
+        Page<AppointmentDto> page = appointmentRepository.findDtosByPatientUserId(patientUser.getId(), PageRequest.of(0, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void findDtoSliceByPatientUserId_shouldIssueOneSelectAndCountSeparately() {
+        Slice<AppointmentDto> slice = appointmentRepository.findDtoSliceByPatientUserId(patientUser.getId(), PageRequest.of(0, 2));
+
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(slice.getContent().get(0).getPatientName()).isEqualTo("sok leng");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(appointmentRepository.countDtosByPatientUserId(patientUser.getId())).isEqualTo(5);
+    }
+
+    @Test
+    void findUnpaidDtos_shouldReturnOnlyAppointmentsWithoutPayment() {
+        Appointment unpaid = new Appointment();
+        unpaid.setDoctor(entityManager.find(Doctor.class, doctor.getId()));
+        unpaid.setPatient(entityManager.find(Patient.class, patient.getId()));
+        unpaid.setAppointmentType(entityManager.find(AppointmentType.class, type.getId()));
+        unpaid.setDateTime(LocalDateTime.now().plusDays(10));
+        unpaid.setNote("Unpaid visit");
+        entityManager.persistAndFlush(unpaid);
+        entityManager.clear();
+        statistics.clear();
+
+        Page<AppointmentDto> page = appointmentRepository.findUnpaidDtos(
+                doctor.getId(), null, patientUser.getId(), LocalDateTime.now(), null, PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(page.getContent().get(0).getId()).isEqualTo(unpaid.getId());
+        assertThat(page.getContent().get(0).getPaymentStatus()).isNull();
+        // A first page that is not full settles the total, so no count runs
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findFields_shouldReturnOnlyTheSelectedFieldsInOneSelect() {
+        var filter = AppointmentFilter.builder().patientUserId(patientUser.getId()).build();
+
+        Slice<Map<String, Object>> rows = appointmentRepository.findFields(
+                ListFields.APPOINTMENTS.select("doctorName, paymentStatus"), filter.toSpecification(null),
+                PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertThat(rows.getContent()).hasSize(2);
+        assertThat(rows.hasNext()).isTrue();
+        Map<String, Object> row = rows.getContent().get(0);
+        assertThat(row.keySet()).containsExactly("id", "doctorName", "paymentStatus");
+        assertThat(row).containsEntry("doctorName", "nita hun").containsEntry("paymentStatus", "PAID");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void select_shouldRejectUnknownFields() {
+        assertThatThrownBy(() -> ListFields.APPOINTMENTS.select("dateTime,password"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("password");
+    }
+
+    private User user(String email, UserRole role) {
+        User user = new User();
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+}
@@ -0,0 +1,133 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ptsd14.find.doctor.dto.ImportReportDto;
+import ptsd14.find.doctor.event.AppointmentsImportedEvent;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.repository.*;
+import ptsd14.find.doctor.service.AppointmentImportService;
+import ptsd14.find.doctor.service.DoctorBookingLocks;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AppointmentImportServiceTest {
+
+    private static final String CSV = """
+        doctorId,patientId,appointmentTypeId,dateTime,note,status
+        1,10,100,2023-01-05T09:00,"Checkup, yearly",COMPLETED
+        1,10,100,2023-01-06T09:00,Follow up,
+        2,10,100,2023-01-07T09:00,Unknown doctor,
+        1,10,100,not-a-date,Bad date,
+        1,10,100,2023-01-08T09:00,"Multi
+        line ""quoted"" note",
+        """;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    @Mock
+    private DoctorRepository doctorRepository;
+    @Mock
+    private PatientRepository patientRepository;
+    @Mock
+    private AppointmentTypeRepository appointmentTypeRepository;
+    @Mock
+    private DoctorAvailabilityIndex availabilityIndex;
+    @Mock
+    private DoctorBookingLocks bookingLocks;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Appointment>> savedCaptor;
+
+    private AppointmentImportService importService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        importService = new AppointmentImportService(appointmentRepository, doctorRepository, patientRepository,
+                appointmentTypeRepository, availabilityIndex, bookingLocks, eventPublisher,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+
+        when(doctorRepository.findExistingIds(any())).thenAnswer(inv -> ((Collection<Long>) inv.getArgument(0))
+                .stream().filter(id -> id == 1L).collect(Collectors.toSet()));
+        when(patientRepository.findExistingIds(any())).thenAnswer(inv -> new HashSet<>(inv.<Collection<Long>>getArgument(0)));
+        AppointmentType type = new AppointmentType();
+        type.setId(100L);
+        type.setDuration(30);
+        when(appointmentTypeRepository.findAllById(any())).thenReturn(List.of(type));
+    }
+
+    @Test
+    void importCsv_ShouldImportValidRowsAndReportInvalidOnes() throws Exception {
+        ImportReportDto report = importService.importCsv(new StringReader(CSV));
+
+        assertEquals(5, report.getTotalRows());
+        assertEquals(3, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(List.of(4L, 5L), report.getErrors().stream().map(ImportReportDto.RowError::getLine).toList());
+        assertTrue(report.getErrors().get(0).getMessage().contains("Doctor 2 not found"));
+        assertTrue(report.getErrors().get(1).getMessage().contains("Invalid dateTime"));
+
+        // Ids are resolved once per import, not once per row
+        verify(doctorRepository, times(2)).findExistingIds(any());
+        verify(patientRepository, times(1)).findExistingIds(any());
+        verify(appointmentTypeRepository, times(1)).findAllById(any());
+
+        verify(appointmentRepository, times(2)).saveAll(savedCaptor.capture());
+        List<Appointment> saved = savedCaptor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(3, saved.size());
+        assertEquals("Checkup, yearly", saved.get(0).getNote());
+        // Past rows without a status are history
+        assertEquals(AppointmentStatus.COMPLETED, saved.get(1).getStatus());
+        assertEquals("Multi\nline \"quoted\" note", saved.get(2).getNote());
+        verify(eventPublisher, times(2)).publishEvent(any(AppointmentsImportedEvent.class));
+    }
+
+    @Test
+    void importCsv_ShouldLockDoctorsAndSkipUpcomingRowsWhoseSlotIsTaken() throws Exception {
+        LocalDateTime slot = LocalDateTime.now().plusDays(2).truncatedTo(ChronoUnit.HOURS);
+        String csv = "doctorId,patientId,appointmentTypeId,dateTime,note\n"
+                + "1,10,100," + slot + ",Booked meanwhile\n"
+                + "1,10,100," + slot.plusHours(2) + ",Free slot\n";
+        when(appointmentRepository.findDoctorSlotsBetween(eq(1L), any(), any(), any())).thenAnswer(inv ->
+                inv.<LocalDateTime>getArgument(2).isAfter(slot.plusMinutes(30))
+                        ? List.of()
+                        : List.<Object[]>of(new Object[]{99L, slot.minusMinutes(15), 30}));
+
+        ImportReportDto report = importService.importCsv(new StringReader(csv));
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of(2L), report.getErrors().stream().map(ImportReportDto.RowError::getLine).toList());
+        verify(bookingLocks).lockAllUntilCompletion(Set.of(1L));
+        verify(doctorRepository).findByIdForUpdate(1L);
+        verify(appointmentRepository).saveAll(savedCaptor.capture());
+        assertEquals("Free slot", savedCaptor.getValue().get(0).getNote());
+    }
+
+    @Test
+    void importCsv_ShouldRejectHeaderWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importCsv(new StringReader("doctorId,patientId\n1,2\n")));
+    }
+}
@@ -3,17 +3,28 @@ package ptsd14.find.doctor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 
 import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.dto.BulkStatusResultDto;
+import ptsd14.find.doctor.dto.SliceDto;
+import ptsd14.find.doctor.exception.BookingConflictException;
+import ptsd14.find.doctor.exception.InvalidStatusTransitionException;
 import ptsd14.find.doctor.exception.ResourceNotFoundException;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.index.NameTrigramIndex;
 import ptsd14.find.doctor.mapper.AppointmentMapper;
 import ptsd14.find.doctor.model.*;
 import ptsd14.find.doctor.repository.*;
 import ptsd14.find.doctor.service.AppointmentService;
+import ptsd14.find.doctor.service.CountCache;
+import ptsd14.find.doctor.service.DoctorBookingLocks;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,6 +41,16 @@ class AppointmentServiceTest {
     private PatientRepository patientRepository;
     @Mock
     private AppointmentTypeRepository appointmentTypeRepository;
+    @Mock
+    private DoctorAvailabilityIndex availabilityIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private DoctorBookingLocks bookingLocks;
+    @Mock
+    private NameTrigramIndex nameIndex;
+    @Spy
+    private CountCache countCache = new CountCache(100, 30);
 
     @InjectMocks
     private AppointmentService appointmentService;
@@ -53,7 +74,7 @@ class AppointmentServiceTest {
         AppointmentType appointmentType = new AppointmentType();
         Appointment savedAppointment = new Appointment();
 
-        when(doctorRepository.findById(1L)).thenReturn(Optional.of(doctor));
+        when(doctorRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(doctor));
         when(patientRepository.findById(2L)).thenReturn(Optional.of(patient));
         when(appointmentTypeRepository.findById(3L)).thenReturn(Optional.of(appointmentType));
         when(appointmentMapper.toEntity(dto)).thenReturn(appointment);
@@ -63,7 +84,8 @@ class AppointmentServiceTest {
         AppointmentDto result = appointmentService.create(dto);
 
         assertNotNull(result);
-        verify(doctorRepository).findById(1L);
+        verify(bookingLocks).lockUntilCompletion(1L);
+        verify(doctorRepository).findByIdForUpdate(1L);
         verify(patientRepository).findById(2L);
         verify(appointmentTypeRepository).findById(3L);
         verify(appointmentRepository).save(appointment);
@@ -81,6 +103,28 @@ class AppointmentServiceTest {
         assertEquals("Appointment date and time must be in the future.", ex.getMessage());
     }
 
+    @Test
+    void create_ShouldThrowConflict_WhenDoctorAlreadyBooked() {
+        AppointmentDto dto = new AppointmentDto();
+        dto.setDateTime(LocalDateTime.now().plusDays(1));
+        dto.setDoctorId(1L);
+        dto.setPatientId(2L);
+        dto.setAppointmentTypeId(3L);
+
+        AppointmentType appointmentType = new AppointmentType();
+        appointmentType.setDuration(45);
+
+        when(doctorRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Doctor()));
+        when(patientRepository.findById(2L)).thenReturn(Optional.of(new Patient()));
+        when(appointmentTypeRepository.findById(3L)).thenReturn(Optional.of(appointmentType));
+        when(appointmentMapper.toEntity(dto)).thenReturn(new Appointment());
+        when(availabilityIndex.hasConfirmedConflict(1L, dto.getDateTime(), dto.getDateTime().plusMinutes(45), null))
+                .thenReturn(true);
+
+        assertThrows(BookingConflictException.class, () -> appointmentService.create(dto));
+        verify(appointmentRepository, never()).save(any());
+    }
+
     @Test
     void getById_ShouldReturnDto_WhenFound() {
         Appointment appointment = new Appointment();
@@ -121,7 +165,7 @@ class AppointmentServiceTest {
         Appointment updated = new Appointment();
 
         when(appointmentRepository.findById(id)).thenReturn(Optional.of(existing));
-        when(doctorRepository.findById(dto.getDoctorId())).thenReturn(Optional.of(doctor));
+        when(doctorRepository.findByIdForUpdate(dto.getDoctorId())).thenReturn(Optional.of(doctor));
         when(patientRepository.findById(dto.getPatientId())).thenReturn(Optional.of(patient));
         when(appointmentTypeRepository.findById(dto.getAppointmentTypeId())).thenReturn(Optional.of(appointmentType));
         when(appointmentRepository.save(existing)).thenReturn(updated);
@@ -172,43 +216,186 @@ class AppointmentServiceTest {
     @Test
     void updateStatus_ShouldUpdateStatus_WhenFound() {
         Long id = 1L;
-        Appointment appointment = new Appointment();
         AppointmentDto dto = new AppointmentDto();
 
-        when(appointmentRepository.findById(id)).thenReturn(Optional.of(appointment));
-        when(appointmentRepository.save(appointment)).thenReturn(appointment);
-        when(appointmentMapper.toDto(appointment)).thenReturn(dto);
+        when(appointmentRepository.transitionStatus(eq(id), eq(EnumSet.of(AppointmentStatus.CONFIRMED)),
+                eq(AppointmentStatus.COMPLETED), any(LocalDateTime.class))).thenReturn(1);
+        when(appointmentRepository.findDtoById(id)).thenReturn(Optional.of(dto));
 
         AppointmentDto result = appointmentService.updateStatus(id, AppointmentStatus.COMPLETED);
 
         assertNotNull(result);
-        verify(appointmentRepository).save(appointment);
+        verify(appointmentRepository, never()).save(any());
+    }
+
+    @Test
+    void updateStatus_ShouldThrow_WhenTransitionNotAllowed() {
+        Long id = 1L;
+
+        when(appointmentRepository.transitionStatus(eq(id), any(), eq(AppointmentStatus.CONFIRMED), any(LocalDateTime.class)))
+                .thenReturn(0);
+        when(appointmentRepository.findStatusById(id)).thenReturn(Optional.of(AppointmentStatus.CANCELED));
+
+        assertThrows(InvalidStatusTransitionException.class,
+                () -> appointmentService.updateStatus(id, AppointmentStatus.CONFIRMED));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void updateStatus_ShouldThrowNotFound_WhenMissing() {
+        Long id = 99L;
+
+        when(appointmentRepository.transitionStatus(eq(id), any(), any(), any(LocalDateTime.class))).thenReturn(0);
+        when(appointmentRepository.findStatusById(id)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> appointmentService.updateStatus(id, AppointmentStatus.CANCELED));
+    }
+
+    @Test
+    void updateStatusForDoctor_ShouldReportOutcomePerId() {
+        Long doctorUserId = 7L;
+        LocalDateTime at = LocalDateTime.now().plusDays(1);
+        List<Long> ids = List.of(1L, 2L, 3L, 4L);
+
+        when(appointmentRepository.findStatusRows(any())).thenReturn(
+                List.of(
+                        new Object[]{1L, AppointmentStatus.CONFIRMED, 0L, 10L, doctorUserId, at},
+                        new Object[]{2L, AppointmentStatus.PENDING, 0L, 10L, doctorUserId, at},
+                        new Object[]{3L, AppointmentStatus.CONFIRMED, 0L, 11L, 8L, at}),
+                List.of(
+                        new Object[]{1L, AppointmentStatus.COMPLETED, 1L, 10L, doctorUserId, at},
+                        new Object[]{2L, AppointmentStatus.PENDING, 0L, 10L, doctorUserId, at},
+                        new Object[]{3L, AppointmentStatus.CONFIRMED, 0L, 11L, 8L, at}));
+        when(appointmentRepository.transitionStatusForDoctor(any(), eq(EnumSet.of(AppointmentStatus.CONFIRMED)),
+                eq(AppointmentStatus.COMPLETED), eq(doctorUserId), any(LocalDateTime.class))).thenReturn(1);
+
+        BulkStatusResultDto result = appointmentService.updateStatusForDoctor(doctorUserId, ids, AppointmentStatus.COMPLETED);
+
+        assertEquals(1, result.getUpdated());
+        assertEquals(List.of(
+                BulkStatusResultDto.Result.UPDATED,
+                BulkStatusResultDto.Result.INVALID_TRANSITION,
+                BulkStatusResultDto.Result.NOT_OWNED,
+                BulkStatusResultDto.Result.NOT_FOUND),
+                result.getOutcomes().stream().map(BulkStatusResultDto.Outcome::getResult).toList());
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void completeConfirmedForDoctor_ShouldCoverTheWholeDayInBatches() {
+        Long doctorUserId = 7L;
+        List<Long> ids = LongStream.rangeClosed(1, AppointmentService.MAX_BULK_IDS + 1).boxed().toList();
+        when(appointmentRepository.findIdsForDoctorBetween(eq(doctorUserId), eq(AppointmentStatus.CONFIRMED),
+                any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(ids);
+
+        BulkStatusResultDto result = appointmentService.completeConfirmedForDoctor(doctorUserId, LocalDate.now());
+
+        assertEquals(ids, result.getOutcomes().stream().map(BulkStatusResultDto.Outcome::getId).toList());
+        verify(appointmentRepository, times(2)).findStatusRows(any());
     }
 
     @Test
     void getAll_ShouldReturnPage_WhenNoSearch() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Appointment> page = new PageImpl<>(List.of(new Appointment()));
-        when(appointmentRepository.findAll(pageable)).thenReturn(page);
-        when(appointmentMapper.toDto(any())).thenReturn(new AppointmentDto());
+        Page<AppointmentDto> page = new PageImpl<>(List.of(new AppointmentDto()));
+        when(appointmentRepository.findAllDtos(pageable)).thenReturn(page);
 
         Page<AppointmentDto> result = appointmentService.getAll(pageable, null);
 
         assertEquals(1, result.getTotalElements());
-        verify(appointmentRepository).findAll(pageable);
+        verify(appointmentRepository).findAllDtos(pageable);
+        verifyNoInteractions(appointmentMapper);
     }
 
     @Test
     void getAll_ShouldReturnPage_WhenSearchProvided() {
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Appointment> page = new PageImpl<>(List.of(new Appointment()));
-        when(appointmentRepository.findByDoctorNameContainingIgnoreCase("nita", pageable)).thenReturn(page);
-        when(appointmentMapper.toDto(any())).thenReturn(new AppointmentDto());
+        Page<AppointmentDto> page = new PageImpl<>(List.of(new AppointmentDto()));
+        when(nameIndex.searchDoctors("nita")).thenReturn(null);
+        when(appointmentRepository.findDtosByDoctorName("nita", pageable)).thenReturn(page);
 
         Page<AppointmentDto> result = appointmentService.getAll(pageable, "nita");
 
         assertEquals(1, result.getTotalElements());
-        verify(appointmentRepository).findByDoctorNameContainingIgnoreCase("nita", pageable);
+        verify(appointmentRepository).findDtosByDoctorName("nita", pageable);
+    }
+
+    @Test
+    void getAll_ShouldQueryMatchedDoctorIds_WhenNameIndexAnswers() {
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<AppointmentDto> page = new PageImpl<>(List.of(new AppointmentDto()));
+        when(nameIndex.searchDoctors("nita")).thenReturn(new long[]{3L, 8L});
+        when(appointmentRepository.findDtosByDoctorIds(List.of(3L, 8L), pageable)).thenReturn(page);
+
+        Page<AppointmentDto> result = appointmentService.getAll(pageable, "nita");
+
+        assertEquals(1, result.getTotalElements());
+        verify(appointmentRepository, never()).findDtosByDoctorName(any(), any());
+    }
+
+    @Test
+    void getAll_ShouldCountOncePerSearch_WhenPagingThrough() {
+        List<AppointmentDto> full = List.of(new AppointmentDto(), new AppointmentDto());
+        when(appointmentRepository.findAllDtos(PageRequest.of(0, 2))).thenReturn(new SliceImpl<>(full, PageRequest.of(0, 2), true));
+        when(appointmentRepository.findAllDtos(PageRequest.of(1, 2))).thenReturn(new SliceImpl<>(full, PageRequest.of(1, 2), true));
+        when(appointmentRepository.count()).thenReturn(7L);
+
+        assertEquals(7, appointmentService.getAll(PageRequest.of(0, 2), null).getTotalElements());
+        assertEquals(7, appointmentService.getAll(PageRequest.of(1, 2), " ").getTotalElements());
+
+        verify(appointmentRepository, times(1)).count();
+    }
+
+    @Test
+    void getSlice_ShouldNotCount() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(nameIndex.searchDoctors("nita")).thenReturn(new long[]{3L});
+        when(appointmentRepository.findDtosByDoctorIds(List.of(3L), pageable))
+                .thenReturn(new SliceImpl<>(List.of(new AppointmentDto()), pageable, true));
+
+        Slice<AppointmentDto> result = appointmentService.getSlice(pageable, "nita");
+
+        assertTrue(result.hasNext());
+        verify(appointmentRepository, never()).countDtosByDoctorIds(any());
+    }
+
+    @Test
+    void getAppointmentsForPatient_ShouldCountOncePerPatient_WhenPagingThrough() {
+        List<AppointmentDto> full = List.of(new AppointmentDto(), new AppointmentDto());
+        when(appointmentRepository.findDtoSliceByPatientUserId(eq(5L), any(Pageable.class)))
+                .thenAnswer(invocation -> new SliceImpl<>(full, invocation.getArgument(1), true));
+        when(appointmentRepository.countDtosByPatientUserId(5L)).thenReturn(9L);
+
+        assertEquals(9, appointmentService.getAppointmentsForPatient(5L, PageRequest.of(0, 2)).getTotalElements());
+        assertEquals(9, appointmentService.getAppointmentsForPatient(5L, PageRequest.of(1, 2)).getTotalElements());
+        assertTrue(appointmentService.getAppointmentSliceForPatient(5L, PageRequest.of(2, 2)).hasNext());
+
+        verify(appointmentRepository, times(1)).countDtosByPatientUserId(5L);
+        verify(appointmentRepository, never()).findDtosByPatientUserId(any(), any());
     }
-}
 
+    @Test
+    void getAll_ShouldSeekFromCursor_WhenAfterProvided() {
+        AppointmentDto first = new AppointmentDto();
+        first.setId(42L);
+        AppointmentDto second = new AppointmentDto();
+        second.setId(41L);
+        Slice<AppointmentDto> slice = new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true);
+        when(appointmentRepository.findDtosAfter(eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(slice);
+
+        SliceDto<AppointmentDto> result = appointmentService.getAll("", 2, null);
+
+        assertEquals(2, result.getContent().size());
+        assertTrue(result.isHasNext());
+
+        Slice<AppointmentDto> last = new SliceImpl<>(List.of(new AppointmentDto()), PageRequest.of(0, 2), false);
+        when(appointmentRepository.findDtosAfter(eq(41L), any(Pageable.class))).thenReturn(last);
+
+        SliceDto<AppointmentDto> next = appointmentService.getAll(result.getNextCursor(), 2, null);
+
+        assertFalse(next.isHasNext());
+        assertNull(next.getNextCursor());
+        verifyNoInteractions(appointmentMapper);
+    }
+}
@@ -0,0 +1,211 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import ptsd14.find.doctor.dto.AppointmentDto;
+import ptsd14.find.doctor.exception.BookingConflictException;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.index.NameTrigramIndex;
+import ptsd14.find.doctor.mapper.AppointmentMapper;
+import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.repository.*;
+import ptsd14.find.doctor.service.AppointmentService;
+import ptsd14.find.doctor.service.CountCache;
+import ptsd14.find.doctor.service.DoctorBookingLocks;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Fires 1,000 simultaneous bookings for the same doctor and slot through two
+ * service instances with separate in-JVM locks, standing in for two app nodes.
+ * Only the doctor row lock and the database overlap check are shared.
+ * <p>
+ * Bookings run at READ COMMITTED, as AppointmentService.create declares. H2
+ * reads committed data by default anyway, so the guard also refuses anything
+ * else: at MySQL's default REPEATABLE READ the overlap check would read a
+ * snapshot from before it waited for the lock.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingConcurrencyTest {
+
+    private static final int BOOKINGS = 1000;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PatientRepository patientRepository;
+    @Autowired
+    private AppointmentTypeRepository appointmentTypeRepository;
+    @Autowired
+    private HospitalRepository hospitalRepository;
+    @Autowired
+    private SpecializationRepos specializationRepository;
+    @Autowired
+    private UserRoleRepository userRoleRepository;
+    @Autowired
+    private UserRepo userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Doctor doctor;
+    private Patient patient;
+    private AppointmentType type;
+
+    @BeforeEach
+    void setup() {
+        appointmentRepository.deleteAll();
+
+        String unique = String.valueOf(System.nanoTime());
+        UserRole role = new UserRole();
+        role.setName("PATIENT " + unique);
+        role = userRoleRepository.save(role);
+
+        Hospital hospital = new Hospital();
+        hospital.setName("Calmette");
+        hospital.setPhone("012345678");
+        hospital.setAddress("Phnom Penh");
+        hospital = hospitalRepository.save(hospital);
+
+        Specialization specialization = new Specialization();
+        specialization.setName("Cardiology");
+        specialization = specializationRepository.save(specialization);
+
+        doctor = new Doctor();
+        doctor.setFirstname("nita");
+        doctor.setLastname("hun");
+        doctor.setStatus("ACTIVE");
+        doctor.setHospital(hospital);
+        doctor.setSpecialization(specialization);
+        doctor = doctorRepository.save(doctor);
+
+        User patientUser = new User();
+        patientUser.setEmail("patient" + unique + "@example.com");
+        patientUser.setPassword("secret");
+        patientUser.setRole(role);
+        patientUser = userRepository.save(patientUser);
+
+        patient = new Patient();
+        patient.setFirstname("sok");
+        patient.setLastname("leng");
+        patient.setStatus("ACTIVE");
+        patient.setGender("female");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setAddress("Phnom Penh");
+        patient.setUser(patientUser);
+        patient = patientRepository.save(patient);
+
+        type = new AppointmentType();
+        type.setName("Consultation " + System.nanoTime());
+        type.setPrice(new BigDecimal("20.00"));
+        type.setDuration(30);
+        type = appointmentTypeRepository.save(type);
+    }
+
+    @Test
+    void simultaneousBookingsForOneSlot_exactlyOneSucceeds() throws Exception {
+        AppointmentService[] nodes = { newNode(), newNode() };
+        TransactionTemplate transactionTemplate = bookingTransaction(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        LocalDateTime slot = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.HOURS);
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            AppointmentService node = nodes[i % nodes.length];
+            // Staggered starts so some bookings overlap the slot without matching it exactly
+            LocalDateTime dateTime = slot.plusMinutes(i % 3 * 10);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    transactionTemplate.executeWithoutResult(status -> node.create(booking(dateTime)));
+                    succeeded.incrementAndGet();
+                } catch (BookingConflictException e) {
+                    conflicts.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, succeeded.get());
+        assertEquals(BOOKINGS - 1, conflicts.get());
+        assertEquals(1, appointmentRepository.count());
+    }
+
+    @Test
+    void bookingOutsideReadCommitted_isRefused() {
+        TransactionTemplate repeatableRead = bookingTransaction(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        AppointmentDto dto = booking(LocalDateTime.now().plusDays(3));
+
+        assertThrows(IllegalStateException.class,
+                () -> repeatableRead.executeWithoutResult(status -> newNode().create(dto)));
+        assertEquals(0, appointmentRepository.count());
+    }
+
+    private TransactionTemplate bookingTransaction(int isolation) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setIsolationLevel(isolation);
+        return transactionTemplate;
+    }
+
+    private AppointmentService newNode() {
+        AppointmentMapper mapper = mock(AppointmentMapper.class);
+        when(mapper.toEntity(any())).thenAnswer(inv -> {
+            AppointmentDto dto = inv.getArgument(0);
+            Appointment appointment = new Appointment();
+            appointment.setDateTime(dto.getDateTime());
+            appointment.setNote(dto.getNote());
+            return appointment;
+        });
+        when(mapper.toDto(any())).thenReturn(new AppointmentDto());
+
+        // The in-memory index never reports a conflict here, so every booking reaches the lock and the database check
+        DoctorAvailabilityIndex index = mock(DoctorAvailabilityIndex.class);
+        return new AppointmentService(appointmentRepository, mapper, doctorRepository, patientRepository,
+                appointmentTypeRepository, index, mock(ApplicationEventPublisher.class),
+                new DoctorBookingLocks(16, 60_000), mock(NameTrigramIndex.class), new CountCache(100, 30));
+    }
+
+    private AppointmentDto booking(LocalDateTime dateTime) {
+        AppointmentDto dto = new AppointmentDto();
+        dto.setDoctorId(doctor.getId());
+        dto.setPatientId(patient.getId());
+        dto.setAppointmentTypeId(type.getId());
+        dto.setDateTime(dateTime);
+        dto.setNote("Concurrent booking");
+        return dto;
+    }
+}
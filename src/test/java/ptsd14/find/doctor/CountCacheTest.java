@@ -0,0 +1,52 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.service.CountCache;
+import ptsd14.find.doctor.service.CountCache.Scope;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountCacheTest {
+
+    private final CountCache cache = new CountCache(100, 30);
+
+    @Test
+    void count_isReusedPerKeyUntilItsListChanges() {
+        AtomicLong queries = new AtomicLong();
+
+        assertThat(cache.count(Scope.DOCTORS, "nita", () -> queries.incrementAndGet() + 10)).isEqualTo(11);
+        assertThat(cache.count(Scope.DOCTORS, "nita", () -> queries.incrementAndGet() + 10)).isEqualTo(11);
+        assertThat(cache.count(Scope.DOCTORS, "dara", () -> queries.incrementAndGet() + 10)).isEqualTo(12);
+
+        cache.onAppointmentChanged(AppointmentChangedEvent.deleted(5L));
+        assertThat(cache.count(Scope.DOCTORS, "nita", () -> queries.incrementAndGet() + 10)).isEqualTo(11);
+
+        cache.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, 1L, false));
+        assertThat(cache.count(Scope.DOCTORS, "nita", () -> queries.incrementAndGet() + 10)).isEqualTo(13);
+        assertThat(queries.get()).isEqualTo(3);
+    }
+
+    @Test
+    void count_readAcrossAnInvalidationIsNotKept() {
+        assertThat(cache.count(Scope.PAYMENTS, "all", () -> {
+            cache.invalidate(Scope.PAYMENTS);
+            return 4;
+        })).isEqualTo(4);
+
+        assertThat(cache.count(Scope.PAYMENTS, "all", () -> 5)).isEqualTo(5);
+    }
+
+    @Test
+    void count_expiresAfterTtl() {
+        CountCache expired = new CountCache(100, 0);
+
+        expired.count(Scope.USERS, "all", () -> 1);
+
+        assertThat(expired.count(Scope.USERS, "all", () -> 2)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,75 @@
+package ptsd14.find.doctor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ptsd14.find.doctor.dto.DashboardStatsDto;
+import ptsd14.find.doctor.event.PaymentChangedEvent;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.service.DashboardService;
+import ptsd14.find.doctor.service.DashboardStreamService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+class DashboardStreamServiceTest {
+
+    private final DashboardService dashboardService = mock(DashboardService.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private DashboardStreamService service;
+
+    @BeforeEach
+    void setup() {
+        when(dashboardService.getDashboardStats()).thenReturn(new DashboardStatsDto());
+        service = new DashboardStreamService(dashboardService, mock(AppointmentRepository.class), new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void slowClient_isDroppedWithoutDelayingTheOthers() throws Exception {
+        SseEmitter slow = mock(SseEmitter.class);
+        doAnswer(invocation -> release.await(10, TimeUnit.SECONDS)).when(slow).send(anySet());
+        // complete() is synchronized, so a timed verify() would hold the monitor it waits for; count calls instead
+        CountDownLatch closed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            closed.countDown();
+            return null;
+        }).when(slow).complete();
+        int events = 150;
+        CountDownLatch received = new CountDownLatch(events + 1);
+        SseEmitter fast = mock(SseEmitter.class);
+        doAnswer(invocation -> {
+            received.countDown();
+            return null;
+        }).when(fast).send(anySet());
+
+        service.subscribe(slow);
+        service.subscribe(fast);
+        for (int i = 0; i < events; i++) {
+            service.onPaymentChanged(new PaymentChangedEvent((long) i, 1L, new BigDecimal("20.00"), "PAID"));
+        }
+
+        // The fast client gets the snapshot and every delta while the slow one is stuck on its first write
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.getSubscriberCount()).isEqualTo(1);
+
+        // The slow client is closed once its stuck write returns
+        release.countDown();
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(fast, never()).complete();
+    }
+}
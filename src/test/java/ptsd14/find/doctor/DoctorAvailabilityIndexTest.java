@@ -0,0 +1,63 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.event.AppointmentChangedEvent;
+import ptsd14.find.doctor.index.DoctorAvailabilityIndex;
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DoctorAvailabilityIndexTest {
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final LocalDateTime nine = LocalDate.now().plusDays(2).atTime(9, 0);
+    private DoctorAvailabilityIndex index;
+
+    @BeforeEach
+    void setup() {
+        when(appointmentRepository.findBookedSlotsFrom(any(), eq(AppointmentStatus.CANCELED)))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, 1L, nine, 30}));
+        index = new DoctorAvailabilityIndex(appointmentRepository);
+        index.load();
+    }
+
+    @Test
+    void confirmedConflict_reloadsTheDoctorWhenTheSlotWasFreedElsewhere() {
+        // Another node cancelled appointment 10; this node never heard about it
+        when(appointmentRepository.findDoctorBookedSlotsFrom(eq(1L), any(), eq(AppointmentStatus.CANCELED)))
+                .thenReturn(List.of());
+
+        assertThat(index.hasConflict(1L, nine, nine.plusMinutes(30), null)).isTrue();
+        assertThat(index.hasConfirmedConflict(1L, nine, nine.plusMinutes(30), null)).isFalse();
+        assertThat(index.hasConflict(1L, nine, nine.plusMinutes(30), null)).isFalse();
+    }
+
+    @Test
+    void confirmedConflict_keepsRejectingWhenTheDatabaseAgrees() {
+        when(appointmentRepository.findDoctorBookedSlotsFrom(eq(1L), any(), eq(AppointmentStatus.CANCELED)))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, nine, 30}));
+
+        assertThat(index.hasConfirmedConflict(1L, nine.plusMinutes(15), nine.plusMinutes(45), null)).isTrue();
+
+        // The reloaded schedule still follows local events
+        index.onAppointmentChanged(new AppointmentChangedEvent(AppointmentChangedEvent.Action.STATUS_CHANGED,
+                10L, 1L, nine, 30, AppointmentStatus.CANCELED));
+        assertThat(index.hasConflict(1L, nine, nine.plusMinutes(30), null)).isFalse();
+    }
+
+    @Test
+    void confirmedConflict_skipsTheDatabaseWhenTheIndexIsFree() {
+        assertThat(index.hasConfirmedConflict(1L, nine.plusHours(1), nine.plusHours(2), null)).isFalse();
+        verify(appointmentRepository, never()).findDoctorBookedSlotsFrom(any(), any(), any());
+    }
+}
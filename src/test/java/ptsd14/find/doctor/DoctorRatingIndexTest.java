@@ -0,0 +1,111 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.dto.DoctorDto;
+import ptsd14.find.doctor.event.DoctorRatingChangedEvent;
+import ptsd14.find.doctor.index.DoctorRatingIndex;
+import ptsd14.find.doctor.mapper.DoctorMapper;
+import ptsd14.find.doctor.model.Doctor;
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+import ptsd14.find.doctor.repository.DoctorRatingAggregateRepository;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+import ptsd14.find.doctor.service.DoctorRatingService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DoctorRatingIndexTest {
+
+    private final DoctorRatingAggregateRepository aggregateRepository = mock(DoctorRatingAggregateRepository.class);
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final DoctorMapper doctorMapper = mock(DoctorMapper.class);
+    private DoctorRatingIndex index;
+
+    @BeforeEach
+    void setup() {
+        when(aggregateRepository.findAll()).thenReturn(List.of(aggregate(1L, 2, 8), aggregate(2L, 1, 3)));
+        when(doctorRepository.findByIdIn(any())).thenAnswer(invocation -> doctors(invocation.getArgument(0)));
+        when(doctorMapper.toDto(any())).thenAnswer(invocation -> {
+            DoctorDto dto = new DoctorDto();
+            dto.setId(invocation.<Doctor>getArgument(0).getId());
+            return dto;
+        });
+        index = new DoctorRatingIndex(aggregateRepository, mock(FeedbackRepository.class),
+                mock(DoctorRatingService.class), doctorRepository, doctorMapper);
+        index.load();
+    }
+
+    @Test
+    void concurrentChangesForOneDoctor_leaveOneRankingEntry() throws Exception {
+        AtomicInteger ratings = new AtomicInteger();
+        when(aggregateRepository.findById(1L)).thenAnswer(invocation ->
+                Optional.of(aggregate(1L, 2 + ratings.incrementAndGet(), 8 + ratings.get())));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                index.onRatingChanged(new DoctorRatingChangedEvent(1L));
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(index.getTopRated(10)).extracting(DoctorDto::getId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void changeWhileRebuilding_isNotCoveredByTheStaleSnapshot() {
+        AtomicBoolean changed = new AtomicBoolean();
+        when(aggregateRepository.findById(2L)).thenReturn(Optional.of(aggregate(2L, 10, 50)));
+        doAnswer(invocation -> {
+            // A rating lands after the ranking was read but before the list is published
+            if (changed.compareAndSet(false, true)) {
+                index.onRatingChanged(new DoctorRatingChangedEvent(2L));
+            }
+            return doctors(invocation.getArgument(0));
+        }).when(doctorRepository).findByIdIn(any());
+
+        assertThat(index.getTopRated(10)).extracting(DoctorDto::getId).containsExactly(1L, 2L);
+        assertThat(index.getTopRated(10)).extracting(DoctorDto::getId).containsExactly(2L, 1L);
+        verify(doctorRepository, times(2)).findByIdIn(any());
+    }
+
+    private static List<Doctor> doctors(Collection<Long> ids) {
+        List<Doctor> doctors = new ArrayList<>();
+        for (Long id : ids) {
+            Doctor doctor = new Doctor();
+            doctor.setId(id);
+            doctors.add(doctor);
+        }
+        return doctors;
+    }
+
+    private static DoctorRatingAggregate aggregate(Long doctorId, long count, long sum) {
+        DoctorRatingAggregate aggregate = new DoctorRatingAggregate(doctorId);
+        aggregate.setRatingCount(count);
+        aggregate.setRatingSum(sum);
+        return aggregate;
+    }
+}
@@ -0,0 +1,108 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+
+import ptsd14.find.doctor.model.AppointmentStatus;
+import ptsd14.find.doctor.repository.AppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedAppointmentRepository;
+import ptsd14.find.doctor.repository.ArchivedPaymentRepository;
+import ptsd14.find.doctor.repository.PaymentRepository;
+import ptsd14.find.doctor.service.ExportService;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExportServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+    @Mock
+    private AppointmentRepository appointmentRepository;
+    @Mock
+    private ArchivedPaymentRepository archivedPaymentRepository;
+    @Mock
+    private ArchivedAppointmentRepository archivedAppointmentRepository;
+
+    @InjectMocks
+    private ExportService exportService;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void writeAppointmentsCsv_ShouldPassFiltersAndEscapeCells() throws Exception {
+        LocalDateTime from = LocalDate.of(2026, 1, 1).atStartOfDay();
+        LocalDateTime to = from.plusMonths(1);
+        LocalDateTime dateTime = from.plusDays(3).plusHours(9);
+        Object[] row = {7L, dateTime, AppointmentStatus.CONFIRMED, "nita", "hun",
+                "=HYPERLINK(\"http://evil\")", "leng, jr", "@Consultation", new BigDecimal("-20.00"), null, dateTime};
+        when(appointmentRepository.streamForExport(from, to, AppointmentStatus.CONFIRMED))
+                .thenReturn(Stream.<Object[]>of(row));
+
+        StringWriter out = new StringWriter();
+        long count = exportService.writeAppointmentsCsv(out, from, to, AppointmentStatus.CONFIRMED);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(1, count);
+        assertEquals(2, lines.length);
+        assertEquals("id,date_time,status,doctor,patient,type,price,payment_status,created_at", lines[0]);
+        // Text cells that could run as formulas are prefixed; numbers are left alone
+        assertEquals("7," + dateTime + ",CONFIRMED,nita hun,\"'=HYPERLINK(\"\"http://evil\"\") leng, jr\","
+                + "'@Consultation,-20.00,," + dateTime, lines[1]);
+        verify(appointmentRepository).streamForExport(from, to, AppointmentStatus.CONFIRMED);
+        verify(archivedAppointmentRepository).streamForExport(from, to, AppointmentStatus.CONFIRMED);
+        verifyNoInteractions(paymentRepository, archivedPaymentRepository);
+    }
+
+    @Test
+    void writeAppointmentsCsv_ShouldExportArchivedRowsBeforeHotOnes() throws Exception {
+        LocalDateTime from = LocalDate.of(2025, 1, 1).atStartOfDay();
+        LocalDateTime to = LocalDate.of(2026, 1, 1).atStartOfDay();
+        LocalDateTime old = from.plusDays(10);
+        LocalDateTime recent = to.minusDays(10);
+        when(archivedAppointmentRepository.streamForExport(from, to, null)).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, old, AppointmentStatus.COMPLETED, "nita", "hun", "sok", "leng", "Consultation",
+                        new BigDecimal("20.00"), "PAID", old}));
+        when(appointmentRepository.streamForExport(from, to, null)).thenReturn(Stream.<Object[]>of(
+                new Object[]{2L, recent, AppointmentStatus.COMPLETED, "nita", "hun", "sok", "leng", "Consultation",
+                        new BigDecimal("20.00"), null, recent}));
+
+        StringWriter out = new StringWriter();
+        long count = exportService.writeAppointmentsCsv(out, from, to, null);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, count);
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("1,"));
+        assertTrue(lines[2].startsWith("2,"));
+    }
+
+    @Test
+    void writePaymentsCsv_ShouldPassFiltersAndEscapeCells() throws Exception {
+        LocalDateTime from = LocalDate.of(2026, 1, 1).atStartOfDay();
+        LocalDateTime paidAt = from.plusHours(10);
+        Object[] row = {3L, paidAt, new BigDecimal("20.00"), "+CASH", "PAID", null, 7L, paidAt,
+                "sok", "leng", "-nita", "hun\nsr"};
+        when(paymentRepository.streamForExport(from, null, "PAID")).thenReturn(Stream.<Object[]>of(row));
+
+        StringWriter out = new StringWriter();
+        long count = exportService.writePaymentsCsv(out, from, null, "PAID");
+
+        assertEquals(1, count);
+        assertTrue(out.toString().endsWith(
+                "3," + paidAt + ",20.00,'+CASH,PAID,,7," + paidAt + ",sok leng,\"'-nita hun\nsr\"\n"));
+        verify(paymentRepository).streamForExport(from, null, "PAID");
+        verify(archivedPaymentRepository).streamForExport(from, null, "PAID");
+        verifyNoInteractions(appointmentRepository, archivedAppointmentRepository);
+    }
+}
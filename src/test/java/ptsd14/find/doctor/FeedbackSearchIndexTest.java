@@ -0,0 +1,140 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.event.FeedbackChangedEvent;
+import ptsd14.find.doctor.index.FeedbackSearchIndex;
+import ptsd14.find.doctor.repository.ArchivedFeedbackRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FeedbackSearchIndexTest {
+
+    private final FeedbackRepository feedbackRepository = mock(FeedbackRepository.class);
+    private final ArchivedFeedbackRepository archivedFeedbackRepository = mock(ArchivedFeedbackRepository.class);
+    private FeedbackSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        when(feedbackRepository.findSearchRowsAfter(eq(0L), any())).thenReturn(List.of(
+                new Object[]{1L, 10L, 5, "Very kind doctor, kind staff and a clean clinic"},
+                new Object[]{2L, 10L, 2, "The waiting time was long"},
+                new Object[]{3L, 20L, 5, "Kind and patient. Explained everything clearly, no waiting at all"},
+                new Object[]{4L, 20L, 4, "Café was closed but the doctor was great"}));
+        when(archivedFeedbackRepository.findSearchRowsAfter(eq(0L), any())).thenReturn(List.<Object[]>of(
+                new Object[]{99L, 10L, 3, "Archived visit, still searchable"}));
+        index = new FeedbackSearchIndex(feedbackRepository, archivedFeedbackRepository);
+        index.load();
+    }
+
+    @Test
+    void search_ranksByBm25() {
+        FeedbackSearchIndex.Hits hits = index.search("kind", null, null, 0, 10);
+
+        // Same term, but comment 1 repeats it in a shorter text
+        assertThat(hits.getIds()).containsExactly(1L, 3L);
+        assertThat(hits.getScores().get(0)).isGreaterThan(hits.getScores().get(1));
+        assertThat(hits.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void search_normalizesCaseAndAccentsAndIgnoresStopWords() {
+        assertThat(index.search("CAFE", null, null, 0, 10).getIds()).containsExactly(4L);
+        assertThat(index.search("the was", null, null, 0, 10).getIds()).isEmpty();
+    }
+
+    @Test
+    void search_filtersByRatingAndDoctor() {
+        assertThat(index.search("waiting", 5, null, 0, 10).getIds()).containsExactly(3L);
+        assertThat(index.search("doctor kind", null, 20L, 0, 10).getIds()).containsExactly(4L, 3L);
+    }
+
+    @Test
+    void search_pagesThroughRankedHits() {
+        FeedbackSearchIndex.Hits second = index.search("kind", null, null, 1, 1);
+
+        assertThat(second.getIds()).containsExactly(3L);
+        assertThat(second.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void feedbackChanges_updateAndRemoveComments() {
+        when(feedbackRepository.findSearchRow(2L)).thenReturn(List.<Object[]>of(new Object[]{2L, 10L, 4, "Kind nurse"}));
+
+        index.onFeedbackChanged(new FeedbackChangedEvent(2L, false));
+        index.onFeedbackChanged(new FeedbackChangedEvent(1L, true));
+
+        assertThat(index.search("kind", null, null, 0, 10).getIds()).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(index.search("long", null, null, 0, 10).getIds()).isEmpty();
+    }
+
+    @Test
+    void reconcile_picksUpFeedbackFromOtherNodes() {
+        when(feedbackRepository.findSearchRowsChangedSince(any())).thenReturn(List.<Object[]>of(
+                new Object[]{5L, 20L, 5, "Gentle dentist"},
+                new Object[]{2L, 10L, 3, "Short wait after all"}));
+        when(feedbackRepository.count()).thenReturn(5L);
+        when(archivedFeedbackRepository.count()).thenReturn(1L);
+
+        index.reconcile();
+
+        assertThat(index.search("gentle", null, null, 0, 10).getIds()).containsExactly(5L);
+        assertThat(index.search("long", null, null, 0, 10).getIds()).isEmpty();
+        verify(feedbackRepository, times(1)).findSearchRowsAfter(anyLong(), any());
+    }
+
+    @Test
+    void reconcile_rebuildsWhenFeedbackWasDeletedElsewhere() throws Exception {
+        when(feedbackRepository.count()).thenReturn(3L);
+        when(archivedFeedbackRepository.count()).thenReturn(1L);
+        when(feedbackRepository.findSearchRowsAfter(eq(0L), any())).thenReturn(List.of(
+                new Object[]{1L, 10L, 5, "Very kind doctor, kind staff and a clean clinic"},
+                new Object[]{3L, 20L, 5, "Kind and patient. Explained everything clearly, no waiting at all"},
+                new Object[]{4L, 20L, 4, "Café was closed but the doctor was great"}));
+
+        index.reconcile();
+
+        // The rebuild runs in the background; wait for it to swap in
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!index.search("long", null, null, 0, 10).getIds().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(index.search("long", null, null, 0, 10).getIds()).isEmpty();
+        assertThat(index.search("searchable", null, null, 0, 10).getIds()).containsExactly(99L);
+    }
+
+    @Test
+    void compaction_runsOffTheWritingThread() {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        }).when(archivedFeedbackRepository).findSearchRowsAfter(eq(0L), any());
+        when(feedbackRepository.findSearchRow(2L)).thenReturn(List.<Object[]>of(new Object[]{2L, 10L, 4, "Kind nurse"}));
+
+        // Each update retires an ordinal; the last one pushes the dead count over the rebuild threshold
+        for (int i = 0; i <= 10_000; i++) {
+            index.onFeedbackChanged(new FeedbackChangedEvent(2L, false));
+        }
+
+        // Every event returned although the rebuild is parked on the archive read
+        verify(archivedFeedbackRepository, timeout(5000).times(2)).findSearchRowsAfter(eq(0L), any());
+        assertThat(index.search("nurse", null, null, 0, 10).getIds()).containsExactly(2L);
+        release.countDown();
+    }
+
+    @Test
+    void search_coversArchivedFeedback() {
+        assertThat(index.search("searchable", null, 10L, 0, 10).getIds()).containsExactly(99L);
+    }
+}
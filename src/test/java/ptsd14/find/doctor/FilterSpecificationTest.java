@@ -0,0 +1,202 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import ptsd14.find.doctor.filter.DoctorFilter;
+import ptsd14.find.doctor.filter.FeedbackFilter;
+import ptsd14.find.doctor.filter.PaymentFilter;
+import ptsd14.find.doctor.model.*;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.FeedbackRepository;
+import ptsd14.find.doctor.repository.PaymentRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class FilterSpecificationTest {
+
+    private static final PageRequest PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "id"));
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DoctorRepository doctorRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private FeedbackRepository feedbackRepository;
+
+    private Hospital calmette;
+    private Hospital royal;
+    private Specialization cardiology;
+    private Doctor nita;
+    private Doctor anita;
+    private Doctor dara;
+    private Patient patient;
+    private AppointmentType type;
+
+    @BeforeEach
+    void setup() {
+        calmette = hospital("Calmette");
+        royal = hospital("Royal");
+        cardiology = specialization("Cardiology");
+        Specialization neurology = specialization("Neurology");
+
+        nita = doctor("Nita", "Hun", "ACTIVE", calmette, cardiology);
+        anita = doctor("Anita", "Chan", "INACTIVE", calmette, cardiology);
+        dara = doctor("Dara", "Nitan", "ACTIVE", royal, neurology);
+
+        patient = new Patient();
+        patient.setFirstname("Sok");
+        patient.setLastname("Leng");
+        patient.setStatus("ACTIVE");
+        patient.setGender("female");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        patient.setAddress("Phnom Penh");
+        patient.setUser(patientUser());
+        entityManager.persist(patient);
+
+        type = new AppointmentType();
+        type.setName("Consultation");
+        type.setPrice(new BigDecimal("20.00"));
+        type.setDuration(30);
+        entityManager.persist(type);
+    }
+
+    @Test
+    void doctorFilter_combinesNameStatusHospitalAndSpecialization() {
+        assertThat(doctorRepository.findAll(DoctorFilter.builder().search("nit").build().toSpecification(null), PAGE))
+                .extracting(Doctor::getId).containsExactly(nita.getId(), anita.getId(), dara.getId());
+        assertThat(doctorRepository.findAll(DoctorFilter.builder().search("nit").status("ACTIVE").build()
+                .toSpecification(null), PAGE))
+                .extracting(Doctor::getId).containsExactly(nita.getId(), dara.getId());
+        assertThat(doctorRepository.findAll(DoctorFilter.builder().status("ACTIVE").hospitalId(calmette.getId())
+                .specializationId(cardiology.getId()).build().toSpecification(null), PAGE))
+                .extracting(Doctor::getId).containsExactly(nita.getId());
+    }
+
+    @Test
+    void doctorFilter_usesIndexMatchesInsteadOfLike() {
+        long[] matches = { anita.getId(), dara.getId() };
+
+        assertThat(doctorRepository.findAll(DoctorFilter.builder().search("whatever").hospitalId(royal.getId()).build()
+                .toSpecification(matches), PAGE))
+                .extracting(Doctor::getId).containsExactly(dara.getId());
+        assertThat(doctorRepository.findAll(DoctorFilter.builder().search("whatever").build()
+                .toSpecification(new long[0]), PAGE)).isEmpty();
+    }
+
+    @Test
+    void paymentFilter_combinesStatusDoctorAndPaidAtRange() {
+        LocalDateTime base = LocalDate.now().minusDays(10).atStartOfDay();
+        Payment early = pay(appointment(nita), "PAID", base);
+        Payment late = pay(appointment(nita), "PAID", base.plusDays(5));
+        pay(appointment(dara), "PAID", base.plusDays(5));
+        pay(appointment(nita), "PENDING", base.plusDays(5));
+        entityManager.flush();
+        entityManager.clear();
+
+        var filter = PaymentFilter.builder()
+                .status("PAID")
+                .doctorId(nita.getId())
+                .from(base)
+                .to(base.plusDays(6))
+                .build();
+        assertThat(paymentRepository.findAll(filter.toSpecification(null, null), PAGE))
+                .extracting(Payment::getId).containsExactly(early.getId(), late.getId());
+
+        var laterOnly = PaymentFilter.builder().status("PAID").doctorId(nita.getId()).from(base.plusDays(1)).build();
+        assertThat(paymentRepository.findAll(laterOnly.toSpecification(null, null), PAGE))
+                .extracting(Payment::getId).containsExactly(late.getId());
+    }
+
+    @Test
+    void feedbackFilter_ignoresOutOfRangeRatingAndFiltersByDoctor() {
+        Feedback good = feedback(appointment(nita), 5, "Very kind");
+        feedback(appointment(dara), 5, "Kind and calm");
+        Feedback poor = feedback(appointment(nita), 2, "Kind but late");
+
+        assertThat(feedbackRepository.findAll(FeedbackFilter.builder().search("KIND").doctorId(nita.getId()).build()
+                .toSpecification(), PAGE))
+                .extracting(Feedback::getId).containsExactly(good.getId(), poor.getId());
+        assertThat(feedbackRepository.findAll(FeedbackFilter.builder().rating(9).doctorId(nita.getId()).build()
+                .toSpecification(), PAGE)).hasSize(2);
+        assertThat(feedbackRepository.findAll(FeedbackFilter.builder().rating(2).build().toSpecification(), PAGE))
+                .extracting(Feedback::getId).containsExactly(poor.getId());
+    }
+
+    private User patientUser() {
+        UserRole role = new UserRole();
+        role.setName("PATIENT");
+        entityManager.persist(role);
+
+        User user = new User();
+        user.setEmail("patient@example.com");
+        user.setPassword("secret");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+
+    private Hospital hospital(String name) {
+        Hospital hospital = new Hospital();
+        hospital.setName(name);
+        hospital.setPhone("012345678");
+        hospital.setAddress("Phnom Penh");
+        return entityManager.persist(hospital);
+    }
+
+    private Specialization specialization(String name) {
+        Specialization specialization = new Specialization();
+        specialization.setName(name);
+        return entityManager.persist(specialization);
+    }
+
+    private Doctor doctor(String firstname, String lastname, String status, Hospital hospital, Specialization specialization) {
+        Doctor doctor = new Doctor();
+        doctor.setFirstname(firstname);
+        doctor.setLastname(lastname);
+        doctor.setStatus(status);
+        doctor.setHospital(hospital);
+        doctor.setSpecialization(specialization);
+        return entityManager.persist(doctor);
+    }
+
+    private Appointment appointment(Doctor doctor) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setAppointmentType(type);
+        appointment.setDateTime(LocalDateTime.now().minusDays(1));
+        appointment.setNote("Visit");
+        appointment.setStatus(AppointmentStatus.COMPLETED);
+        return entityManager.persist(appointment);
+    }
+
+    private Payment pay(Appointment appointment, String status, LocalDateTime paidAt) {
+        Payment payment = new Payment();
+        payment.setAmount(new BigDecimal("20.00"));
+        payment.setPaymentMethod("CASH");
+        payment.setPaymentStatus(status);
+        payment.setPaidAt(paidAt);
+        payment.setAppointment(appointment);
+        return entityManager.persist(payment);
+    }
+
+    private Feedback feedback(Appointment appointment, int rating, String comment) {
+        Feedback feedback = new Feedback();
+        feedback.setRating(rating);
+        feedback.setComment(comment);
+        feedback.setAppointment(appointment);
+        return entityManager.persist(feedback);
+    }
+}
@@ -0,0 +1,147 @@
+package ptsd14.find.doctor;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ptsd14.find.doctor.jwt.JwtUtil;
+import ptsd14.find.doctor.model.User;
+import ptsd14.find.doctor.model.UserRole;
+import ptsd14.find.doctor.security.AuthenticatedUser;
+import ptsd14.find.doctor.security.JwtAuthenticationFilter;
+import ptsd14.find.doctor.security.TokenVersionRegistry;
+import ptsd14.find.doctor.security.VerifiedTokenCache;
+import ptsd14.find.doctor.service.CustomUserDetailsService;
+
+import java.util.Date;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "test-secret-key-that-is-at-least-32-bytes-long";
+
+    @Mock
+    private CustomUserDetailsService userDetailsService;
+
+    @Mock
+    private TokenVersionRegistry tokenVersions;
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache tokenCache;
+    private JwtAuthenticationFilter filter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jwtUtil = spy(new JwtUtil(SECRET));
+        tokenCache = new VerifiedTokenCache(100, 300);
+        filter = new JwtAuthenticationFilter(jwtUtil, userDetailsService, tokenCache, tokenVersions);
+        ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+
+        UserRole role = new UserRole();
+        role.setName("DOCTOR");
+        role.setPermissions(Set.of("DOCTOR:edit"));
+
+        user = new User();
+        user.setId(7L);
+        user.setEmail("doctor@example.com");
+        user.setRole(role);
+        user.setTokenVersion(3L);
+
+        when(tokenVersions.isCurrent(7L, 3L)).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedRequests_shouldParseOnceAndNeverLoadUser() throws Exception {
+        String token = jwtUtil.generateAccessToken(user);
+
+        for (int i = 0; i < 3; i++) {
+            Authentication auth = authenticate(token);
+            assertNotNull(auth);
+            assertEquals("doctor@example.com", auth.getName());
+            assertEquals(7L, AuthenticatedUser.userId(auth));
+            assertTrue(auth.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+                    .toList().containsAll(Set.of("ROLE_DOCTOR", "DOCTOR:edit")));
+            SecurityContextHolder.clearContext();
+        }
+
+        verify(jwtUtil, times(1)).parseClaims(token);
+        verifyNoInteractions(userDetailsService);
+        assertEquals(1, tokenCache.size());
+    }
+
+    @Test
+    void revokedToken_shouldNotAuthenticate() throws Exception {
+        String token = jwtUtil.generateAccessToken(user);
+        when(tokenVersions.isCurrent(7L, 3L)).thenReturn(false);
+
+        assertNull(authenticate(token));
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void tokenWithoutVersion_shouldBeTreatedAsRevoked() throws Exception {
+        UserDetails principal = new AuthenticatedUser(7L, "doctor@example.com", "", Set.of());
+        when(userDetailsService.loadUserByUsername("doctor@example.com")).thenReturn(principal);
+        String token = Jwts.builder()
+                .setSubject("doctor@example.com")
+                .claim(JwtUtil.CLAIM_USER_ID, 7L)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertNull(authenticate(token));
+        verify(tokenVersions, never()).isCurrent(any(), anyLong());
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void refreshToken_shouldNotAuthenticate() throws Exception {
+        String token = jwtUtil.generateRefreshToken(user);
+
+        assertNull(authenticate(token));
+        verifyNoInteractions(userDetailsService);
+        assertEquals(0, tokenCache.size());
+    }
+
+    @Test
+    void tamperedToken_shouldNotAuthenticateOrBeCached() throws Exception {
+        String token = jwtUtil.generateAccessToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(authenticate(tampered));
+        verifyNoInteractions(userDetailsService);
+        assertEquals(0, tokenCache.size());
+    }
+
+    private Authentication authenticate(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/appointments");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
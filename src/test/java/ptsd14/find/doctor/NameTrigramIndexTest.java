@@ -0,0 +1,107 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.index.NameTrigramIndex;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.PatientRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NameTrigramIndexTest {
+
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final PatientRepository patientRepository = mock(PatientRepository.class);
+    private NameTrigramIndex index;
+
+    @BeforeEach
+    void setup() {
+        when(doctorRepository.findNameRowsAfter(eq(0L), any())).thenReturn(List.of(
+                new Object[]{1L, "Nita", "Hun"},
+                new Object[]{2L, "Dara", "Sok"},
+                new Object[]{3L, "Anita", "Chan"},
+                new Object[]{4L, "Sokha", "Nitan"},
+                new Object[]{5L, "Tat", "Data"}));
+        when(patientRepository.findNameRowsAfter(eq(0L), any())).thenReturn(List.of());
+        index = new NameTrigramIndex(doctorRepository, patientRepository);
+        index.load();
+    }
+
+    @Test
+    void search_matchesSubstringOfEitherNameIgnoringCase() {
+        assertThat(index.searchDoctors("NIT")).containsExactly(1L, 3L, 4L);
+        assertThat(index.searchDoctors("sok")).containsExactly(2L, 4L);
+        assertThat(index.searchDoctors("zzz")).isEmpty();
+    }
+
+    @Test
+    void search_rejectsTrigramsSpreadAcrossFirstAndLastName() {
+        // "tat" is in Tat and "ata" is in Data, but "atat" is in neither name
+        assertThat(index.searchDoctors("atat")).isEmpty();
+    }
+
+    @Test
+    void search_returnsNullWhenQueryIsShorterThanATrigram() {
+        assertThat(index.searchDoctors("ni")).isNull();
+    }
+
+    @Test
+    void directoryChanges_updateAndRemoveEntries() {
+        when(doctorRepository.findNameRow(2L)).thenReturn(List.<Object[]>of(new Object[]{2L, "Dara", "Nitya"}));
+
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, 2L, false));
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, 1L, true));
+
+        assertThat(index.searchDoctors("nit")).containsExactly(2L, 3L, 4L);
+        assertThat(index.searchDoctors("sok")).containsExactly(4L);
+    }
+
+    @Test
+    void reconcile_picksUpRowsChangedOnOtherNodes() {
+        when(doctorRepository.findNameRowsChangedSince(any())).thenReturn(List.of(
+                new Object[]{2L, "Dara", "Nitya"},
+                new Object[]{6L, "Vanita", "Keo"}));
+        when(doctorRepository.count()).thenReturn(6L);
+
+        index.reconcile();
+
+        assertThat(index.searchDoctors("nit")).containsExactly(1L, 2L, 3L, 4L, 6L);
+        assertThat(index.searchDoctors("sok")).containsExactly(4L);
+        // Counts matched, so no sweep over the table
+        verify(doctorRepository, times(1)).findNameRowsAfter(anyLong(), any());
+    }
+
+    @Test
+    void reconcile_sweepsOutRowsDeletedOnOtherNodes() {
+        when(doctorRepository.count()).thenReturn(4L);
+        when(doctorRepository.findNameRowsAfter(eq(0L), any())).thenReturn(List.of(
+                new Object[]{1L, "Nita", "Hun"},
+                new Object[]{2L, "Dara", "Sok"},
+                new Object[]{4L, "Sokha", "Nitan"},
+                new Object[]{5L, "Tat", "Data"}));
+
+        index.reconcile();
+
+        assertThat(index.searchDoctors("nit")).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void idPage_slicesMatchesInRequestedIdOrder() {
+        long[] ids = {1L, 3L, 4L, 9L};
+
+        assertThat(NameTrigramIndex.idPage(ids, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id"))))
+                .containsExactly(9L, 4L, 3L);
+        assertThat(NameTrigramIndex.idPage(ids, PageRequest.of(1, 3))).containsExactly(9L);
+        assertThat(NameTrigramIndex.idPage(ids, PageRequest.of(0, 3, Sort.by("lastname")))).isNull();
+    }
+}
@@ -0,0 +1,66 @@
+package ptsd14.find.doctor;
+
+import com.stripe.exception.ApiConnectionException;
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.exception.PaymentGatewayUnavailableException;
+import ptsd14.find.doctor.exception.PaymentProcessingException;
+import ptsd14.find.doctor.service.PaymentGatewayGuard;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentGatewayGuardTest {
+
+    @Test
+    void breaker_opensAfterConsecutiveFailures_andFailsFast() {
+        PaymentGatewayGuard guard = new PaymentGatewayGuard(5, 10, 3, 60);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(PaymentProcessingException.class,
+                    () -> guard.execute("test", () -> { throw new ApiConnectionException("down"); }));
+        }
+
+        assertEquals(PaymentGatewayGuard.State.OPEN, guard.getState());
+        assertThrows(PaymentGatewayUnavailableException.class, () -> guard.execute("test", () -> "ok"));
+    }
+
+    @Test
+    void breaker_closesAfterSuccessfulProbe() {
+        PaymentGatewayGuard guard = new PaymentGatewayGuard(5, 10, 1, 0);
+
+        assertThrows(PaymentProcessingException.class,
+                () -> guard.execute("test", () -> { throw new ApiConnectionException("down"); }));
+        assertEquals(PaymentGatewayGuard.State.OPEN, guard.getState());
+
+        assertEquals("ok", guard.execute("test", () -> "ok"));
+        assertEquals(PaymentGatewayGuard.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void bulkhead_rejectsCallsBeyondTheConcurrencyLimit() throws Exception {
+        PaymentGatewayGuard guard = new PaymentGatewayGuard(1, 10, 5, 60);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread slowCall = new Thread(() -> guard.execute("slow", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        slowCall.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PaymentGatewayUnavailableException.class, () -> guard.execute("test", () -> "ok"));
+
+        release.countDown();
+        slowCall.join();
+        assertEquals("ok", guard.execute("test", () -> "ok"));
+    }
+}
@@ -0,0 +1,58 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.model.TimeOrderedIdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdGeneratorTest {
+
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Test
+    void nextId_isStrictlyIncreasingAndJavaScriptSafe() {
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = TimeOrderedIdGenerator.nextId();
+            assertTrue(id > previous, "ids must increase");
+            assertTrue(id <= MAX_SAFE_INTEGER, "ids must fit in a JavaScript number");
+            previous = id;
+        }
+    }
+
+    @Test
+    void nextId_isUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(TimeOrderedIdGenerator.nextId());
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads * perThread, ids.size());
+    }
+}
@@ -0,0 +1,114 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ptsd14.find.doctor.dto.SuggestionDto;
+import ptsd14.find.doctor.event.DirectoryChangedEvent;
+import ptsd14.find.doctor.index.TypeaheadIndex;
+import ptsd14.find.doctor.model.DoctorRatingAggregate;
+import ptsd14.find.doctor.repository.DoctorRatingAggregateRepository;
+import ptsd14.find.doctor.repository.DoctorRepository;
+import ptsd14.find.doctor.repository.HospitalRepository;
+import ptsd14.find.doctor.repository.SpecializationRepos;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TypeaheadIndexTest {
+
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final HospitalRepository hospitalRepository = mock(HospitalRepository.class);
+    private final SpecializationRepos specializationRepository = mock(SpecializationRepos.class);
+    private final DoctorRatingAggregateRepository ratingRepository = mock(DoctorRatingAggregateRepository.class);
+    private TypeaheadIndex index;
+
+    @BeforeEach
+    void setup() {
+        when(ratingRepository.findAll()).thenReturn(List.of(rated(1L, 3), rated(2L, 40), rated(3L, 12)));
+        when(doctorRepository.findSuggestRowsAfter(eq(0L), any())).thenReturn(List.of(
+                new Object[]{1L, "Nita", "Hun", 10L, 20L},
+                new Object[]{2L, "Narin", "Sok", 10L, 21L},
+                new Object[]{3L, "Dara", "Nhem", 11L, 21L}));
+        when(hospitalRepository.findNameRows()).thenReturn(List.of(
+                new Object[]{10L, "Calmette Hospital"},
+                new Object[]{11L, "Royal Phnom Penh Hospital"}));
+        when(specializationRepository.findNameRows()).thenReturn(List.of(
+                new Object[]{20L, "Neurology"},
+                new Object[]{21L, "Cardiology"}));
+        index = new TypeaheadIndex(doctorRepository, hospitalRepository, specializationRepository, ratingRepository);
+        index.load();
+    }
+
+    @Test
+    void suggest_returnsPrefixMatchesMostPopularFirst() {
+        assertThat(index.suggest("n", 10)).extracting(SuggestionDto::getName)
+                .containsExactly("Narin Sok", "Dara Nhem", "Nita Hun", "Neurology");
+        assertThat(index.suggest("NE", 10)).singleElement()
+                .satisfies(s -> assertThat(s.getType()).isEqualTo("SPECIALIZATION"));
+    }
+
+    @Test
+    void suggest_matchesLaterWordsOnceAndHonoursLimit() {
+        assertThat(index.suggest("hosp", 10)).extracting(SuggestionDto::getId).containsExactly(10L, 11L);
+        assertThat(index.suggest("n", 2)).extracting(SuggestionDto::getId).containsExactly(2L, 3L);
+        assertThat(index.suggest("  ", 5)).isEmpty();
+        assertThat(index.suggest("zzz", 5)).isEmpty();
+    }
+
+    @Test
+    void directoryChanges_renameAndRemoveEntries() {
+        when(hospitalRepository.findNameRow(11L)).thenReturn(List.<Object[]>of(new Object[]{11L, "Khmer Soviet Hospital"}));
+
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, 11L, false));
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, 2L, true));
+
+        assertThat(index.suggest("royal", 5)).isEmpty();
+        assertThat(index.suggest("khmer", 5)).extracting(SuggestionDto::getId).containsExactly(11L);
+        assertThat(index.suggest("na", 5)).isEmpty();
+    }
+
+    @Test
+    void directoryChanges_keepTheirWeightInTheOverlay() {
+        when(doctorRepository.findNameRow(1L)).thenReturn(List.<Object[]>of(new Object[]{1L, "Nita", "Chan"}));
+        when(specializationRepository.findNameRow(22L)).thenReturn(List.<Object[]>of(new Object[]{22L, "Nephrology"}));
+
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.DOCTOR, 1L, false));
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.SPECIALIZATION, 22L, false));
+
+        // Changed names merge with the base by weight, and the old name no longer matches
+        assertThat(index.suggest("n", 10)).extracting(SuggestionDto::getName)
+                .containsExactly("Narin Sok", "Dara Nhem", "Nita Chan", "Neurology", "Nephrology");
+        assertThat(index.suggest("n", 3)).extracting(SuggestionDto::getId).containsExactly(2L, 3L, 1L);
+        assertThat(index.suggest("hun", 5)).isEmpty();
+        verify(doctorRepository, times(1)).findSuggestRowsAfter(anyLong(), any());
+    }
+
+    @Test
+    void directoryChanges_overTheOverlayLimitReloadInTheBackground() {
+        ReflectionTestUtils.setField(index, "maxPendingChanges", 1);
+        when(hospitalRepository.findNameRow(10L)).thenReturn(List.<Object[]>of(new Object[]{10L, "Calmette Hospital"}));
+        when(hospitalRepository.findNameRow(11L)).thenReturn(List.<Object[]>of(new Object[]{11L, "Royal Phnom Penh Hospital"}));
+
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, 10L, false));
+        verify(doctorRepository, times(1)).findSuggestRowsAfter(anyLong(), any());
+        index.onDirectoryChanged(new DirectoryChangedEvent(DirectoryChangedEvent.Kind.HOSPITAL, 11L, false));
+
+        verify(doctorRepository, timeout(5000).times(2)).findSuggestRowsAfter(anyLong(), any());
+        index.shutdown();
+        assertThat(index.suggest("hosp", 10)).extracting(SuggestionDto::getId).containsExactly(10L, 11L);
+    }
+
+    private static DoctorRatingAggregate rated(Long doctorId, long count) {
+        DoctorRatingAggregate aggregate = new DoctorRatingAggregate(doctorId);
+        aggregate.setRatingCount(count);
+        return aggregate;
+    }
+}
@@ -0,0 +1,159 @@
+package ptsd14.find.doctor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import ptsd14.find.doctor.model.WebhookEvent;
+import ptsd14.find.doctor.model.WebhookEventStatus;
+import ptsd14.find.doctor.service.StripeWebhookHandler;
+import ptsd14.find.doctor.service.WebhookInboxService;
+import ptsd14.find.doctor.service.WebhookProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Replays thousands of webhook deliveries, including Stripe-style duplicates
+ * and transient failures, against an in-memory stand-in for the inbox table.
+ */
+class WebhookProcessorTest {
+
+    private static final int EVENTS = 2000;
+    private static final int APPOINTMENTS = 100;
+    private static final int DELIVERIES_PER_EVENT = 3;
+
+    @Mock
+    private WebhookInboxService inbox;
+
+    @Mock
+    private StripeWebhookHandler handler;
+
+    private WebhookProcessor processor;
+    private AutoCloseable mocks;
+
+    private final Map<Long, WebhookEvent> rows = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> applied = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> runningPerAppointment = new ConcurrentHashMap<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicBoolean overlapped = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mocks = MockitoAnnotations.openMocks(this);
+        processor = new WebhookProcessor(inbox, handler, 4, 10_000);
+
+        for (long id = 1; id <= EVENTS; id++) {
+            WebhookEvent event = new WebhookEvent();
+            event.setId(id);
+            event.setEventId("evt_" + id);
+            event.setType("payment_intent.succeeded");
+            event.setPartitionKey(id % APPOINTMENTS);
+            event.setStatus(WebhookEventStatus.RECEIVED);
+            rows.put(id, event);
+        }
+
+        when(inbox.claim(anyLong())).thenAnswer(inv -> {
+            WebhookEvent event = rows.get(inv.<Long>getArgument(0));
+            synchronized (event) {
+                if (event.getStatus() != WebhookEventStatus.RECEIVED && event.getStatus() != WebhookEventStatus.FAILED) {
+                    return Optional.empty();
+                }
+                event.setStatus(WebhookEventStatus.PROCESSING);
+                event.setAttempts(event.getAttempts() + 1);
+                return Optional.of(event);
+            }
+        });
+        doAnswer(inv -> {
+            WebhookEvent event = rows.get(inv.<Long>getArgument(0));
+            synchronized (event) {
+                event.setStatus(WebhookEventStatus.PROCESSED);
+            }
+            return null;
+        }).when(inbox).markProcessed(anyLong());
+        doAnswer(inv -> {
+            WebhookEvent event = rows.get(inv.<Long>getArgument(0));
+            synchronized (event) {
+                event.setStatus(WebhookEventStatus.FAILED);
+            }
+            return null;
+        }).when(inbox).markFailed(anyLong(), any());
+        when(inbox.findDue(anyInt())).thenAnswer(inv -> {
+            List<Object[]> due = new ArrayList<>();
+            rows.values().stream()
+                .filter(e -> e.getStatus() == WebhookEventStatus.FAILED)
+                .forEach(e -> due.add(new Object[] { e.getId(), e.getPartitionKey() }));
+            return due;
+        });
+
+        doAnswer(inv -> {
+            WebhookEvent event = inv.getArgument(0);
+            AtomicInteger running = runningPerAppointment.computeIfAbsent(event.getPartitionKey(), k -> new AtomicInteger());
+            if (running.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            try {
+                attempts.incrementAndGet();
+                // Every tenth event fails on its first attempt and must be retried
+                if (event.getId() % 10 == 0 && event.getAttempts() == 1) {
+                    throw new IllegalStateException("transient failure");
+                }
+                applied.computeIfAbsent(event.getId(), k -> new AtomicInteger()).incrementAndGet();
+            } finally {
+                running.decrementAndGet();
+            }
+            return null;
+        }).when(handler).handle(any());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        processor.shutdown();
+        mocks.close();
+    }
+
+    @Test
+    void replayedDeliveries_areAppliedExactlyOnceAndSerializedPerAppointment() throws Exception {
+        ExecutorService deliveries = Executors.newFixedThreadPool(8);
+        for (int round = 0; round < DELIVERIES_PER_EVENT; round++) {
+            for (long id = 1; id <= EVENTS; id++) {
+                WebhookEvent event = rows.get(id);
+                deliveries.execute(() -> processor.submit(event.getId(), event.getPartitionKey()));
+            }
+        }
+        deliveries.shutdown();
+        assertTrue(deliveries.awaitTermination(30, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (rows.values().stream().anyMatch(this::pending)) {
+            assertTrue(System.currentTimeMillis() < deadline, "inbox did not drain");
+            processor.pollDue();
+            Thread.sleep(20);
+        }
+
+        assertFalse(overlapped.get(), "events for one appointment ran concurrently");
+        assertEquals(EVENTS, applied.size());
+        assertTrue(applied.values().stream().allMatch(count -> count.get() == 1));
+        assertEquals(EVENTS + EVENTS / 10, attempts.get());
+    }
+
+    private boolean pending(WebhookEvent event) {
+        synchronized (event) {
+            return event.getStatus() != WebhookEventStatus.PROCESSED;
+        }
+    }
+}